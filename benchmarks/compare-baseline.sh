@@ -0,0 +1,32 @@
+#!/bin/sh
+# Runs the benchmarks and compares the result against the stored baseline.
+#
+# usage: ./compare-baseline.sh [--save] [jmh options]
+#
+#   --save       store the result as new baseline instead of comparing.
+#   jmh options  passed to JMH, e.g. a benchmark filter: TemplateBenchmark
+#
+# The allowed regression in percent is read from THRESHOLD (default: 10).
+# Build the benchmarks first: mvn install && cd benchmarks && mvn package
+set -e
+cd "$(dirname "$0")"
+
+JAR=target/benchmarks.jar
+BASELINE=baseline.csv
+RESULT=target/benchmark-result.csv
+
+SAVE=false
+if [ "$1" = "--save" ]; then
+	SAVE=true
+	shift
+fi
+
+java -jar "$JAR" -rf csv -rff "$RESULT" "$@"
+
+if [ "$SAVE" = true ] || [ ! -f "$BASELINE" ]; then
+	cp "$RESULT" "$BASELINE"
+	echo "baseline saved to $BASELINE"
+	exit 0
+fi
+
+java -cp "$JAR" ch.puzzle.benchmarks.BaselineComparator "$BASELINE" "$RESULT" "${THRESHOLD:-10}"
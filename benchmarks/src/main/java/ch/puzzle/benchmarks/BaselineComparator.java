@@ -0,0 +1,173 @@
+package ch.puzzle.benchmarks;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+/**
+ * Compares a JMH result file (written with '-rf csv') against a stored
+ * baseline. Prints the change of every benchmark and exits with status 1 if
+ * any benchmark got slower than the threshold.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar ch.puzzle.benchmarks.BaselineComparator baseline.csv target/benchmark-result.csv 10
+ * </pre>
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class BaselineComparator {
+
+	/** default allowed regression in percent. */
+	private static final double DEFAULT_THRESHOLD = 10.0;
+
+	/**
+	 * Empty default constructor.
+	 */
+	private BaselineComparator() {
+		// empty default constructor
+	}
+
+	/**
+	 * @param args
+	 *            the baseline file, the result file and optionally the allowed
+	 *            regression in percent.
+	 * @throws IOException
+	 *             if a file cannot be read.
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: BaselineComparator <baseline.csv> "
+					+ "<result.csv> [threshold in percent]");
+			System.exit(2);
+		}
+		final double threshold = args.length > 2 ? Double.parseDouble(args[2])
+				: DEFAULT_THRESHOLD;
+
+		final Map<String, Score> baseline = read(args[0]);
+		final Map<String, Score> result = read(args[1]);
+
+		int regressions = 0;
+		for (final Entry<String, Score> entry : result.entrySet()) {
+			final Score current = entry.getValue();
+			final Score previous = baseline.get(entry.getKey());
+			if (previous == null) {
+				System.out.println(String.format("%-80s %12.3f %-8s (new)",
+						entry.getKey(), Double.valueOf(current.value),
+						current.unit));
+				continue;
+			}
+
+			final double change = current.slowdownAgainst(previous);
+			final boolean regression = change > threshold;
+			if (regression) {
+				regressions++;
+			}
+			System.out.println(String.format(
+					"%-80s %12.3f %-8s %+7.1f%% slower%s", entry.getKey(),
+					Double.valueOf(current.value), current.unit,
+					Double.valueOf(change), regression ? "  REGRESSION" : ""));
+		}
+		for (final String missing : baseline.keySet()) {
+			if (!result.containsKey(missing)) {
+				System.out.println(String.format("%-80s (not run)", missing));
+			}
+		}
+
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmark(s) slower than "
+					+ threshold + "% against the baseline.");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads a JMH csv result file.
+	 *
+	 * @param file
+	 *            the file to read.
+	 * @return the scores by benchmark name and parameters.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	static Map<String, Score> read(final String file) throws IOException {
+		final Map<String, Score> scores = new LinkedHashMap<>();
+		try (final CSVReader reader = new CSVReader(new FileReader(file))) {
+			final List<String[]> rows = reader.readAll();
+			if (rows.isEmpty()) {
+				return scores;
+			}
+
+			final String[] header = rows.get(0);
+			for (int i = 1; i < rows.size(); i++) {
+				final String[] row = rows.get(i);
+				if (row.length < 7) {
+					continue;
+				}
+				// Benchmark, Mode, Threads, Samples, Score, Score Error, Unit,
+				// Param: ...
+				final StringBuilder key = new StringBuilder(row[0]);
+				for (int column = 7; column < row.length
+						&& column < header.length; column++) {
+					if (row[column].isEmpty()) {
+						// parameter of another benchmark
+						continue;
+					}
+					key.append(' ')
+							.append(header[column].replace("Param: ", ""))
+							.append('=').append(row[column]);
+				}
+				scores.put(key.toString(), new Score(row[1],
+						Double.parseDouble(row[4].replace(',', '.')), row[6]));
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * The score of a benchmark.
+	 */
+	static final class Score {
+
+		/** the benchmark mode, e.g. 'avgt' or 'thrpt'. */
+		private final String mode;
+
+		/** the score. */
+		private final double value;
+
+		/** the unit of the score. */
+		private final String unit;
+
+		/**
+		 * @param mode
+		 *            the benchmark mode.
+		 * @param value
+		 *            the score.
+		 * @param unit
+		 *            the unit of the score.
+		 */
+		Score(final String mode, final double value, final String unit) {
+			this.mode = mode;
+			this.value = value;
+			this.unit = unit;
+		}
+
+		/**
+		 * @param baseline
+		 *            the score of the baseline.
+		 * @return how much slower this score is in percent, negative if
+		 *         faster. For throughput a higher score is faster, for all
+		 *         other modes a lower score.
+		 */
+		double slowdownAgainst(final Score baseline) {
+			if ("thrpt".equals(this.mode)) {
+				return (baseline.value - this.value) / baseline.value * 100.0;
+			}
+			return (this.value - baseline.value) / baseline.value * 100.0;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package ch.puzzle.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import ch.puzzle.doc.reports.TestResult;
+
+/**
+ * Synthetic but realistic inputs for the benchmarks. All inputs are created
+ * from a fixed seed, so every run benchmarks the same data.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class SyntheticInputs {
+
+	/** seed of all random inputs. */
+	private static final long SEED = 42L;
+
+	/** words to build the javadoc texts from. */
+	private static final String[] WORDS = { "the", "user", "opens", "page",
+			"and", "selects", "an", "entry", "from", "list", "system",
+			"validates", "input", "shows", "error", "message", "if", "invalid",
+			"release", "report", "screenshot", "navigation", "is", "saved" };
+
+	/**
+	 * Empty default constructor.
+	 */
+	private SyntheticInputs() {
+		// empty default constructor
+	}
+
+	/**
+	 * Creates a javadoc tag text as javadoc provides it: paragraphs separated
+	 * by blank lines, continuation lines indented with spaces and tabs.
+	 *
+	 * @param paragraphs
+	 *            the number of paragraphs.
+	 * @return the text.
+	 */
+	public static String javadocText(final int paragraphs) {
+		final Random random = new Random(SEED);
+		final StringBuilder sb = new StringBuilder();
+		for (int paragraph = 0; paragraph < paragraphs; paragraph++) {
+			if (paragraph > 0) {
+				sb.append("\n \n\t   ");
+			}
+			final int lines = 2 + random.nextInt(4);
+			for (int line = 0; line < lines; line++) {
+				if (line > 0) {
+					sb.append("\n    ");
+				}
+				final int words = 6 + random.nextInt(10);
+				for (int word = 0; word < words; word++) {
+					if (word > 0) {
+						sb.append(' ');
+					}
+					sb.append(WORDS[random.nextInt(WORDS.length)]);
+				}
+			}
+			sb.append('.');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the replacements of a documented element with long texts.
+	 *
+	 * @param id
+	 *            the id of the element.
+	 * @param paragraphs
+	 *            the number of paragraphs of each text.
+	 * @return the replacements.
+	 */
+	public static Map<String, String> replacements(final String id,
+			final int paragraphs) {
+		final Map<String, String> replacements = new HashMap<>();
+		replacements.put("id", id);
+		replacements.put("name", "Synthetic use case " + id);
+		replacements.put("description", javadocText(paragraphs));
+		replacements.put("precondition", javadocText(paragraphs / 2 + 1));
+		replacements.put("postcondition", javadocText(paragraphs / 2 + 1));
+		replacements.put("actor", "user");
+		return replacements;
+	}
+
+	/**
+	 * Creates a template with a table of the given number of rows, an images
+	 * and a screencast directive.
+	 *
+	 * @param rows
+	 *            the number of table rows.
+	 * @return the template lines.
+	 */
+	public static String template(final int rows) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("${id} - ${name}\n\n* Description\n\n  ${description}\n\n");
+		sb.append("~~{table}\n*--+--+\n");
+		for (int row = 0; row < rows; row++) {
+			sb.append("| Row ").append(row)
+					.append(" | ${precondition} ${actor} ${postcondition} |\n");
+			sb.append("*--+--+\n");
+		}
+		sb.append("~~{/table}\n\n* Images\n\n~~{images:images/${id}}\n\n");
+		sb.append("* Screencast\n\n~~{screencast:screencasts/${id}}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Creates empty image files of the supported types in the given directory.
+	 *
+	 * @param dir
+	 *            the directory to create the files in.
+	 * @param count
+	 *            the number of files.
+	 * @throws IOException
+	 *             if a file cannot be created.
+	 */
+	public static void imageDirectory(final File dir, final int count)
+			throws IOException {
+		final String[] extensions = { "png", "png", "png", "jpg", "bmp" };
+		dir.mkdirs();
+		for (int i = 0; i < count; i++) {
+			new File(dir, String.format("screenshot_%05d.%s",
+					Integer.valueOf(i), extensions[i % extensions.length]))
+					.createNewFile();
+		}
+	}
+
+	/**
+	 * Creates a test report with the given number of test cases and releases.
+	 * Test cases are added over time, so older releases have fewer results.
+	 * About one result in twenty is a failure.
+	 *
+	 * @param testCases
+	 *            the number of test cases.
+	 * @param releases
+	 *            the number of releases.
+	 * @return the report, by release and test case id.
+	 */
+	public static Map<String, Map<String, TestResult>> testReport(
+			final int testCases, final int releases) {
+		final Random random = new Random(SEED);
+		final Map<String, Map<String, TestResult>> report = new HashMap<>();
+		for (int release = 0; release < releases; release++) {
+			final Map<String, TestResult> results = new HashMap<>();
+			final int existing = testCases * (release + 1) / releases;
+			for (int testCase = 0; testCase < existing; testCase++) {
+				results.put(String.format("TC-%05d", Integer.valueOf(testCase)),
+						random.nextInt(20) == 0 ? TestResult.FAILED
+								: TestResult.SUCCEEDED);
+			}
+			report.put(String.format("release-%03d", Integer.valueOf(release)),
+					results);
+		}
+		return report;
+	}
+}
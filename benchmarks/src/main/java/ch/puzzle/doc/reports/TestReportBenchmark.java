@@ -0,0 +1,84 @@
+package ch.puzzle.doc.reports;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.puzzle.benchmarks.SyntheticInputs;
+
+/**
+ * Benchmarks of reading and writing the test report. The report is written to
+ * the file configured as 'site.report.testreport' in the doclet.properties of
+ * the benchmarks.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TestReportBenchmark {
+
+	/** the number of test cases of the report. */
+	@Param({ "10000" })
+	public int testCases;
+
+	/** the number of releases of the report. */
+	@Param({ "200" })
+	public int releases;
+
+	/** the report to save. */
+	private Map<String, Map<String, TestResult>> testReport;
+
+	/**
+	 * Creates the report and writes it to the report file.
+	 */
+	@Setup
+	public void setUp() {
+		this.testReport = SyntheticInputs.testReport(this.testCases,
+				this.releases);
+		TestReportParser.saveTestReport(this.testReport);
+	}
+
+	@Benchmark
+	public Map<String, Map<String, TestResult>> parseExistingTestReport() {
+		return TestReportParser.parseExistingTestReport();
+	}
+
+	@Benchmark
+	public int parseTestReportRows() throws IOException {
+		final int[] failures = new int[1];
+		TestReportParser.parseTestReport(TestReportParser.initFile(),
+				new TestReportRowHandler() {
+					@Override
+					public void row(final String testCase,
+							final TestResult[] results) {
+						for (final TestResult result : results) {
+							if (result == TestResult.FAILED) {
+								failures[0]++;
+							}
+						}
+					}
+				});
+		return failures[0];
+	}
+
+	@Benchmark
+	public void saveTestReport() {
+		TestReportParser.saveTestReport(this.testReport);
+	}
+}
@@ -0,0 +1,148 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ch.puzzle.benchmarks.SyntheticInputs;
+
+/**
+ * Benchmarks of the template engine: placeholder and table lines with long
+ * javadoc texts, images directories with thousands of files, screencasts and
+ * a whole template with a large table.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateBenchmark {
+
+	/** the number of files in the images directory. */
+	@Param({ "1000", "5000" })
+	public int imageCount;
+
+	/** the number of paragraphs of each javadoc text. */
+	@Param({ "20" })
+	public int paragraphs;
+
+	/** the number of rows of the template table. */
+	@Param({ "500" })
+	public int tableRows;
+
+	/** the site resources directory of the run. */
+	private File resources;
+
+	/** the replacements of the rendered element. */
+	private Map<String, String> replacements;
+
+	/** the compiled template with a large table. */
+	private Template template;
+
+	/**
+	 * Creates the site resources and the template.
+	 *
+	 * @throws IOException
+	 *             if a file cannot be written.
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		this.resources = Files.createTempDirectory("at-doclet-benchmark")
+				.toFile();
+		DocumentationGenerator.resourcesDir = this.resources.getPath() + "/";
+		DocumentationGenerator.resourceCatalog = null;
+
+		SyntheticInputs.imageDirectory(new File(this.resources, "images/UC-1"),
+				this.imageCount);
+		new File(this.resources, "screencasts").mkdirs();
+		new File(this.resources, "screencasts/UC-1.mp4").createNewFile();
+
+		this.replacements = SyntheticInputs.replacements("UC-1",
+				this.paragraphs);
+
+		final File templateFile = new File(this.resources,
+				"usecase.apt.template");
+		FileUtils.writeStringToFile(templateFile,
+				SyntheticInputs.template(this.tableRows), "UTF-8");
+		this.template = Template.compile(templateFile.getPath());
+	}
+
+	/**
+	 * Deletes the site resources.
+	 *
+	 * @throws IOException
+	 *             if a file cannot be deleted.
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(this.resources);
+		DocumentationGenerator.resourcesDir = "src/site/resources/";
+		DocumentationGenerator.resourceCatalog = null;
+	}
+
+	@Benchmark
+	public String processLine() {
+		return DocumentationGenerator.processLine(
+				"  ${description} (${id}, ${actor})", false, this.replacements);
+	}
+
+	@Benchmark
+	public String processTableLine() {
+		return DocumentationGenerator.processLine(
+				"| ${precondition} | ${description} | ${postcondition} |",
+				true, this.replacements);
+	}
+
+	@Benchmark
+	public String formatTextForTableCell() {
+		return DocumentationGenerator.formatTextForTableCell(this.replacements
+				.get("description"));
+	}
+
+	@Benchmark
+	public String processImages() {
+		return DocumentationGenerator.processImages("~~{images:images/${id}}",
+				this.replacements);
+	}
+
+	@Benchmark
+	public ResourceCatalog scanResourceCatalog() {
+		return ResourceCatalog.scan(DocumentationGenerator.resourcesDir);
+	}
+
+	@Benchmark
+	public String processScreencast() {
+		return DocumentationGenerator.processScreencast(
+				"~~{screencast:screencasts/${id}}", this.replacements);
+	}
+
+	@Benchmark
+	public String renderTemplate() {
+		final StringWriter content = new StringWriter();
+		try (final PrintWriter writer = new PrintWriter(content)) {
+			this.template.render(this.replacements, writer);
+		}
+		return content.toString();
+	}
+}
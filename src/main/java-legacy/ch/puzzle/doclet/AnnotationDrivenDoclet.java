@@ -0,0 +1,169 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ch.puzzle.doclet.exceptions.MissingCommandLineParameterException;
+import ch.puzzle.doclet.exceptions.UnsupportedCommandLineParameterException;
+
+import com.sun.javadoc.AnnotationDesc;
+import com.sun.javadoc.AnnotationDesc.ElementValuePair;
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.Doclet;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.Tag;
+
+/**
+ * Doclet for the com.sun.javadoc API, which was removed with Java 13. Only
+ * compiled with the 'legacy-doclet' profile, i.e. on Java 12 and earlier. On
+ * later versions, use the {@link AnnotationDrivenJdkDoclet}. The
+ * documentation is generated by the {@link DocumentationGenerator}.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class AnnotationDrivenDoclet {
+
+	/**
+	 * @param root
+	 *            {@link RootDoc} document to start doclet generation from.
+	 * @return boolean value whether the generation was successful or not.
+	 * @throws IOException
+	 * @throws UnsupportedCommandLineParameterException
+	 * @throws MissingCommandLineParameterException
+	 * @throws FileNotFoundException
+	 */
+	public static boolean start(final RootDoc root)
+			throws UnsupportedCommandLineParameterException,
+			MissingCommandLineParameterException, FileNotFoundException,
+			IOException {
+
+		/** process commandline-parameters and save them to class variables */
+		final long optionsStart = System.nanoTime();
+		DocumentationGenerator.processOptions(root.options());
+		DocumentationGenerator.profile.record(RunProfile.OPTIONS, optionsStart);
+
+		// extract the javadoc on the calling thread, the doc model is not
+		// thread safe.
+		final long traversalStart = System.nanoTime();
+		final List<DocumentedElement> elements = new ArrayList<>();
+		for (final ClassDoc classDoc : root.classes()) {
+			elements.addAll(extractElements(classDoc.tags(),
+					classDoc.annotations(), evaluatePath(classDoc)));
+
+			final MethodDoc[] methods = classDoc.methods();
+			for (final MethodDoc methodDoc : methods) {
+
+				elements.addAll(extractElements(methodDoc.tags(),
+						methodDoc.annotations(), evaluatePath(classDoc)));
+			}
+		}
+		DocumentationGenerator.profile.record(RunProfile.TRAVERSAL,
+				traversalStart);
+
+		DocumentationModel.write(new File(
+				DocumentationGenerator.baseOutputDir,
+				DocumentationModel.FILE_NAME), elements);
+
+		for (final String notice : DocumentationGenerator.generate(elements,
+				true)) {
+			root.printNotice(notice);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param tags
+	 *            the Tags to process.
+	 * @param annotations
+	 *            the annotations to process.
+	 * @param destinationFolder
+	 *            the directory where to put the generated files.
+	 * @throws IOException
+	 * @throws FileNotFoundException
+	 */
+	static void processAnnotations(final Tag[] tags,
+			final AnnotationDesc[] annotations, final String destinationFolder)
+			throws IOException, FileNotFoundException {
+		for (final DocumentedElement element : extractElements(tags,
+				annotations, destinationFolder)) {
+			DocumentationGenerator.renderElement(element);
+		}
+	}
+
+	/**
+	 * Extracts the replacements of all configured annotations from the
+	 * javadoc.
+	 *
+	 * @param tags
+	 *            the Tags to process.
+	 * @param annotations
+	 *            the annotations to process.
+	 * @param destinationFolder
+	 *            the directory where to put the generated files.
+	 * @return one {@link DocumentedElement} per configured annotation.
+	 */
+	static List<DocumentedElement> extractElements(final Tag[] tags,
+			final AnnotationDesc[] annotations, final String destinationFolder) {
+		final List<DocumentedElement> elements = new ArrayList<>();
+		for (final AnnotationDesc annotationDesc : annotations) {
+
+			final String qualifiedAnnotationName = annotationDesc
+					.annotationType().qualifiedName();
+
+			if (!DocumentationGenerator.configuredAnnotations
+					.containsKey(qualifiedAnnotationName)) {
+				continue;
+			}
+
+			final String[] tagNames = new String[tags.length];
+			final String[] tagTexts = new String[tags.length];
+			for (int i = 0; i < tags.length; i++) {
+				tagNames[i] = tags[i].name();
+				tagTexts[i] = tags[i].text();
+			}
+
+			final Map<String, String> annotationValues = new LinkedHashMap<>();
+			for (final ElementValuePair annotationElement : annotationDesc
+					.elementValues()) {
+				annotationValues.put(annotationElement.element().name(),
+						annotationElement.value().toString());
+			}
+
+			elements.add(DocumentationGenerator.createElement(
+					qualifiedAnnotationName, destinationFolder, tagNames,
+					tagTexts, annotationValues));
+		}
+		return elements;
+	}
+
+	/**
+	 * @param classDoc
+	 *            the classDoc to evaluate the destination path from.
+	 * @return the path where to save the generated files.
+	 */
+	private static String evaluatePath(final ClassDoc classDoc) {
+		// FIXME: windows paths.
+		return DocumentationGenerator.baseOutputDir
+				+ classDoc.containingPackage().name().replaceAll("\\.", "/");
+
+	}
+
+	/**
+	 * This method is required from the {@link Doclet} to enable commandline
+	 * parameter.
+	 *
+	 * @param option
+	 *            the provided commandline parameter option.
+	 * @return the number of parameters.
+	 */
+	public static int optionLength(final String option) {
+		return DocumentationGenerator.optionLength(option);
+	}
+}
@@ -0,0 +1,124 @@
+package ch.puzzle.doc.reports;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+
+/**
+ * Runs the test methods ordered by their history, see {@link HistorySorter}:
+ *
+ * <pre>
+ * &#064;RunWith(HistoryOrderedRunner.class)
+ * public class LoginTest extends BaseSeleniumTest {
+ * </pre>
+ *
+ * With the system property 'atdoclet.failFast' set to true, all tests after
+ * the first failure in the JVM are skipped.
+ *
+ * The runner orders the tests within a class only. To run the likely failing
+ * classes first, sort the suite with the {@link HistorySorter}, or configure
+ * the surefire plugin with &lt;runOrder&gt;failedfirst&lt;/runOrder&gt;.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class HistoryOrderedRunner extends BlockJUnit4ClassRunner {
+
+	/** system property to skip all tests after the first failure. */
+	static final String FAIL_FAST_PROPERTY = "atdoclet.failFast";
+
+	/** whether a test of this JVM failed. */
+	private static final AtomicBoolean FAILED = new AtomicBoolean();
+
+	/** the sorter that orders the tests. */
+	private final HistorySorter sorter;
+
+	/**
+	 * @param testClass
+	 *            the test class.
+	 * @throws InitializationError
+	 *             if the test class is malformed.
+	 */
+	public HistoryOrderedRunner(final Class<?> testClass)
+			throws InitializationError {
+		this(testClass, HistorySorter.getInstance());
+	}
+
+	/**
+	 * @param testClass
+	 *            the test class.
+	 * @param sorter
+	 *            the sorter to order the tests.
+	 * @throws InitializationError
+	 *             if the test class is malformed.
+	 */
+	HistoryOrderedRunner(final Class<?> testClass, final HistorySorter sorter)
+			throws InitializationError {
+		super(testClass);
+		this.sorter = sorter;
+		this.sort(sorter);
+	}
+
+	/**
+	 * Keeps the fingerprint of the test class if one of its tests ran, see
+	 * {@link HistorySorter#ran(Class)}.
+	 *
+	 * @see org.junit.runners.ParentRunner#run(org.junit.runner.notification.RunNotifier)
+	 */
+	@Override
+	public void run(final RunNotifier notifier) {
+		final Class<?> testClass = this.getTestClass().getJavaClass();
+		final AtomicBoolean started = new AtomicBoolean();
+		final RunListener listener = new RunListener() {
+			@Override
+			public void testStarted(final Description description) {
+				if (testClass.equals(description.getTestClass())) {
+					started.set(true);
+				}
+			}
+
+			@Override
+			public void testFailure(final Failure failure) {
+				FAILED.set(true);
+			}
+		};
+		notifier.addListener(listener);
+		try {
+			super.run(notifier);
+		} finally {
+			notifier.removeListener(listener);
+		}
+		if (started.get()) {
+			this.sorter.ran(testClass);
+		}
+	}
+
+	/**
+	 * Skips the test if fail fast is enabled and a test failed already.
+	 *
+	 * @see org.junit.runners.BlockJUnit4ClassRunner#runChild(org.junit.runners.model.FrameworkMethod,
+	 *      org.junit.runner.notification.RunNotifier)
+	 */
+	@Override
+	protected void runChild(final FrameworkMethod method,
+			final RunNotifier notifier) {
+		if (FAILED.get() && Boolean.getBoolean(FAIL_FAST_PROPERTY)) {
+			notifier.fireTestIgnored(this.describeChild(method));
+			return;
+		}
+		super.runChild(method, notifier);
+	}
+
+	/**
+	 * Forgets the failures of earlier tests, e.g. between two runs in the same
+	 * JVM.
+	 */
+	static void reset() {
+		FAILED.set(false);
+	}
+}
@@ -0,0 +1,353 @@
+package ch.puzzle.doc.reports;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Sorter;
+
+import ch.puzzle.annotations.TestCase;
+import ch.puzzle.doc.reports.TestAnalytics.Statistics;
+
+/**
+ * Orders the {@link TestCase} methods by their history, so likely failures
+ * run first:
+ *
+ * <ol>
+ * <li>test cases that failed in their last build,</li>
+ * <li>test cases without history and test cases of classes changed since
+ * their last run,</li>
+ * <li>test cases with more flips between OK and NOK in the window,</li>
+ * <li>test cases with a lower pass rate.</li>
+ * </ol>
+ *
+ * Test methods without {@link TestCase} are ordered like test cases that
+ * always succeeded, tests without a difference keep their order. Test classes
+ * and suites rank like their most likely failing test case, e.g. sort a suite
+ * with <code>Request.aClass(AllTests.class).sortWith(sorter)</code>. The
+ * history is read from the {@link TestAnalytics} of the test report.
+ *
+ * A class is changed if the SHA-1 of its class file differs from the one of
+ * its last run, kept next to the statistics (&lt;report&gt;.fingerprints), so
+ * a clean build does not mark all classes as changed. A line is appended to
+ * the fingerprints only if a class changed, the last line of a class counts.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class HistorySorter extends Sorter {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/**
+	 * Holder of the sorter for the configured report, initialized on first
+	 * access by the class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** the sorter of the configured test report. */
+		private static final HistorySorter INSTANCE = configured();
+	}
+
+	/** suffix of the fingerprints of the test classes. */
+	static final String FINGERPRINT_SUFFIX = ".fingerprints";
+
+	/** the fingerprints of the last runs, <code>null</code> if not kept. */
+	private final File fingerprintFile;
+
+	/** the fingerprint of the last run of each test class. */
+	private final Map<String, String> fingerprints;
+
+	/**
+	 * @param statistics
+	 *            the statistics of each test case.
+	 * @param fingerprintFile
+	 *            the fingerprints of the last runs of the test classes,
+	 *            <code>null</code> to consider no class changed.
+	 */
+	public HistorySorter(final Map<String, Statistics> statistics,
+			final File fingerprintFile) {
+		this(statistics, fingerprintFile, readFingerprints(fingerprintFile));
+	}
+
+	/**
+	 * @param statistics
+	 *            the statistics of each test case.
+	 * @param fingerprintFile
+	 *            the fingerprints of the last runs of the test classes.
+	 * @param fingerprints
+	 *            the fingerprint of the last run of each test class.
+	 */
+	private HistorySorter(final Map<String, Statistics> statistics,
+			final File fingerprintFile, final Map<String, String> fingerprints) {
+		super(new HistoryComparator(statistics, fingerprints));
+		this.fingerprintFile = fingerprintFile;
+		this.fingerprints = fingerprints;
+	}
+
+	/**
+	 * @return the sorter of the configured test report.
+	 */
+	public static HistorySorter getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @return a sorter with the history of the configured report, a sorter
+	 *         without history if reports are off or the history cannot be
+	 *         read.
+	 */
+	private static HistorySorter configured() {
+		if ("on".equals(getPropertyValue("reports"))) {
+			final File reportFile = TestReportParser.initFile();
+			try {
+				return new HistorySorter(TestAnalytics.load(reportFile)
+						.getStatistics(), new File(reportFile.getPath()
+						+ FINGERPRINT_SUFFIX));
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "Could not read the history of "
+						+ reportFile + ". Keeping the order of the tests.", e);
+			}
+		}
+		return new HistorySorter(Collections.<String, Statistics> emptyMap(),
+				null);
+	}
+
+	/**
+	 * Keeps the fingerprint of a test class after it ran, so it is no longer
+	 * considered changed in the next runs.
+	 *
+	 * @param testClass
+	 *            the test class that ran.
+	 */
+	void ran(final Class<?> testClass) {
+		if (this.fingerprintFile == null) {
+			return;
+		}
+		final String fingerprint = fingerprint(testClass);
+		if (fingerprint == null
+				|| fingerprint.equals(this.fingerprints.put(testClass.getName(),
+						fingerprint))) {
+			return;
+		}
+		try {
+			ResultJournal.append(this.fingerprintFile,
+					ResultJournal.escape(testClass.getName()) + '\t'
+							+ fingerprint + '\n');
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not append the fingerprint of "
+					+ testClass.getName() + " to " + this.fingerprintFile
+					+ ".", e);
+		}
+	}
+
+	/**
+	 * @param fingerprintFile
+	 *            the fingerprints to read, may be <code>null</code>.
+	 * @return the last fingerprint of each test class, empty if the file
+	 *         does not exist or cannot be read.
+	 */
+	static Map<String, String> readFingerprints(final File fingerprintFile) {
+		final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+		if (fingerprintFile == null || !fingerprintFile.exists()) {
+			return fingerprints;
+		}
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(fingerprintFile),
+						StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] fields = line.split("\t", -1);
+				if (fields.length != 2 || fields[1].isEmpty()) {
+					LOG.log(Level.WARNING, "Invalid fingerprint [" + line
+							+ "] in " + fingerprintFile + ". skipping.");
+					continue;
+				}
+				fingerprints.put(ResultJournal.unescape(fields[0]), fields[1]);
+			}
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not read the fingerprints "
+					+ fingerprintFile + ". No test class is changed.", e);
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * The history of a test, or of all test cases of a test class or suite.
+	 */
+	private static final class Rank {
+
+		/** whether a test case failed in its last build. */
+		boolean failed;
+
+		/** whether a test case has no history or its class changed. */
+		boolean changed;
+
+		/** the most flips of a test case in the window. */
+		int flips;
+
+		/** the lowest pass rate of a test case. */
+		double passRate = 1;
+	}
+
+	/**
+	 * Compares the tests by their history, the likely failure first. Test
+	 * classes and suites are compared by the history of their test cases.
+	 */
+	private static final class HistoryComparator implements
+			Comparator<Description> {
+
+		/** the statistics of each test case. */
+		private final Map<String, Statistics> statistics;
+
+		/** the fingerprint of the last run of each test class. */
+		private final Map<String, String> fingerprints;
+
+		/** the current fingerprint of each compared test class. */
+		private final Map<Class<?>, String> current = new ConcurrentHashMap<>();
+
+		/** the rank of each compared test. */
+		private final Map<Description, Rank> ranks = new ConcurrentHashMap<>();
+
+		/**
+		 * @param statistics
+		 *            the statistics of each test case.
+		 * @param fingerprints
+		 *            the fingerprint of the last run of each test class.
+		 */
+		HistoryComparator(final Map<String, Statistics> statistics,
+				final Map<String, String> fingerprints) {
+			this.statistics = statistics;
+			this.fingerprints = fingerprints;
+		}
+
+		@Override
+		public int compare(final Description o1, final Description o2) {
+			final Rank rank1 = this.rank(o1);
+			final Rank rank2 = this.rank(o2);
+
+			int result = Boolean.compare(rank2.failed, rank1.failed);
+			if (result == 0) {
+				result = Boolean.compare(rank2.changed, rank1.changed);
+			}
+			if (result == 0) {
+				result = Integer.compare(rank2.flips, rank1.flips);
+			}
+			if (result == 0) {
+				result = Double.compare(rank1.passRate, rank2.passRate);
+			}
+			return result;
+		}
+
+		/**
+		 * @param description
+		 *            the test, test class or suite.
+		 * @return the rank of the test, or the combined rank of its children.
+		 */
+		private Rank rank(final Description description) {
+			Rank rank = this.ranks.get(description);
+			if (rank != null) {
+				return rank;
+			}
+			rank = new Rank();
+			if (description.isTest()) {
+				final TestCase testCase = description
+						.getAnnotation(TestCase.class);
+				final Statistics stats = testCase == null ? null
+						: this.statistics.get(testCase.id());
+				if (testCase != null) {
+					rank.failed = stats != null
+							&& stats.lastResult == TestResult.FAILED;
+					rank.changed = this.changed(description, stats);
+				}
+				if (stats != null) {
+					rank.flips = stats.getWindowFlips();
+					rank.passRate = stats.getPassRate();
+				}
+			} else {
+				for (final Description child : description.getChildren()) {
+					final Rank childRank = this.rank(child);
+					rank.failed |= childRank.failed;
+					rank.changed |= childRank.changed;
+					rank.flips = Math.max(rank.flips, childRank.flips);
+					rank.passRate = Math.min(rank.passRate, childRank.passRate);
+				}
+			}
+			this.ranks.put(description, rank);
+			return rank;
+		}
+
+		/**
+		 * @param description
+		 *            the test.
+		 * @param stats
+		 *            the statistics of the test case.
+		 * @return <code>true</code> if the test case has no history or its
+		 *         class changed since its last run.
+		 */
+		private boolean changed(final Description description,
+				final Statistics stats) {
+			if (stats == null) {
+				return true;
+			}
+			final Class<?> testClass = description.getTestClass();
+			final String last = testClass == null ? null : this.fingerprints
+					.get(testClass.getName());
+			if (last == null) {
+				return false;
+			}
+			String fingerprint = this.current.get(testClass);
+			if (fingerprint == null) {
+				fingerprint = String.valueOf(fingerprint(testClass));
+				this.current.put(testClass, fingerprint);
+			}
+			return !last.equals(fingerprint);
+		}
+	}
+
+	/**
+	 * @param testClass
+	 *            the test class.
+	 * @return the SHA-1 of the class file as hex string, <code>null</code> if
+	 *         the class file cannot be read.
+	 */
+	static String fingerprint(final Class<?> testClass) {
+		final String name = testClass.getName();
+		try (final InputStream in = testClass.getResourceAsStream(name
+				.substring(name.lastIndexOf('.') + 1) + ".class")) {
+			if (in == null) {
+				return null;
+			}
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+			final StringBuilder sb = new StringBuilder();
+			for (final byte b : digest.digest()) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		} catch (final IOException e) {
+			return null;
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not supported.", e);
+		}
+	}
+}
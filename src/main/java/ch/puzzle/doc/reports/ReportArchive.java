@@ -0,0 +1,146 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive of the builds removed from the test report by the
+ * {@link RetentionPolicy}. Every compaction that removes builds writes one
+ * segment next to the report, a gzipped {@link ResultMatrix} in the binary
+ * format:
+ *
+ * <pre>
+ * testresult.csv.archive-000001.gz
+ * testresult.csv.archive-000002.gz
+ * </pre>
+ *
+ * The segments are only read by {@link #readHistory(File)}, reading the
+ * report itself never touches them.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ReportArchive {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** the segment files, with the number of the segment as group 1. */
+	private static final Pattern SEGMENT = Pattern
+			.compile("\\.archive-(\\d+)\\.gz$");
+
+	/**
+	 * Empty default constructor.
+	 */
+	private ReportArchive() {
+		// empty default constructor
+	}
+
+	/**
+	 * Moves the builds selected by the policy to a new archive segment.
+	 *
+	 * @param reportFile
+	 *            the report file the archive belongs to.
+	 * @param testReport
+	 *            the results by build and test case. The archived builds are
+	 *            removed, unless the segment cannot be written.
+	 * @param policy
+	 *            the retention policy.
+	 * @param now
+	 *            the current time in milliseconds.
+	 * @throws IOException
+	 *             if the segment cannot be written.
+	 */
+	static void archive(final File reportFile, final ResultMatrix testReport,
+			final RetentionPolicy policy, final long now) throws IOException {
+		final Set<String> archived = policy.selectArchived(
+				testReport.getReleases(), now);
+		if (archived.isEmpty()) {
+			return;
+		}
+
+		final ResultMatrix removed = testReport.removeReleases(archived);
+		final File segment = nextSegment(reportFile);
+		try (final GZIPOutputStream out = new GZIPOutputStream(
+				new FileOutputStream(segment))) {
+			removed.write(out);
+		} catch (final IOException e) {
+			testReport.putReleases(removed);
+			throw e;
+		}
+		LOG.log(Level.INFO, "archived " + archived.size() + " build(s) to "
+				+ segment + ".");
+	}
+
+	/**
+	 * Reads the report with all archived builds. Builds in newer segments and
+	 * in the report replace builds of older segments.
+	 *
+	 * @param reportFile
+	 *            the report file.
+	 * @return the complete history, by build and test case.
+	 */
+	public static ResultMatrix readHistory(final File reportFile) {
+		final ResultMatrix history = new ResultMatrix();
+		for (final File segment : segments(reportFile)) {
+			try (final InputStream in = new GZIPInputStream(
+					new FileInputStream(segment))) {
+				history.putReleases(ResultMatrix.read(in, segment.toString()));
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "Could not read archive segment "
+						+ segment + ". skipping.", e);
+			}
+		}
+		history.putReleases(TestReportParser.readTestReport(reportFile));
+		return history;
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file.
+	 * @return the archive segments of the report, oldest first.
+	 */
+	static File[] segments(final File reportFile) {
+		final File directory = reportFile.getAbsoluteFile().getParentFile();
+		final String prefix = reportFile.getName() + ".archive-";
+		final File[] segments = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return name.startsWith(prefix)
+						&& SEGMENT.matcher(name).find();
+			}
+		});
+		if (segments == null) {
+			return new File[0];
+		}
+		Arrays.sort(segments);
+		return segments;
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file.
+	 * @return the file of the next archive segment.
+	 */
+	private static File nextSegment(final File reportFile) {
+		long last = 0;
+		for (final File segment : segments(reportFile)) {
+			final Matcher matcher = SEGMENT.matcher(segment.getName());
+			if (matcher.find()) {
+				last = Math.max(last, Long.parseLong(matcher.group(1)));
+			}
+		}
+		return new File(reportFile.getPath()
+				+ String.format(".archive-%06d.gz", Long.valueOf(last + 1)));
+	}
+}
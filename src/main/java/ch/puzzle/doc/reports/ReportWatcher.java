@@ -8,22 +8,45 @@ import org.junit.runner.Description;
 import ch.puzzle.annotations.TestCase;
 
 /**
- * Saves the TestResult to the testresult.csv file.
+ * Saves the TestResult to the journal of the testresult.csv file and the
+ * duration of the test to the {@link TestDurations}.
  * 
  * @author Brigitte Hulliger, <hulliger@puzzle.ch>
  * 
  */
 public abstract class ReportWatcher extends TestWatcher {
 
+	/** the start of the current test, from {@link System#nanoTime()}. */
+	private long startNanos;
+
+	/** the build of the current test's result, <code>null</code> if none. */
+	private String build;
+
+	/** the id of the current test case. */
+	private String testCase;
+
+	/**
+	 * @see org.junit.rules.TestWatcher#starting(org.junit.runner.Description)
+	 */
+	@Override
+	protected void starting(final Description description) {
+		this.build = null;
+		this.startNanos = System.nanoTime();
+		super.starting(description);
+	}
+
 	/**
 	 * @see org.junit.rules.TestWatcher#succeeded(org.junit.runner.Description)
 	 */
 	@Override
 	protected void succeeded(final Description description) {
 		if ("on".equals(getPropertyValue("reports"))) {
-			TestResultSaver.getInstance().succeeded(
-					this.getCurrentReleaseBuild(),
-					description.getAnnotation(TestCase.class).id());
+			final String build = this.getCurrentReleaseBuild();
+			final String testCase = description.getAnnotation(TestCase.class)
+					.id();
+			this.journal(build, testCase, TestResult.SUCCEEDED);
+			this.build = build;
+			this.testCase = testCase;
 		}
 		super.succeeded(description);
 	}
@@ -35,12 +58,56 @@ public abstract class ReportWatcher extends TestWatcher {
 	@Override
 	protected void failed(final Throwable e, final Description description) {
 		if ("on".equals(getPropertyValue("reports"))) {
-			TestResultSaver.getInstance().failed(this.getCurrentReleaseBuild(),
-					description.getAnnotation(TestCase.class).id());
+			final String build = this.getCurrentReleaseBuild();
+			final String testCase = description.getAnnotation(TestCase.class)
+					.id();
+			this.journal(build, testCase, TestResult.FAILED);
+			this.build = build;
+			this.testCase = testCase;
 		}
 		super.failed(e, description);
 	}
 
+	/**
+	 * Records the duration of the test from {@link #starting(Description)} to
+	 * here, if it has a result, see {@link TestDurations}.
+	 * 
+	 * @see org.junit.rules.TestWatcher#finished(org.junit.runner.Description)
+	 */
+	@Override
+	protected void finished(final Description description) {
+		if (this.build != null) {
+			TestDurations.getInstance().record(this.build, this.testCase,
+					System.nanoTime() - this.startNanos);
+			this.build = null;
+		}
+		super.finished(description);
+	}
+
+	/**
+	 * Appends the result to the journal of the test report. The journal is
+	 * compacted into the report once at the end of the test run. In a forked
+	 * test run, the result is appended to the shard of the fork instead, see
+	 * {@link ResultShards}.
+	 * 
+	 * @param build
+	 *            the build to save the result for.
+	 * @param testCase
+	 *            the id of the test case.
+	 * @param result
+	 *            the {@link TestResult}.
+	 */
+	private void journal(final String build, final String testCase,
+			final TestResult result) {
+		if (ResultShards.forkId() != null) {
+			ResultShards.getInstance().append(build, testCase, result);
+			return;
+		}
+		final ResultJournal journal = ResultJournal.getInstance();
+		journal.append(build, testCase, result);
+		journal.compactAtShutdown();
+	}
+
 	/**
 	 * Identfier for the testreport columns. Ususally the build identifier.
 	 * 
@@ -0,0 +1,379 @@
+package ch.puzzle.doc.reports;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only journal of test results next to the test report. Every test
+ * outcome is appended as one line, the report itself is only rewritten when
+ * the journal is compacted, usually once at the end of the test run.
+ *
+ * Readers of the report apply the journal on top of the report, see
+ * {@link TestReportParser#parseExistingTestReport()}. Applying a journal
+ * twice gives the same result, so a crash between writing the report and
+ * truncating the journal loses nothing.
+ *
+ * Each line holds the build, the test case and the result text, separated by
+ * tabs. A line that was not completely written is ignored.
+ *
+ * Journals of forked test runs are merged while the forks may still append,
+ * see {@link ResultShards}. The merge renames a journal before reading it,
+ * see {@link #claim(File, String)}, and every line is appended under a file
+ * lock to the journal that still has its name, see
+ * {@link #append(File, String)}.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ResultJournal {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** suffix of the journal file, appended to the report file name. */
+	static final String SUFFIX = ".journal";
+
+	/** marks a journal that is claimed for merging, see {@link #claim}. */
+	static final String CLAIMED = ".claimed-";
+
+	/** the report file the journal belongs to. */
+	private final File reportFile;
+
+	/** the journal file. */
+	private final File journalFile;
+
+	/** whether the compaction at shutdown is registered already. */
+	private boolean compactAtShutdown;
+
+	/**
+	 * Holder of the singleton instance for the configured report, initialized
+	 * on first access by the class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** journal of the configured test report. */
+		private static final ResultJournal INSTANCE = new ResultJournal(
+				TestReportParser.initFile());
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file the journal belongs to.
+	 */
+	ResultJournal(final File reportFile) {
+		this(reportFile, journalFile(reportFile));
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file the journal belongs to.
+	 * @param journalFile
+	 *            the journal file, e.g. a shard of a forked test run.
+	 */
+	ResultJournal(final File reportFile, final File journalFile) {
+		this.reportFile = reportFile;
+		this.journalFile = journalFile;
+	}
+
+	/**
+	 * @return the journal of the configured test report.
+	 */
+	public static ResultJournal getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file.
+	 * @return the journal file of the given report.
+	 */
+	static File journalFile(final File reportFile) {
+		return new File(reportFile.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Appends the given result to the journal.
+	 *
+	 * @param build
+	 *            the build to save the result for.
+	 * @param testCase
+	 *            the id of the test case.
+	 * @param result
+	 *            the {@link TestResult}.
+	 */
+	public synchronized void append(final String build, final String testCase,
+			final TestResult result) {
+		final String record = escape(build) + '\t' + escape(testCase) + '\t'
+				+ result.getText() + '\n';
+		try {
+			append(this.journalFile, record);
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not append test result to "
+					+ this.journalFile + ".", e);
+		}
+	}
+
+	/**
+	 * Appends a line to the given journal under a file lock. If the journal
+	 * was claimed for merging after it was opened, the line is appended to a
+	 * new journal with the same name instead, so it is not lost with the
+	 * claimed journal.
+	 *
+	 * @param journalFile
+	 *            the journal file.
+	 * @param record
+	 *            the line to append, including the line break.
+	 * @throws IOException
+	 *             if the journal cannot be written.
+	 */
+	static void append(final File journalFile, final String record)
+			throws IOException {
+		final ByteBuffer bytes = ByteBuffer.wrap(record
+				.getBytes(StandardCharsets.UTF_8));
+		while (true) {
+			try (final FileChannel channel = FileChannel.open(
+					journalFile.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				final FileLock lock = channel.lock();
+				try {
+					if (journalFile.exists()) {
+						while (bytes.hasRemaining()) {
+							channel.write(bytes);
+						}
+						return;
+					}
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Claims the given journal for merging: renames it atomically, so lines
+	 * appended from now on go to a new journal, and waits until a line that
+	 * is appended right now is written completely.
+	 *
+	 * @param journalFile
+	 *            the journal to claim.
+	 * @param suffix
+	 *            the suffix of the journal, kept by the claimed journal.
+	 * @return the claimed journal, <code>null</code> if the journal is gone
+	 *         or cannot be renamed.
+	 */
+	static File claim(final File journalFile, final String suffix) {
+		final String name = journalFile.getName();
+		File claimed = null;
+		try {
+			// a unique name, so a claimed journal is never replaced
+			claimed = File.createTempFile(
+					name.substring(0, name.length() - suffix.length())
+							+ CLAIMED, suffix, journalFile.getAbsoluteFile()
+							.getParentFile());
+			Files.move(journalFile.toPath(), claimed.toPath(),
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			try (final FileChannel channel = FileChannel.open(
+					claimed.toPath(), StandardOpenOption.WRITE)) {
+				channel.lock().release();
+			}
+			return claimed;
+		} catch (final IOException e) {
+			if (claimed != null && claimed.length() == 0) {
+				claimed.delete();
+			}
+			LOG.log(Level.WARNING, "Could not claim " + journalFile
+					+ " for merging. It is merged on the next merge.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param journalFile
+	 *            a journal file.
+	 * @return <code>true</code> if the journal is claimed for merging.
+	 */
+	static boolean isClaimed(final File journalFile) {
+		return journalFile.getName().contains(CLAIMED);
+	}
+
+	/**
+	 * Applies the journal to the report, writes the report and truncates the
+	 * journal. Builds the {@link RetentionPolicy} does not keep are moved to
+	 * the {@link ReportArchive}, the {@link TestDurations} are summarized and
+	 * the {@link TestAnalytics} updated with the results of the journal.
+	 */
+	public synchronized void compact() {
+		if (!this.journalFile.exists()) {
+			return;
+		}
+		final Map<String, Map<String, TestResult>> newResults = new HashMap<>();
+		replay(this.journalFile, newResults);
+		TestReportParser.saveTestReport(
+				TestReportParser.readTestReport(this.reportFile),
+				this.reportFile, RetentionPolicy.getInstance());
+		TestDurations.compact(this.reportFile);
+		TestAnalytics.update(this.reportFile, newResults);
+		if (!this.journalFile.delete()) {
+			LOG.log(Level.WARNING, "Could not delete " + this.journalFile
+					+ ". It is applied again on the next read.");
+		}
+	}
+
+	/**
+	 * Compacts the journal when the JVM shuts down, i.e. once after the test
+	 * run. Calling this method more than once has no further effect.
+	 */
+	public synchronized void compactAtShutdown() {
+		if (this.compactAtShutdown) {
+			return;
+		}
+		this.compactAtShutdown = true;
+		Runtime.getRuntime().addShutdownHook(
+				new Thread("test-report-compaction") {
+					@Override
+					public void run() {
+						ResultJournal.this.compact();
+					}
+				});
+	}
+
+	/**
+	 * Applies the results of the given journal to the report. Later lines
+	 * override earlier lines and the report.
+	 *
+	 * @param journalFile
+	 *            the journal to read. Nothing is applied if it does not exist.
+	 * @param testReport
+	 *            the report to update, by build and test case.
+	 */
+	static void replay(final File journalFile,
+			final Map<String, Map<String, TestResult>> testReport) {
+		final ResultMatrix results = new ResultMatrix();
+		replay(journalFile, results);
+		for (final Entry<String, Map<String, TestResult>> build : results
+				.toMap().entrySet()) {
+			if (testReport.get(build.getKey()) == null) {
+				testReport.put(build.getKey(), build.getValue());
+			} else {
+				testReport.get(build.getKey()).putAll(build.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Applies the results of the given journal to the report. Later lines
+	 * override earlier lines and the report.
+	 *
+	 * @param journalFile
+	 *            the journal to read. Nothing is applied if it does not exist.
+	 * @param testReport
+	 *            the report to update.
+	 */
+	static void replay(final File journalFile, final ResultMatrix testReport) {
+		if (!journalFile.exists()) {
+			return;
+		}
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(journalFile),
+						StandardCharsets.UTF_8))) {
+			final StringBuilder line = new StringBuilder();
+			int c;
+			while ((c = reader.read()) != -1) {
+				if (c != '\n') {
+					line.append((char) c);
+					continue;
+				}
+				apply(line.toString(), testReport);
+				line.setLength(0);
+			}
+			// an incomplete last line is a record that was not written
+			// completely, e.g. because the test run was killed.
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not read test result journal "
+					+ journalFile + ".", e);
+		}
+	}
+
+	/**
+	 * @param record
+	 *            a line of the journal.
+	 * @param testReport
+	 *            the report to apply the line to.
+	 */
+	private static void apply(final String record,
+			final ResultMatrix testReport) {
+		final String[] fields = record.split("\t", -1);
+		if (fields.length != 3) {
+			LOG.log(Level.WARNING, "Invalid journal entry [" + record
+					+ "]. skipping.");
+			return;
+		}
+		final TestResult result;
+		try {
+			result = TestResult.getInstanceByValue(fields[2]);
+		} catch (final IllegalArgumentException e) {
+			LOG.log(Level.WARNING, "Invalid journal entry [" + record
+					+ "]. skipping.");
+			return;
+		}
+		testReport.set(unescape(fields[0]), unescape(fields[1]), result);
+	}
+
+	/**
+	 * @param value
+	 *            the value to write.
+	 * @return the value with backslashes, tabs and newlines escaped.
+	 */
+	static String escape(final String value) {
+		return value.replace("\\", "\\\\").replace("\t", "\\t")
+				.replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	/**
+	 * @param value
+	 *            the value as written to the journal.
+	 * @return the original value.
+	 */
+	static String unescape(final String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		final StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c != '\\' || i + 1 == value.length()) {
+				sb.append(c);
+				continue;
+			}
+			final char escaped = value.charAt(++i);
+			switch (escaped) {
+			case 't':
+				sb.append('\t');
+				break;
+			case 'n':
+				sb.append('\n');
+				break;
+			case 'r':
+				sb.append('\r');
+				break;
+			default:
+				sb.append(escaped);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,517 @@
+package ch.puzzle.doc.reports;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import au.com.bytecode.opencsv.CSVWriter;
+
+/**
+ * Compact release x test case matrix of test results. Releases and test cases
+ * are stored once in dictionaries, every cell takes two bits in a primitive
+ * array per release. A matrix of 12000 test cases and 300 releases takes
+ * about 1 MB.
+ *
+ * The matrix can be read from and written to the CSV format of the test
+ * report and to a compact binary format. The report is compacted, archived
+ * and analyzed as matrix, see {@link TestReportParser#readTestReport(File)}.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ResultMatrix {
+
+	/** magic number of the binary format, 'ATRM'. */
+	static final int MAGIC = 0x4154524D;
+
+	/** the version of the binary format. */
+	static final int VERSION = 1;
+
+	/** bits per cell. */
+	private static final int BITS = 2;
+
+	/** cells per long. */
+	private static final int CELLS_PER_WORD = Long.SIZE / BITS;
+
+	/** mask of a single cell. */
+	private static final long MASK = (1L << BITS) - 1;
+
+	/** the results by code, a cell holds the ordinal + 1, 0 if no result. */
+	private static final TestResult[] RESULTS = TestResult.values();
+
+	/** the releases, in the order they were added. */
+	private final List<String> releases = new ArrayList<>();
+
+	/** the index of each release. */
+	private final Map<String, Integer> releaseIndex = new HashMap<>();
+
+	/** the test cases, in the order they were added. */
+	private final List<String> testCases = new ArrayList<>();
+
+	/** the index of each test case. */
+	private final Map<String, Integer> testCaseIndex = new HashMap<>();
+
+	/** the cells of each release, indexed like the releases. */
+	private final List<long[]> columns = new ArrayList<>();
+
+	/**
+	 * @param testReport
+	 *            the report by release and test case, as returned by
+	 *            {@link TestReportParser#parseExistingTestReport()}.
+	 * @return the matrix with the same results.
+	 */
+	public static ResultMatrix fromMap(
+			final Map<String, Map<String, TestResult>> testReport) {
+		final ResultMatrix matrix = new ResultMatrix();
+		for (final Entry<String, Map<String, TestResult>> release : testReport
+				.entrySet()) {
+			final int column = matrix.releaseIndex(release.getKey());
+			for (final Entry<String, TestResult> result : release.getValue()
+					.entrySet()) {
+				matrix.set(column, matrix.testCaseIndex(result.getKey()),
+						result.getValue());
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * @return the results by release and test case, in the format of
+	 *         {@link TestReportParser#parseExistingTestReport()}.
+	 */
+	public Map<String, Map<String, TestResult>> toMap() {
+		final Map<String, Map<String, TestResult>> testReport = new HashMap<>();
+		for (int column = 0; column < this.releases.size(); column++) {
+			final Map<String, TestResult> results = new HashMap<>();
+			for (int row = 0; row < this.testCases.size(); row++) {
+				final TestResult result = this.get(column, row);
+				if (result != null) {
+					results.put(this.testCases.get(row), result);
+				}
+			}
+			testReport.put(this.releases.get(column), results);
+		}
+		return testReport;
+	}
+
+	/**
+	 * @param release
+	 *            the release.
+	 * @param testCase
+	 *            the id of the test case.
+	 * @param result
+	 *            the result to store.
+	 */
+	public void set(final String release, final String testCase,
+			final TestResult result) {
+		this.set(this.releaseIndex(release), this.testCaseIndex(testCase),
+				result);
+	}
+
+	/**
+	 * Stores the given results, replacing the results of the same release and
+	 * test case.
+	 *
+	 * @param results
+	 *            the results by release and test case.
+	 */
+	public void setAll(final Map<String, Map<String, TestResult>> results) {
+		for (final Entry<String, Map<String, TestResult>> release : results
+				.entrySet()) {
+			final int column = this.releaseIndex(release.getKey());
+			for (final Entry<String, TestResult> result : release.getValue()
+					.entrySet()) {
+				this.set(column, this.testCaseIndex(result.getKey()),
+						result.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Stores the releases of the given matrix, replacing all results of the
+	 * same releases.
+	 *
+	 * @param other
+	 *            the matrix with the releases to store.
+	 */
+	public void putReleases(final ResultMatrix other) {
+		final int[] rows = new int[other.testCases.size()];
+		for (int row = 0; row < rows.length; row++) {
+			rows[row] = this.testCaseIndex(other.testCases.get(row));
+		}
+		for (int otherColumn = 0; otherColumn < other.releases.size(); otherColumn++) {
+			final int column = this.releaseIndex(other.releases
+					.get(otherColumn));
+			this.columns.set(column, new long[words(this.testCases.size())]);
+			for (int row = 0; row < rows.length; row++) {
+				final TestResult result = other.get(otherColumn, row);
+				if (result != null) {
+					this.set(column, rows[row], result);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the given releases from the matrix.
+	 *
+	 * @param releasesToRemove
+	 *            the releases to remove.
+	 * @return a matrix with the removed releases.
+	 */
+	public ResultMatrix removeReleases(
+			final Collection<String> releasesToRemove) {
+		final ResultMatrix removed = new ResultMatrix();
+		removed.testCases.addAll(this.testCases);
+		removed.testCaseIndex.putAll(this.testCaseIndex);
+		final List<String> keptReleases = new ArrayList<>();
+		final List<long[]> keptColumns = new ArrayList<>();
+		for (int column = 0; column < this.releases.size(); column++) {
+			final String release = this.releases.get(column);
+			if (releasesToRemove.contains(release)) {
+				removed.releaseIndex.put(release,
+						Integer.valueOf(removed.releases.size()));
+				removed.releases.add(release);
+				removed.columns.add(this.columns.get(column));
+			} else {
+				keptReleases.add(release);
+				keptColumns.add(this.columns.get(column));
+			}
+		}
+		this.releases.clear();
+		this.releaseIndex.clear();
+		this.columns.clear();
+		for (int column = 0; column < keptReleases.size(); column++) {
+			this.releases.add(keptReleases.get(column));
+			this.releaseIndex.put(keptReleases.get(column),
+					Integer.valueOf(column));
+			this.columns.add(keptColumns.get(column));
+		}
+		return removed;
+	}
+
+	/**
+	 * @param release
+	 *            the release.
+	 * @param testCase
+	 *            the id of the test case.
+	 * @return the result or <code>null</code> if there is no result.
+	 */
+	public TestResult get(final String release, final String testCase) {
+		final Integer column = this.releaseIndex.get(release);
+		final Integer row = this.testCaseIndex.get(testCase);
+		if (column == null || row == null) {
+			return null;
+		}
+		return this.get(column.intValue(), row.intValue());
+	}
+
+	/**
+	 * @return the releases, in the order they were added.
+	 */
+	public List<String> getReleases() {
+		return Collections.unmodifiableList(this.releases);
+	}
+
+	/**
+	 * @return the test cases, in the order they were added.
+	 */
+	public List<String> getTestCases() {
+		return Collections.unmodifiableList(this.testCases);
+	}
+
+	/**
+	 * @param release
+	 *            the release.
+	 * @return the index of the release, added if not present.
+	 */
+	private int releaseIndex(final String release) {
+		final Integer index = this.releaseIndex.get(release);
+		if (index != null) {
+			return index.intValue();
+		}
+		this.releases.add(release);
+		this.releaseIndex.put(release, Integer.valueOf(this.columns.size()));
+		this.columns.add(new long[words(this.testCases.size())]);
+		return this.columns.size() - 1;
+	}
+
+	/**
+	 * @param testCase
+	 *            the id of the test case.
+	 * @return the index of the test case, added if not present.
+	 */
+	private int testCaseIndex(final String testCase) {
+		final Integer index = this.testCaseIndex.get(testCase);
+		if (index != null) {
+			return index.intValue();
+		}
+		this.testCases.add(testCase);
+		this.testCaseIndex.put(testCase,
+				Integer.valueOf(this.testCases.size() - 1));
+		return this.testCases.size() - 1;
+	}
+
+	/**
+	 * @param column
+	 *            the index of the release.
+	 * @param row
+	 *            the index of the test case.
+	 * @param result
+	 *            the result to store, <code>null</code> to remove the result.
+	 */
+	private void set(final int column, final int row, final TestResult result) {
+		long[] cells = this.columns.get(column);
+		final int word = row / CELLS_PER_WORD;
+		if (word >= cells.length) {
+			// grow by half of the test cases at least, to add rows in
+			// amortized constant time.
+			cells = Arrays.copyOf(cells,
+					Math.max(word + 1, words(this.testCases.size() * 3 / 2)));
+			this.columns.set(column, cells);
+		}
+		final int shift = (row % CELLS_PER_WORD) * BITS;
+		final long code = result == null ? 0 : result.ordinal() + 1;
+		cells[word] = (cells[word] & ~(MASK << shift)) | (code << shift);
+	}
+
+	/**
+	 * @param column
+	 *            the index of the release.
+	 * @param row
+	 *            the index of the test case.
+	 * @return the result or <code>null</code> if there is no result.
+	 */
+	private TestResult get(final int column, final int row) {
+		final long[] cells = this.columns.get(column);
+		final int word = row / CELLS_PER_WORD;
+		if (word >= cells.length) {
+			return null;
+		}
+		final int code = (int) ((cells[word] >>> ((row % CELLS_PER_WORD) * BITS)) & MASK);
+		return code == 0 ? null : RESULTS[code - 1];
+	}
+
+	/**
+	 * @param cells
+	 *            the number of cells.
+	 * @return the number of longs needed to store the cells.
+	 */
+	private static int words(final int cells) {
+		return (cells + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+	}
+
+	/**
+	 * Reads a test report in CSV format row by row. Invalid rows are skipped
+	 * and logged, see
+	 * {@link TestReportParser#parseTestReport(File, TestReportRowHandler)}.
+	 *
+	 * @param file
+	 *            the CSV file.
+	 * @return the matrix.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	public static ResultMatrix readCsv(final File file) throws IOException {
+		final ResultMatrix matrix = new ResultMatrix();
+		matrix.readCsvRows(file);
+		return matrix;
+	}
+
+	/**
+	 * Reads the rows of a test report in CSV format into this matrix. The
+	 * rows read before an error are kept.
+	 *
+	 * @param file
+	 *            the CSV file.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	void readCsvRows(final File file) throws IOException {
+		final ResultMatrix matrix = this;
+		TestReportParser.parseTestReport(file, new TestReportRowHandler() {
+
+			/** the index of the release of each column. */
+			private int[] columns;
+
+			@Override
+			public void releases(final String[] releases) {
+				this.columns = new int[releases.length];
+				for (int i = 0; i < releases.length; i++) {
+					this.columns[i] = matrix.releaseIndex(releases[i]);
+				}
+			}
+
+			@Override
+			public void row(final String testCase, final TestResult[] results) {
+				final int row = matrix.testCaseIndex(testCase);
+				for (int i = 0; i < results.length; i++) {
+					matrix.set(this.columns[i], row, results[i]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Writes the matrix in the CSV format of the test report: releases and
+	 * test cases sorted, 'n/a' for missing results. Test cases without a
+	 * result in any release are left out.
+	 *
+	 * @param file
+	 *            the CSV file.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public void writeCsv(final File file) throws IOException {
+		final List<String> sortedReleases = new ArrayList<>(this.releases);
+		Collections.sort(sortedReleases);
+		final List<String> sortedTestCases = new ArrayList<>(this.testCases);
+		Collections.sort(sortedTestCases);
+
+		try (final CSVWriter writer = new CSVWriter(new FileWriter(file))) {
+			final String[] headerRow = new String[sortedReleases.size() + 1];
+			final int[] columns = new int[sortedReleases.size()];
+			for (int i = 0; i < sortedReleases.size(); i++) {
+				headerRow[i + 1] = sortedReleases.get(i);
+				columns[i] = this.releaseIndex.get(sortedReleases.get(i))
+						.intValue();
+			}
+			writer.writeNext(headerRow);
+
+			final String[] testCaseRow = new String[sortedReleases.size() + 1];
+			for (final String testCase : sortedTestCases) {
+				final int row = this.testCaseIndex.get(testCase).intValue();
+				testCaseRow[0] = testCase;
+				boolean hasResult = false;
+				for (int i = 0; i < columns.length; i++) {
+					final TestResult result = this.get(columns[i], row);
+					hasResult |= result != null;
+					testCaseRow[i + 1] = (result == null ? TestResult.NOT_AVAILABLE
+							: result).getText();
+				}
+				if (hasResult) {
+					writer.writeNext(testCaseRow);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a matrix in the binary format.
+	 *
+	 * @param file
+	 *            the binary file.
+	 * @return the matrix.
+	 * @throws IOException
+	 *             if the file cannot be read or has an invalid format.
+	 */
+	public static ResultMatrix read(final File file) throws IOException {
+		try (final InputStream in = new FileInputStream(file)) {
+			return read(in, file.toString());
+		}
+	}
+
+	/**
+	 * Reads a matrix in the binary format. The stream is not closed.
+	 *
+	 * @param stream
+	 *            the stream to read.
+	 * @param name
+	 *            the name of the stream in error messages.
+	 * @return the matrix.
+	 * @throws IOException
+	 *             if the stream cannot be read or has an invalid format.
+	 */
+	static ResultMatrix read(final InputStream stream, final String name)
+			throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(
+				stream));
+		if (in.readInt() != MAGIC) {
+			throw new IOException(name + " is not a result matrix.");
+		}
+		final int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported result matrix version "
+					+ version + " in " + name + ".");
+		}
+
+		final ResultMatrix matrix = new ResultMatrix();
+		final int releaseCount = in.readInt();
+		for (int i = 0; i < releaseCount; i++) {
+			matrix.releaseIndex(in.readUTF());
+		}
+		final int testCaseCount = in.readInt();
+		for (int i = 0; i < testCaseCount; i++) {
+			matrix.testCaseIndex(in.readUTF());
+		}
+		for (int column = 0; column < releaseCount; column++) {
+			final long[] cells = new long[words(testCaseCount)];
+			for (int word = 0; word < cells.length; word++) {
+				cells[word] = in.readLong();
+			}
+			matrix.columns.set(column, cells);
+		}
+		return matrix;
+	}
+
+	/**
+	 * Writes the matrix in the binary format: magic number, version, the
+	 * release and test case dictionaries and the cells of each release.
+	 *
+	 * @param file
+	 *            the binary file.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public void write(final File file) throws IOException {
+		try (final OutputStream out = new FileOutputStream(file)) {
+			this.write(out);
+		}
+	}
+
+	/**
+	 * Writes the matrix in the binary format. The stream is flushed but not
+	 * closed.
+	 *
+	 * @param stream
+	 *            the stream to write to.
+	 * @throws IOException
+	 *             if the stream cannot be written.
+	 */
+	void write(final OutputStream stream) throws IOException {
+		final int words = words(this.testCases.size());
+		final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(stream));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(this.releases.size());
+		for (final String release : this.releases) {
+			out.writeUTF(release);
+		}
+		out.writeInt(this.testCases.size());
+		for (final String testCase : this.testCases) {
+			out.writeUTF(testCase);
+		}
+		for (final long[] cells : this.columns) {
+			for (int word = 0; word < words; word++) {
+				out.writeLong(word < cells.length ? cells[word] : 0L);
+			}
+		}
+		out.flush();
+	}
+}
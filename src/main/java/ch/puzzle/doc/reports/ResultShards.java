@@ -0,0 +1,337 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Result shards of forked test runs. If the tests run in several JVMs, e.g.
+ * with surefire's forkCount > 1, every fork writes its results to its own
+ * shard file per release instead of the report. The shards are merged into
+ * the report afterwards by {@link #merge(File)}, the main method or the
+ * {@link ShardMergeListener}.
+ *
+ * The fork is identified by the system property 'atdoclet.report.fork' or
+ * 'surefire.forkNumber', e.g.
+ *
+ * <pre>
+ * &lt;systemPropertyVariables&gt;
+ *     &lt;atdoclet.report.fork&gt;${surefire.forkNumber}&lt;/atdoclet.report.fork&gt;
+ * &lt;/systemPropertyVariables&gt;
+ * </pre>
+ *
+ * If the shards contain different results for the same release and test
+ * case, a failure wins over a success, and a success wins over 'n/a'. The
+ * result of the merge does not depend on the order of the shards. Results of
+ * the shards replace the results in the report.
+ *
+ * Other forks may still append to their shards while a fork merges. Each
+ * shard is claimed before it is read, see
+ * {@link ResultJournal#claim(File, String)}, and only the claimed shards are
+ * deleted, so results appended during the merge are merged the next time.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ResultShards {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** system property with the id of the fork. */
+	static final String FORK_PROPERTY = "atdoclet.report.fork";
+
+	/** system property with the fork number set by surefire. */
+	static final String SUREFIRE_FORK_PROPERTY = "surefire.forkNumber";
+
+	/** suffix of the shard files. */
+	static final String SUFFIX = ".shard";
+
+	/** suffix of the lock file held while merging. */
+	static final String LOCK_SUFFIX = ".lock";
+
+	/** the report file the shards belong to. */
+	private final File reportFile;
+
+	/** the id of this fork. */
+	private final String fork;
+
+	/** the shard journals of this fork, by release. */
+	private final ConcurrentMap<String, ResultJournal> shards = new ConcurrentHashMap<>();
+
+	/**
+	 * Holder of the singleton instance for the configured report, initialized
+	 * on first access by the class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** shards of this fork for the configured test report. */
+		private static final ResultShards INSTANCE = new ResultShards(
+				TestReportParser.initFile(), forkId());
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file the shards belong to.
+	 * @param fork
+	 *            the id of this fork.
+	 */
+	ResultShards(final File reportFile, final String fork) {
+		this.reportFile = reportFile;
+		this.fork = fork;
+	}
+
+	/**
+	 * @return the shards of this fork for the configured test report.
+	 */
+	public static ResultShards getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @return the id of this fork or <code>null</code> if the tests do not
+	 *         run forked.
+	 */
+	public static String forkId() {
+		final String fork = System.getProperty(FORK_PROPERTY);
+		if (fork != null && !fork.isEmpty()) {
+			return fork;
+		}
+		final String surefireFork = System.getProperty(SUREFIRE_FORK_PROPERTY);
+		return surefireFork == null || surefireFork.isEmpty() ? null
+				: surefireFork;
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file.
+	 * @param release
+	 *            the release.
+	 * @param fork
+	 *            the id of the fork.
+	 * @return the shard file of the given fork and release.
+	 */
+	static File shardFile(final File reportFile, final String release,
+			final String fork) {
+		return new File(reportFile.getPath() + "." + fileName(release)
+				+ ".fork-" + fileName(fork) + SUFFIX);
+	}
+
+	/**
+	 * @param value
+	 *            a release or fork id.
+	 * @return the value with all characters that are not safe in file names
+	 *         replaced.
+	 */
+	private static String fileName(final String value) {
+		return value.replaceAll("[^\\w.\\-]", "_");
+	}
+
+	/**
+	 * Appends the given result to the shard of this fork and the release.
+	 *
+	 * @param build
+	 *            the build to save the result for.
+	 * @param testCase
+	 *            the id of the test case.
+	 * @param result
+	 *            the {@link TestResult}.
+	 */
+	public void append(final String build, final String testCase,
+			final TestResult result) {
+		ResultJournal shard = this.shards.get(build);
+		if (shard == null) {
+			final ResultJournal created = new ResultJournal(this.reportFile,
+					shardFile(this.reportFile, build, this.fork));
+			shard = this.shards.putIfAbsent(build, created);
+			if (shard == null) {
+				shard = created;
+			}
+		}
+		shard.append(build, testCase, result);
+	}
+
+	/**
+	 * Merges all shards of the given report into the report and deletes them.
+	 * Runs under a file lock, so forks merging at the same time do not
+	 * overwrite each other.
+	 *
+	 * @param reportFile
+	 *            the report file.
+	 * @return the number of merged shards.
+	 * @throws IOException
+	 *             if the lock file cannot be written.
+	 */
+	public static synchronized int merge(final File reportFile)
+			throws IOException {
+		final File lockFile = new File(reportFile.getPath() + LOCK_SUFFIX);
+		try (final FileChannel channel = FileChannel.open(lockFile.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			final FileLock lock = channel.lock();
+			try {
+				return mergeClaimed(reportFile, claimShards(reportFile));
+			} finally {
+				lock.release();
+			}
+		}
+	}
+
+	/**
+	 * Claims the shards of the given report. Shards claimed by a merge that
+	 * did not finish are merged again.
+	 *
+	 * @param reportFile
+	 *            the report file.
+	 * @return the claimed shards.
+	 */
+	private static List<File> claimShards(final File reportFile) {
+		final List<File> claimed = new ArrayList<>();
+		for (final File shardFile : findShards(reportFile)) {
+			if (ResultJournal.isClaimed(shardFile)) {
+				claimed.add(shardFile);
+				continue;
+			}
+			final File claimedFile = ResultJournal.claim(shardFile, SUFFIX);
+			if (claimedFile != null) {
+				claimed.add(claimedFile);
+			}
+		}
+		return claimed;
+	}
+
+	/**
+	 * Merges the claimed shards into the report and deletes them.
+	 *
+	 * @param reportFile
+	 *            the report file.
+	 * @param shardFiles
+	 *            the claimed shards.
+	 * @return the number of merged shards.
+	 */
+	private static int mergeClaimed(final File reportFile,
+			final List<File> shardFiles) {
+		if (shardFiles.isEmpty()) {
+			return 0;
+		}
+
+		final Map<String, Map<String, TestResult>> merged = new HashMap<>();
+		for (final File shardFile : shardFiles) {
+			final Map<String, Map<String, TestResult>> shard = new HashMap<>();
+			ResultJournal.replay(shardFile, shard);
+			combine(merged, shard);
+		}
+
+		final ResultMatrix testReport = TestReportParser
+				.readTestReport(reportFile);
+		testReport.setAll(merged);
+		TestReportParser.saveTestReport(testReport, reportFile,
+				RetentionPolicy.getInstance());
+		TestDurations.compact(reportFile);
+		TestAnalytics.update(reportFile, merged);
+
+		for (final File shardFile : shardFiles) {
+			if (!shardFile.delete()) {
+				LOG.log(Level.WARNING, "Could not delete " + shardFile
+						+ ". It is merged again on the next merge.");
+			}
+		}
+		LOG.log(Level.INFO, "merged " + shardFiles.size()
+				+ " result shard(s) into " + reportFile + ".");
+		return shardFiles.size();
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file.
+	 * @return the shard files of the report, sorted by name.
+	 */
+	static File[] findShards(final File reportFile) {
+		final File directory = reportFile.getAbsoluteFile().getParentFile();
+		final String prefix = reportFile.getName() + ".";
+		final File[] shardFiles = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return name.startsWith(prefix) && name.endsWith(SUFFIX);
+			}
+		});
+		if (shardFiles == null) {
+			return new File[0];
+		}
+		Arrays.sort(shardFiles);
+		return shardFiles;
+	}
+
+	/**
+	 * Adds the results of the shard to the merged results.
+	 *
+	 * @param merged
+	 *            the results merged so far.
+	 * @param shard
+	 *            the results of a shard.
+	 */
+	static void combine(final Map<String, Map<String, TestResult>> merged,
+			final Map<String, Map<String, TestResult>> shard) {
+		for (final Entry<String, Map<String, TestResult>> release : shard
+				.entrySet()) {
+			Map<String, TestResult> results = merged.get(release.getKey());
+			if (results == null) {
+				results = new HashMap<>();
+				merged.put(release.getKey(), results);
+			}
+			for (final Entry<String, TestResult> result : release.getValue()
+					.entrySet()) {
+				final TestResult previous = results.get(result.getKey());
+				if (previous == null
+						|| rank(result.getValue()) > rank(previous)) {
+					results.put(result.getKey(), result.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param result
+	 *            a result.
+	 * @return the rank of the result in a conflict, the higher rank wins.
+	 */
+	private static int rank(final TestResult result) {
+		switch (result) {
+		case FAILED:
+			return 2;
+		case SUCCEEDED:
+			return 1;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Merges the shards of the given report into the report.
+	 *
+	 * <pre>
+	 * java -cp ... ch.puzzle.doc.reports.ResultShards target/testresult.csv
+	 * </pre>
+	 *
+	 * @param args
+	 *            the report file, the configured report if omitted.
+	 * @throws IOException
+	 *             if the lock file cannot be written.
+	 */
+	public static void main(final String[] args) throws IOException {
+		final File reportFile = args.length > 0 ? new File(args[0])
+				: TestReportParser.initFile();
+		System.out.println("merged " + merge(reportFile)
+				+ " result shard(s) into " + reportFile + ".");
+	}
+}
@@ -0,0 +1,242 @@
+package ch.puzzle.doc.reports;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which builds of the test report are kept in the report and which
+ * are moved to the archive, see {@link ReportArchive}. Configured in the
+ * doclet.properties:
+ *
+ * <ul>
+ * <li>site.report.retention.keep: the number of newest builds to keep.</li>
+ * <li>site.report.retention.weeklyAfterDays: keep all builds of the given
+ * number of days, and the newest build of each week before.</li>
+ * <li>site.report.retention.tagged: a regular expression of builds that are
+ * always kept, e.g. release versions.</li>
+ * <li>site.report.retention.dateFormat: the date format of the builds
+ * (default: dd.MM.yyyy).</li>
+ * </ul>
+ *
+ * A build is kept if any of the configured rules keeps it. Without 'keep' and
+ * 'weeklyAfterDays', all builds are kept. Builds are ordered by their date,
+ * builds that are not a date are older than all dates and ordered by name.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class RetentionPolicy {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** the default date format of the builds, as used by the selenium tests. */
+	static final String DEFAULT_DATE_FORMAT = "dd.MM.yyyy";
+
+	/** the number of newest builds to keep, 0 if not limited. */
+	private final int keep;
+
+	/** the days all builds are kept, 0 if builds are not thinned out. */
+	private final int weeklyAfterDays;
+
+	/** builds that are always kept, <code>null</code> if none. */
+	private final Pattern tagged;
+
+	/** the date format of the builds. */
+	private final String dateFormat;
+
+	/**
+	 * Holder of the configured policy, initialized on first access by the
+	 * class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** the policy configured in the doclet.properties. */
+		private static final RetentionPolicy INSTANCE = configured();
+	}
+
+	/**
+	 * @param keep
+	 *            the number of newest builds to keep, 0 if not limited.
+	 * @param weeklyAfterDays
+	 *            the days all builds are kept, the newest build of each week
+	 *            is kept before. 0 if builds are not thinned out.
+	 * @param tagged
+	 *            regular expression of builds that are always kept,
+	 *            <code>null</code> if none.
+	 * @param dateFormat
+	 *            the date format of the builds.
+	 */
+	public RetentionPolicy(final int keep, final int weeklyAfterDays,
+			final String tagged, final String dateFormat) {
+		this.keep = keep;
+		this.weeklyAfterDays = weeklyAfterDays;
+		this.tagged = tagged == null || tagged.isEmpty() ? null : Pattern
+				.compile(tagged);
+		this.dateFormat = dateFormat;
+	}
+
+	/**
+	 * @return the policy configured in the doclet.properties.
+	 */
+	public static RetentionPolicy getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @return a new policy with the values of the doclet.properties.
+	 */
+	static RetentionPolicy configured() {
+		final String dateFormat = getPropertyValue("site.report.retention.dateFormat");
+		return new RetentionPolicy(
+				intValue("site.report.retention.keep"),
+				intValue("site.report.retention.weeklyAfterDays"),
+				getPropertyValue("site.report.retention.tagged"),
+				dateFormat == null || dateFormat.isEmpty() ? DEFAULT_DATE_FORMAT
+						: dateFormat);
+	}
+
+	/**
+	 * @param property
+	 *            the property key.
+	 * @return the value of the property, 0 if not set or invalid.
+	 */
+	private static int intValue(final String property) {
+		final String value = getPropertyValue(property);
+		if (value == null || value.trim().isEmpty()) {
+			return 0;
+		}
+		try {
+			return Math.max(0, Integer.parseInt(value.trim()));
+		} catch (final NumberFormatException e) {
+			LOG.log(Level.WARNING, "Invalid value [" + value + "] of "
+					+ property + ". Ignoring it.");
+			return 0;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the policy may archive builds at all.
+	 */
+	public boolean isEnabled() {
+		return this.keep > 0 || this.weeklyAfterDays > 0;
+	}
+
+	/**
+	 * @param builds
+	 *            the builds of the report.
+	 * @return the builds, newest first. Builds that are not a date are older
+	 *         than all dates and ordered by name.
+	 */
+	public List<String> newestFirst(final Collection<String> builds) {
+		return newestFirst(builds, this.dates(builds));
+	}
+
+	/**
+	 * @param builds
+	 *            the builds of the report.
+	 * @return the date of each build that is a date in the configured format.
+	 */
+	private Map<String, Date> dates(final Collection<String> builds) {
+		final Map<String, Date> dates = new HashMap<>();
+		final SimpleDateFormat format = new SimpleDateFormat(this.dateFormat);
+		format.setLenient(false);
+		for (final String build : builds) {
+			try {
+				final Date date = format.parse(build);
+				// e.g. release 1.2.3 is not the 1st of february of the year 3
+				if (format.format(date).equals(build)) {
+					dates.put(build, date);
+				}
+			} catch (final ParseException e) {
+				// not a date, older than all dates.
+			}
+		}
+		return dates;
+	}
+
+	/**
+	 * @param builds
+	 *            the builds of the report.
+	 * @param dates
+	 *            the date of each build that is a date.
+	 * @return the builds, newest first.
+	 */
+	private static List<String> newestFirst(final Collection<String> builds,
+			final Map<String, Date> dates) {
+		final List<String> ordered = new ArrayList<>(builds);
+		Collections.sort(ordered, new Comparator<String>() {
+			@Override
+			public int compare(final String o1, final String o2) {
+				final Date d1 = dates.get(o1);
+				final Date d2 = dates.get(o2);
+				if (d1 != null && d2 != null) {
+					return d2.compareTo(d1);
+				}
+				if (d1 != null || d2 != null) {
+					return d1 != null ? -1 : 1;
+				}
+				return o2.compareTo(o1);
+			}
+		});
+		return ordered;
+	}
+
+	/**
+	 * @param builds
+	 *            the builds of the report.
+	 * @param now
+	 *            the current time in milliseconds.
+	 * @return the builds to move to the archive.
+	 */
+	public Set<String> selectArchived(final Collection<String> builds,
+			final long now) {
+		final Set<String> archived = new HashSet<>();
+		if (!this.isEnabled()) {
+			return archived;
+		}
+
+		final Map<String, Date> dates = this.dates(builds);
+		final List<String> ordered = newestFirst(builds, dates);
+
+		final long recent = now
+				- TimeUnit.DAYS.toMillis(this.weeklyAfterDays);
+		final Set<Integer> weeks = new HashSet<>();
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setFirstDayOfWeek(Calendar.MONDAY);
+		calendar.setMinimalDaysInFirstWeek(4);
+
+		for (int i = 0; i < ordered.size(); i++) {
+			final String build = ordered.get(i);
+			final Date date = dates.get(build);
+			boolean weekly = this.weeklyAfterDays > 0 && date != null;
+			if (weekly && date.getTime() < recent) {
+				calendar.setTime(date);
+				// only the newest build of the week
+				weekly = weeks.add(Integer.valueOf(calendar.getWeekYear() * 100
+						+ calendar.get(Calendar.WEEK_OF_YEAR)));
+			}
+			if (weekly || i < this.keep || this.tagged != null
+					&& this.tagged.matcher(build).matches()) {
+				continue;
+			}
+			archived.add(build);
+		}
+		return archived;
+	}
+}
@@ -0,0 +1,48 @@
+package ch.puzzle.doc.reports;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Merges the result shards into the test report when the test run is
+ * finished, see {@link ResultShards}. Register it as surefire listener:
+ * 
+ * <pre>
+ * &lt;properties&gt;
+ *     &lt;property&gt;
+ *         &lt;name&gt;listener&lt;/name&gt;
+ *         &lt;value&gt;ch.puzzle.doc.reports.ShardMergeListener&lt;/value&gt;
+ *     &lt;/property&gt;
+ * &lt;/properties&gt;
+ * </pre>
+ * 
+ * Every fork merges the shards present when it finishes. To merge all forks
+ * at once, run {@link ResultShards#main(String[])} after the tests instead.
+ * 
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ShardMergeListener extends RunListener {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/**
+	 * @see org.junit.runner.notification.RunListener#testRunFinished(org.junit.runner.Result)
+	 */
+	@Override
+	public void testRunFinished(final Result result) throws Exception {
+		if ("on".equals(getPropertyValue("reports"))) {
+			try {
+				ResultShards.merge(TestReportParser.initFile());
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "Could not merge result shards.", e);
+			}
+		}
+		super.testRunFinished(result);
+	}
+}
@@ -0,0 +1,543 @@
+package ch.puzzle.doc.reports;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Running statistics of every test case: the number of flips between OK and
+ * NOK, the current streak, the last failed build and the pass rate over the
+ * newest builds. The statistics are kept in a file next to the report
+ * (&lt;report&gt;.stats) and updated with the new results only, whenever the
+ * results are compacted. If the file does not exist, it is built once from the
+ * complete history, see {@link ReportArchive#readHistory(File)}.
+ *
+ * The findings are published as apt page, if 'site.report.analytics.page' is
+ * configured in the doclet.properties, e.g. src/site/apt/testanalytics.apt.
+ * Further properties:
+ *
+ * <ul>
+ * <li>site.report.analytics.window: the number of builds of the pass rate
+ * (default: 20, at most 64).</li>
+ * <li>site.report.analytics.flakyFlips: the number of flips in the window
+ * that make a test case flaky (default: 2).</li>
+ * </ul>
+ *
+ * Results of the same build replace each other, results of builds older than
+ * the last build of a test case are ignored. Results 'n/a' are ignored.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class TestAnalytics {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** suffix of the statistics file. */
+	static final String SUFFIX = ".stats";
+
+	/** the default number of builds of the pass rate. */
+	static final int DEFAULT_WINDOW = 20;
+
+	/** the default number of flips in the window of a flaky test case. */
+	static final int DEFAULT_FLAKY_FLIPS = 2;
+
+	/** the statistics of each test case. */
+	private final Map<String, Statistics> statistics = new TreeMap<>();
+
+	/** the number of builds of the pass rate, 1 to 64. */
+	private final int window;
+
+	/**
+	 * The statistics of a single test case. The values of the last build are
+	 * kept apart from the values before, so the last build can be replaced.
+	 */
+	static final class Statistics {
+
+		/** the last build with a result. */
+		String lastBuild;
+
+		/** the result of the last build. */
+		TestResult lastResult;
+
+		/** the result before the last build, <code>null</code> if none. */
+		TestResult resultBefore;
+
+		/** the number of flips before the last build. */
+		int flipsBefore;
+
+		/** the streak before the last build. */
+		int streakBefore;
+
+		/** the last failed build before the last build. */
+		String lastFailedBefore;
+
+		/** the results of the window, newest in bit 0, 1 if succeeded. */
+		long passes;
+
+		/** the number of builds in the window. */
+		int size;
+
+		/**
+		 * @return the number of flips between OK and NOK.
+		 */
+		int getFlips() {
+			return this.flipsBefore
+					+ (this.resultBefore != null
+							&& this.resultBefore != this.lastResult ? 1 : 0);
+		}
+
+		/**
+		 * @return the number of builds in a row with the last result.
+		 */
+		int getStreak() {
+			return this.resultBefore == this.lastResult ? this.streakBefore + 1
+					: 1;
+		}
+
+		/**
+		 * @return the last failed build, <code>null</code> if never failed.
+		 */
+		String getLastFailedBuild() {
+			return this.lastResult == TestResult.FAILED ? this.lastBuild
+					: this.lastFailedBefore;
+		}
+
+		/**
+		 * @return the number of flips in the window.
+		 */
+		int getWindowFlips() {
+			if (this.size < 2) {
+				return 0;
+			}
+			final long mask = (1L << (this.size - 1)) - 1;
+			return Long.bitCount((this.passes ^ (this.passes >>> 1)) & mask);
+		}
+
+		/**
+		 * @return the pass rate in the window, 0 to 1.
+		 */
+		double getPassRate() {
+			return this.size == 0 ? 0 : (double) Long.bitCount(this.passes)
+					/ this.size;
+		}
+
+		/**
+		 * @return <code>true</code> if the test case failed in the last build
+		 *         and succeeded in the build before.
+		 */
+		boolean isNewlyBroken() {
+			return this.lastResult == TestResult.FAILED
+					&& this.resultBefore == TestResult.SUCCEEDED;
+		}
+	}
+
+	/**
+	 * @param window
+	 *            the number of builds of the pass rate, 1 to 64.
+	 */
+	TestAnalytics(final int window) {
+		this.window = Math.max(1, Math.min(Long.SIZE, window));
+	}
+
+	/**
+	 * Updates the statistics of the given report with the new results and
+	 * publishes the findings, as configured in the doclet.properties.
+	 *
+	 * @param reportFile
+	 *            the report file, already containing the new results.
+	 * @param newResults
+	 *            the new results, by build and test case.
+	 */
+	public static void update(final File reportFile,
+			final Map<String, Map<String, TestResult>> newResults) {
+		final File statsFile = new File(reportFile.getPath() + SUFFIX);
+		final RetentionPolicy policy = RetentionPolicy.getInstance();
+		final TestAnalytics analytics = new TestAnalytics(intValue(
+				"site.report.analytics.window", DEFAULT_WINDOW));
+		try {
+			if (statsFile.exists()) {
+				analytics.read(statsFile);
+				analytics.update(newResults, policy);
+			} else {
+				analytics.update(ReportArchive.readHistory(reportFile), policy);
+			}
+			analytics.write(statsFile);
+
+			final String page = getPropertyValue("site.report.analytics.page");
+			if (page != null && !page.isEmpty()) {
+				analytics.writePage(new File(page), intValue(
+						"site.report.analytics.flakyFlips",
+						DEFAULT_FLAKY_FLIPS));
+			}
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not update the test analytics of "
+					+ reportFile + ".", e);
+		}
+	}
+
+	/**
+	 * Reads the statistics of the given report, or builds them from the
+	 * history if they were never written.
+	 *
+	 * @param reportFile
+	 *            the report file.
+	 * @return the statistics.
+	 * @throws IOException
+	 *             if the statistics file cannot be read.
+	 */
+	static TestAnalytics load(final File reportFile) throws IOException {
+		final File statsFile = new File(reportFile.getPath() + SUFFIX);
+		final TestAnalytics analytics = new TestAnalytics(intValue(
+				"site.report.analytics.window", DEFAULT_WINDOW));
+		if (statsFile.exists()) {
+			analytics.read(statsFile);
+		} else {
+			analytics.update(ReportArchive.readHistory(reportFile),
+					RetentionPolicy.getInstance());
+		}
+		return analytics;
+	}
+
+	/**
+	 * @param property
+	 *            the property key.
+	 * @param defaultValue
+	 *            the value if not set or invalid.
+	 * @return the value of the property.
+	 */
+	private static int intValue(final String property, final int defaultValue) {
+		final String value = getPropertyValue(property);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (final NumberFormatException e) {
+			LOG.log(Level.WARNING, "Invalid value [" + value + "] of "
+					+ property + ". Using " + defaultValue + ".");
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Applies the given results, oldest build first.
+	 *
+	 * @param results
+	 *            the results, by build and test case.
+	 * @param policy
+	 *            the policy that orders the builds.
+	 */
+	void update(final Map<String, Map<String, TestResult>> results,
+			final RetentionPolicy policy) {
+		this.update(ResultMatrix.fromMap(results), policy);
+	}
+
+	/**
+	 * Applies the given results, oldest build first.
+	 *
+	 * @param results
+	 *            the results, by build and test case.
+	 * @param policy
+	 *            the policy that orders the builds.
+	 */
+	void update(final ResultMatrix results, final RetentionPolicy policy) {
+		// order the new builds and the last builds of the statistics once
+		final Set<String> builds = new HashSet<>(results.getReleases());
+		for (final Statistics stats : this.statistics.values()) {
+			builds.add(stats.lastBuild);
+		}
+		final List<String> ordered = policy.newestFirst(builds);
+		Collections.reverse(ordered);
+		final Map<String, Integer> age = new HashMap<>();
+		for (int i = 0; i < ordered.size(); i++) {
+			age.put(ordered.get(i), Integer.valueOf(i));
+		}
+
+		final Set<String> releases = new HashSet<>(results.getReleases());
+		for (final String build : ordered) {
+			if (!releases.contains(build)) {
+				continue;
+			}
+			for (final String testCase : results.getTestCases()) {
+				final TestResult result = results.get(build, testCase);
+				if (result != null) {
+					this.apply(build, testCase, result, age);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param build
+	 *            the build.
+	 * @param testCase
+	 *            the id of the test case.
+	 * @param result
+	 *            the result.
+	 * @param age
+	 *            the position of each build, oldest first.
+	 */
+	private void apply(final String build, final String testCase,
+			final TestResult result, final Map<String, Integer> age) {
+		if (result != TestResult.SUCCEEDED && result != TestResult.FAILED) {
+			return;
+		}
+		Statistics stats = this.statistics.get(testCase);
+		if (stats == null) {
+			stats = new Statistics();
+			this.statistics.put(testCase, stats);
+		} else if (build.equals(stats.lastBuild)) {
+			// replace the result of the last build
+			stats.lastResult = result;
+			stats.passes = (stats.passes & ~1L)
+					| (result == TestResult.SUCCEEDED ? 1L : 0L);
+			return;
+		} else if (age.get(build).intValue() < age.get(stats.lastBuild)
+				.intValue()) {
+			// older than the statistics
+			return;
+		} else {
+			stats.flipsBefore = stats.getFlips();
+			stats.streakBefore = stats.getStreak();
+			stats.lastFailedBefore = stats.getLastFailedBuild();
+			stats.resultBefore = stats.lastResult;
+		}
+		stats.lastBuild = build;
+		stats.lastResult = result;
+		stats.passes = (stats.passes << 1)
+				| (result == TestResult.SUCCEEDED ? 1L : 0L);
+		if (this.window < Long.SIZE) {
+			stats.passes &= (1L << this.window) - 1;
+		}
+		stats.size = Math.min(this.window, stats.size + 1);
+	}
+
+	/**
+	 * @return the statistics of each test case.
+	 */
+	Map<String, Statistics> getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * Reads the statistics file, one test case per line.
+	 *
+	 * @param statsFile
+	 *            the file to read.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	void read(final File statsFile) throws IOException {
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(statsFile),
+						StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] fields = line.split("\t", -1);
+				if (fields.length != 9) {
+					LOG.log(Level.WARNING, "Invalid statistics [" + line
+							+ "] in " + statsFile + ". skipping.");
+					continue;
+				}
+				try {
+					final Statistics stats = new Statistics();
+					stats.lastBuild = ResultJournal.unescape(fields[1]);
+					stats.lastResult = TestResult.getInstanceByValue(fields[2]);
+					stats.resultBefore = fields[3].isEmpty() ? null
+							: TestResult.getInstanceByValue(fields[3]);
+					stats.flipsBefore = Integer.parseInt(fields[4]);
+					stats.streakBefore = Integer.parseInt(fields[5]);
+					stats.lastFailedBefore = fields[6].isEmpty() ? null
+							: ResultJournal.unescape(fields[6]);
+					stats.passes = Long.parseLong(fields[7], 16);
+					stats.size = Math.min(this.window,
+							Integer.parseInt(fields[8]));
+					if (this.window < Long.SIZE) {
+						stats.passes &= (1L << this.window) - 1;
+					}
+					this.statistics.put(ResultJournal.unescape(fields[0]),
+							stats);
+				} catch (final IllegalArgumentException e) {
+					LOG.log(Level.WARNING, "Invalid statistics [" + line
+							+ "] in " + statsFile + ". skipping.");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the statistics file, one test case per line.
+	 *
+	 * @param statsFile
+	 *            the file to write.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	void write(final File statsFile) throws IOException {
+		final File tempFile = new File(statsFile.getPath() + ".tmp");
+		try (final Writer writer = new OutputStreamWriter(
+				new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+			for (final Entry<String, Statistics> entry : this.statistics
+					.entrySet()) {
+				final Statistics stats = entry.getValue();
+				writer.write(ResultJournal.escape(entry.getKey())
+						+ '\t'
+						+ ResultJournal.escape(stats.lastBuild)
+						+ '\t'
+						+ stats.lastResult.getText()
+						+ '\t'
+						+ (stats.resultBefore == null ? "" : stats.resultBefore
+								.getText())
+						+ '\t'
+						+ stats.flipsBefore
+						+ '\t'
+						+ stats.streakBefore
+						+ '\t'
+						+ (stats.lastFailedBefore == null ? "" : ResultJournal
+								.escape(stats.lastFailedBefore)) + '\t'
+						+ Long.toHexString(stats.passes) + '\t' + stats.size
+						+ '\n');
+			}
+		}
+		try {
+			Files.move(tempFile.toPath(), statsFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), statsFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Writes the findings as apt page: the newly broken and the flaky test
+	 * cases and the statistics of all test cases.
+	 *
+	 * @param page
+	 *            the apt file to write.
+	 * @param flakyFlips
+	 *            the number of flips in the window of a flaky test case.
+	 * @throws IOException
+	 *             if the page cannot be written.
+	 */
+	void writePage(final File page, final int flakyFlips) throws IOException {
+		final List<String> newlyBroken = new ArrayList<>();
+		final List<String> flaky = new ArrayList<>();
+		for (final Entry<String, Statistics> entry : this.statistics
+				.entrySet()) {
+			if (entry.getValue().isNewlyBroken()) {
+				newlyBroken.add(entry.getKey());
+			}
+			if (entry.getValue().getWindowFlips() >= flakyFlips) {
+				flaky.add(entry.getKey());
+			}
+		}
+		Collections.sort(flaky, new Comparator<String>() {
+			@Override
+			public int compare(final String o1, final String o2) {
+				return TestAnalytics.this.statistics.get(o2).getWindowFlips()
+						- TestAnalytics.this.statistics.get(o1)
+								.getWindowFlips();
+			}
+		});
+
+		final StringBuilder apt = new StringBuilder();
+		apt.append("            ------\n")
+				.append("            Test Analytics\n")
+				.append("            ------\n")
+				.append("            ------\n")
+				.append("             ")
+				.append(new SimpleDateFormat("dd.MM.yyyy").format(new Date()))
+				.append("\n\nTest Analytics\n\n");
+
+		apt.append("* Newly broken\n\n");
+		if (newlyBroken.isEmpty()) {
+			apt.append("  No test case failed after a success.\n\n");
+		} else {
+			for (final String testCase : newlyBroken) {
+				apt.append("  * ").append(escape(testCase)).append(": failed in ")
+						.append(escape(this.statistics.get(testCase).lastBuild))
+						.append("\n\n");
+			}
+		}
+
+		apt.append("* Flaky\n\n");
+		if (flaky.isEmpty()) {
+			apt.append("  No test case flipped ").append(flakyFlips)
+					.append(" times or more in the last ").append(this.window)
+					.append(" builds.\n\n");
+		} else {
+			this.appendTable(apt, flaky);
+		}
+
+		apt.append("* All test cases\n\n");
+		this.appendTable(apt, new ArrayList<>(this.statistics.keySet()));
+
+		page.getAbsoluteFile().getParentFile().mkdirs();
+		try (final Writer writer = new OutputStreamWriter(
+				new FileOutputStream(page), StandardCharsets.UTF_8)) {
+			writer.write(apt.toString());
+		}
+	}
+
+	/**
+	 * @param apt
+	 *            the page to append the table to.
+	 * @param testCases
+	 *            the test cases of the table.
+	 */
+	private void appendTable(final StringBuilder apt,
+			final List<String> testCases) {
+		final String separator = "*----------+------+------+--------+------+----------+\n";
+		apt.append(separator)
+				.append("|| Test case || Pass rate || Flips in window || Flips || Streak || Last failed |\n")
+				.append(separator);
+		for (final String testCase : testCases) {
+			final Statistics stats = this.statistics.get(testCase);
+			final String lastFailed = stats.getLastFailedBuild();
+			apt.append("| ").append(escape(testCase)).append(" | ")
+					.append(Math.round(stats.getPassRate() * 100))
+					.append("% | ").append(stats.getWindowFlips())
+					.append(" | ").append(stats.getFlips()).append(" | ")
+					.append(stats.getStreak()).append(' ')
+					.append(stats.lastResult.getText()).append(" | ")
+					.append(lastFailed == null ? "-" : escape(lastFailed))
+					.append(" |\n").append(separator);
+		}
+		apt.append("\n");
+	}
+
+	/**
+	 * @param text
+	 *            the text to print.
+	 * @return the text with the special characters of apt escaped.
+	 */
+	static String escape(final String text) {
+		return text.replaceAll("([\\\\|<>{}\\[\\]*+~=])", "\\\\$1");
+	}
+}
@@ -0,0 +1,416 @@
+package ch.puzzle.doc.reports;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import au.com.bytecode.opencsv.CSVWriter;
+
+/**
+ * Durations of the test cases, recorded by the {@link ReportWatcher} next to
+ * the test results. Every duration is appended to a journal next to the
+ * report (one per fork in forked test runs). When the results are compacted,
+ * the journals are reduced to the newest builds and two reports are written:
+ *
+ * <ul>
+ * <li>&lt;report&gt;.durations.csv: p50, p95 and max of each test case over
+ * the newest builds, in milliseconds.</li>
+ * <li>&lt;report&gt;.totals.csv: the number of test cases and the total
+ * duration of each build, in milliseconds.</li>
+ * </ul>
+ *
+ * The number of builds is configured as 'site.report.durations.window' in the
+ * doclet.properties (default: 20). If a test case runs more than once in a
+ * build, the last duration counts.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class TestDurations {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** suffix of the duration journals. */
+	static final String SUFFIX = ".durations";
+
+	/** suffix of the report with the percentiles of each test case. */
+	static final String SUMMARY_SUFFIX = ".durations.csv";
+
+	/** suffix of the report with the totals of each build. */
+	static final String TOTALS_SUFFIX = ".totals.csv";
+
+	/** the default number of builds of the summary. */
+	static final int DEFAULT_WINDOW = 20;
+
+	/** the journal of this JVM. */
+	private final File journalFile;
+
+	/**
+	 * Holder of the singleton instance for the configured report, initialized
+	 * on first access by the class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** durations of the configured test report. */
+		private static final TestDurations INSTANCE = new TestDurations(
+				journalFile(TestReportParser.initFile(), ResultShards.forkId()));
+	}
+
+	/**
+	 * @param journalFile
+	 *            the journal to append the durations to.
+	 */
+	TestDurations(final File journalFile) {
+		this.journalFile = journalFile;
+	}
+
+	/**
+	 * @return the durations of the configured test report.
+	 */
+	public static TestDurations getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file.
+	 * @param fork
+	 *            the id of the fork, <code>null</code> if not forked.
+	 * @return the duration journal of the report and fork.
+	 */
+	static File journalFile(final File reportFile, final String fork) {
+		return new File(reportFile.getPath()
+				+ (fork == null ? "" : ".fork-"
+						+ fork.replaceAll("[^\\w.\\-]", "_")) + SUFFIX);
+	}
+
+	/**
+	 * Appends the duration of a test case to the journal.
+	 *
+	 * @param build
+	 *            the build the test ran for.
+	 * @param testCase
+	 *            the id of the test case.
+	 * @param nanos
+	 *            the duration in nanoseconds.
+	 */
+	public synchronized void record(final String build, final String testCase,
+			final long nanos) {
+		final String record = ResultJournal.escape(build) + '\t'
+				+ ResultJournal.escape(testCase) + '\t' + nanos + '\n';
+		try {
+			ResultJournal.append(this.journalFile, record);
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not append test duration to "
+					+ this.journalFile + ".", e);
+		}
+	}
+
+	/**
+	 * Compacts the duration journals of the report with the configured window
+	 * and writes the duration reports.
+	 *
+	 * @param reportFile
+	 *            the report file.
+	 */
+	public static void compact(final File reportFile) {
+		compact(reportFile, window(), RetentionPolicy.getInstance());
+	}
+
+	/**
+	 * @return the configured number of builds of the summary.
+	 */
+	private static int window() {
+		final String value = getPropertyValue("site.report.durations.window");
+		if (value == null || value.trim().isEmpty()) {
+			return DEFAULT_WINDOW;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(value.trim()));
+		} catch (final NumberFormatException e) {
+			LOG.log(Level.WARNING, "Invalid value [" + value
+					+ "] of site.report.durations.window. Using "
+					+ DEFAULT_WINDOW + ".");
+			return DEFAULT_WINDOW;
+		}
+	}
+
+	/**
+	 * Merges the duration journals of all forks, keeps the newest builds only
+	 * and writes the duration reports. The journals of the forks are claimed
+	 * before they are read, see {@link ResultJournal#claim(File, String)}, so
+	 * durations the forks append meanwhile are kept for the next compaction.
+	 * Call it after the test run or under the lock of
+	 * {@link ResultShards#merge(File)}.
+	 *
+	 * @param reportFile
+	 *            the report file.
+	 * @param window
+	 *            the number of builds to keep.
+	 * @param policy
+	 *            the policy that orders the builds.
+	 */
+	static synchronized void compact(final File reportFile, final int window,
+			final RetentionPolicy policy) {
+		final File journalFile = journalFile(reportFile, null);
+		final List<File> journals = new ArrayList<>();
+		for (final File journal : findJournals(reportFile)) {
+			if (journal.getAbsoluteFile().equals(journalFile.getAbsoluteFile())
+					|| ResultJournal.isClaimed(journal)) {
+				journals.add(journal);
+			} else {
+				final File claimed = ResultJournal.claim(journal, SUFFIX);
+				if (claimed != null) {
+					journals.add(claimed);
+				}
+			}
+		}
+		if (journals.isEmpty()) {
+			return;
+		}
+		final Map<String, Map<String, Long>> durations = new HashMap<>();
+		for (final File journal : journals) {
+			replay(journal, durations);
+		}
+		final List<String> builds = policy.newestFirst(durations.keySet());
+		if (builds.size() > window) {
+			for (final String build : builds.subList(window, builds.size())) {
+				durations.remove(build);
+			}
+			builds.subList(window, builds.size()).clear();
+		}
+
+		try {
+			writeJournal(durations, journalFile);
+			writeSummary(durations,
+					new File(reportFile.getPath() + SUMMARY_SUFFIX));
+			writeTotals(builds, durations,
+					new File(reportFile.getPath() + TOTALS_SUFFIX));
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not write test durations of "
+					+ reportFile + ".", e);
+			return;
+		}
+		for (final File journal : journals) {
+			if (!journal.getAbsoluteFile().equals(journalFile.getAbsoluteFile())
+					&& !journal.delete()) {
+				LOG.log(Level.WARNING, "Could not delete " + journal
+						+ ". It is applied again on the next compaction.");
+			}
+		}
+	}
+
+	/**
+	 * @param reportFile
+	 *            the report file.
+	 * @return the duration journals of all forks, sorted by name.
+	 */
+	static File[] findJournals(final File reportFile) {
+		final File directory = reportFile.getAbsoluteFile().getParentFile();
+		final String prefix = reportFile.getName() + ".";
+		final File[] journals = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return name.startsWith(prefix) && name.endsWith(SUFFIX);
+			}
+		});
+		if (journals == null) {
+			return new File[0];
+		}
+		Arrays.sort(journals);
+		return journals;
+	}
+
+	/**
+	 * Reads the durations of the given journal. Later lines override earlier
+	 * lines, an incomplete last line is ignored.
+	 *
+	 * @param journalFile
+	 *            the journal to read.
+	 * @param durations
+	 *            the durations in nanoseconds, by build and test case.
+	 */
+	static void replay(final File journalFile,
+			final Map<String, Map<String, Long>> durations) {
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(journalFile),
+						StandardCharsets.UTF_8))) {
+			final StringBuilder line = new StringBuilder();
+			int c;
+			while ((c = reader.read()) != -1) {
+				if (c != '\n') {
+					line.append((char) c);
+					continue;
+				}
+				final String[] fields = line.toString().split("\t", -1);
+				line.setLength(0);
+				if (fields.length != 3) {
+					continue;
+				}
+				try {
+					final Long nanos = Long.valueOf(fields[2]);
+					final String build = ResultJournal.unescape(fields[0]);
+					if (durations.get(build) == null) {
+						durations.put(build, new HashMap<String, Long>());
+					}
+					durations.get(build).put(
+							ResultJournal.unescape(fields[1]), nanos);
+				} catch (final NumberFormatException e) {
+					LOG.log(Level.WARNING, "Invalid duration [" + fields[2]
+							+ "] in " + journalFile + ". skipping.");
+				}
+			}
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not read test durations "
+					+ journalFile + ".", e);
+		}
+	}
+
+	/**
+	 * Rewrites the journal with one line per build and test case.
+	 *
+	 * @param durations
+	 *            the durations in nanoseconds, by build and test case.
+	 * @param journalFile
+	 *            the journal file.
+	 * @throws IOException
+	 *             if the journal cannot be written.
+	 */
+	private static void writeJournal(
+			final Map<String, Map<String, Long>> durations,
+			final File journalFile) throws IOException {
+		final File tempFile = new File(journalFile.getPath() + ".tmp");
+		try (final Writer writer = new OutputStreamWriter(
+				new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+			for (final Entry<String, Map<String, Long>> build : new TreeMap<>(
+					durations).entrySet()) {
+				for (final Entry<String, Long> duration : new TreeMap<>(
+						build.getValue()).entrySet()) {
+					writer.write(ResultJournal.escape(build.getKey()) + '\t'
+							+ ResultJournal.escape(duration.getKey()) + '\t'
+							+ duration.getValue() + '\n');
+				}
+			}
+		}
+		try {
+			Files.move(tempFile.toPath(), journalFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), journalFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Writes p50, p95 and max of each test case.
+	 *
+	 * @param durations
+	 *            the durations in nanoseconds, by build and test case.
+	 * @param file
+	 *            the file to write.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	private static void writeSummary(
+			final Map<String, Map<String, Long>> durations, final File file)
+			throws IOException {
+		final Map<String, List<Long>> byTestCase = new TreeMap<>();
+		for (final Map<String, Long> build : durations.values()) {
+			for (final Entry<String, Long> duration : build.entrySet()) {
+				if (!byTestCase.containsKey(duration.getKey())) {
+					byTestCase.put(duration.getKey(), new ArrayList<Long>());
+				}
+				byTestCase.get(duration.getKey()).add(duration.getValue());
+			}
+		}
+
+		try (final CSVWriter writer = new CSVWriter(new FileWriter(file))) {
+			writer.writeNext(new String[] { "test case", "builds", "p50 ms",
+					"p95 ms", "max ms" });
+			for (final Entry<String, List<Long>> testCase : byTestCase
+					.entrySet()) {
+				final List<Long> sorted = testCase.getValue();
+				Collections.sort(sorted);
+				writer.writeNext(new String[] { testCase.getKey(),
+						String.valueOf(sorted.size()),
+						millis(percentile(sorted, 50)),
+						millis(percentile(sorted, 95)),
+						millis(sorted.get(sorted.size() - 1).longValue()) });
+			}
+		}
+	}
+
+	/**
+	 * Writes the number of test cases and the total duration of each build.
+	 *
+	 * @param builds
+	 *            the builds, newest first.
+	 * @param durations
+	 *            the durations in nanoseconds, by build and test case.
+	 * @param file
+	 *            the file to write.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	private static void writeTotals(final List<String> builds,
+			final Map<String, Map<String, Long>> durations, final File file)
+			throws IOException {
+		try (final CSVWriter writer = new CSVWriter(new FileWriter(file))) {
+			writer.writeNext(new String[] { "build", "test cases", "total ms" });
+			for (final String build : builds) {
+				long total = 0;
+				for (final Long nanos : durations.get(build).values()) {
+					total += nanos.longValue();
+				}
+				writer.writeNext(new String[] { build,
+						String.valueOf(durations.get(build).size()),
+						millis(total) });
+			}
+		}
+	}
+
+	/**
+	 * @param sorted
+	 *            the durations, sorted ascending. Not empty.
+	 * @param percentile
+	 *            the percentile, 1 to 100.
+	 * @return the duration of the given percentile (nearest rank).
+	 */
+	static long percentile(final List<Long> sorted, final int percentile) {
+		final int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+		return sorted.get(Math.max(0, rank - 1)).longValue();
+	}
+
+	/**
+	 * @param nanos
+	 *            a duration in nanoseconds.
+	 * @return the duration in milliseconds.
+	 */
+	private static String millis(final long nanos) {
+		return String.valueOf(TimeUnit.NANOSECONDS.toMillis(nanos));
+	}
+}
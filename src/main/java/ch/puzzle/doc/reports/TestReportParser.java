@@ -4,7 +4,11 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,6 +36,9 @@ public class TestReportParser {
 
 	private static final Logger LOG = Logger.getAnonymousLogger();
 
+	/** suffix of the temporary file the report is written to first. */
+	private static final String TEMP_SUFFIX = ".tmp";
+
 	/**
 	 * Saves the given testReport Data to the Test Report File.
 	 * 
@@ -40,6 +47,22 @@ public class TestReportParser {
 	 */
 	static void saveTestReport(
 			final Map<String, Map<String, TestResult>> testReport) {
+		saveTestReport(testReport, initFile());
+	}
+
+	/**
+	 * Saves the given testReport Data to the given file. The report is written
+	 * to a temporary file first and moved over the existing report, so a crash
+	 * while writing never leaves a half written report.
+	 * 
+	 * @param testReport
+	 *            the inmemory testreport to persist.
+	 * @param file
+	 *            the report file.
+	 */
+	static void saveTestReport(
+			final Map<String, Map<String, TestResult>> testReport,
+			final File file) {
 
 		final List<String> releases = new ArrayList<>(testReport.keySet());
 		Collections.sort(releases);
@@ -55,15 +78,14 @@ public class TestReportParser {
 		Collections.sort(testCases);
 
 		// init csvwriter
-		final File file = initFile();
 		if (file == null) {
 			LOG.log(Level.WARNING,
 					"Could not create output file for testreport. aborting...");
 			return;
 		}
 
-		try (final CSVWriter writer = new CSVWriter(new FileWriter(file))) {
-			// final File file = initFile();
+		final File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+		try (final CSVWriter writer = new CSVWriter(new FileWriter(tempFile))) {
 
 			// print header row
 			final String[] headerRow = new String[releases.size() + 1];
@@ -94,6 +116,7 @@ public class TestReportParser {
 			}
 
 			writer.close();
+			moveReplacing(tempFile, file);
 
 			LOG.log(Level.INFO, "successfully written testreport file to: "
 					+ file.getAbsolutePath());
@@ -104,64 +127,237 @@ public class TestReportParser {
 
 	}
 
+	/**
+	 * Saves the given testReport Data to the given file. Builds that the given
+	 * policy does not keep are moved to a new archive segment first, see
+	 * {@link ReportArchive}. If the segment cannot be written, all builds are
+	 * kept in the report.
+	 * 
+	 * @param testReport
+	 *            the inmemory testreport to persist.
+	 * @param file
+	 *            the report file.
+	 * @param policy
+	 *            the retention policy.
+	 */
+	static void saveTestReport(
+			final Map<String, Map<String, TestResult>> testReport,
+			final File file, final RetentionPolicy policy) {
+		saveTestReport(ResultMatrix.fromMap(testReport), file, policy);
+	}
+
+	/**
+	 * Saves the given testReport Data to the given file. Builds that the given
+	 * policy does not keep are moved to a new archive segment first and
+	 * removed from the matrix, see {@link ReportArchive}. If the segment
+	 * cannot be written, all builds are kept in the report. The report is
+	 * written to a temporary file first and moved over the existing report.
+	 * 
+	 * @param testReport
+	 *            the inmemory testreport to persist.
+	 * @param file
+	 *            the report file.
+	 * @param policy
+	 *            the retention policy.
+	 */
+	static void saveTestReport(final ResultMatrix testReport, final File file,
+			final RetentionPolicy policy) {
+		if (file == null) {
+			LOG.log(Level.WARNING,
+					"Could not create output file for testreport. aborting...");
+			return;
+		}
+		if (policy.isEnabled()) {
+			try {
+				ReportArchive.archive(file, testReport, policy,
+						System.currentTimeMillis());
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING,
+						"Could not archive old builds. Keeping them in the testreport.",
+						e);
+			}
+		}
+
+		final File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+		try {
+			testReport.writeCsv(tempFile);
+			moveReplacing(tempFile, file);
+			LOG.log(Level.INFO, "successfully written testreport file to: "
+					+ file.getAbsolutePath());
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Resulting Testreport cannot be saved.", e);
+		}
+	}
+
+	/**
+	 * Moves the given file over the target, atomically if the file system
+	 * supports it.
+	 * 
+	 * @param source
+	 *            the file to move.
+	 * @param target
+	 *            the file to replace.
+	 * @throws IOException
+	 *             if the file cannot be moved.
+	 */
+	private static void moveReplacing(final File source, final File target)
+			throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
 	/**
 	 * Searches for a Test report File and reads it.
 	 * 
-	 * @return the parsed testresult.csv as a map
+	 * @return the parsed testresult.csv as a map, with the results of the
+	 *         journal applied.
 	 */
 	public static Map<String, Map<String, TestResult>> parseExistingTestReport() {
+		return parseExistingTestReport(initFile());
+	}
+
+	/**
+	 * Reads the given test report file into a {@link ResultMatrix} and applies
+	 * the results of its journal that were not compacted into the report yet.
+	 * Unlike {@link #parseExistingTestReport(File)}, the results are kept in
+	 * the compact representation, use it to rewrite the whole report.
+	 * 
+	 * @param file
+	 *            the report file.
+	 * @return the report, with the results of the journal applied.
+	 */
+	static ResultMatrix readTestReport(final File file) {
+		final ResultMatrix testReport = new ResultMatrix();
+		if (file != null) {
+			try {
+				testReport.readCsvRows(file);
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "Could not read existing testreport "
+						+ file + ". Using the rows read so far.", e);
+			}
+			ResultJournal.replay(ResultJournal.journalFile(file), testReport);
+		}
+		return testReport;
+	}
+
+	/**
+	 * Reads the given test report file and applies the results of its journal
+	 * that were not compacted into the report yet.
+	 * 
+	 * @param file
+	 *            the report file.
+	 * @return the parsed testresult.csv as a map, with the results of the
+	 *         journal applied.
+	 */
+	static Map<String, Map<String, TestResult>> parseExistingTestReport(
+			final File file) {
 		final Map<String, Map<String, TestResult>> testReport = new HashMap<>();
-		final List<String> releases = new ArrayList<>();
 
-		try {
+		if (file != null) {
+			try {
+				parseTestReport(file, new TestReportRowHandler() {
 
-			final File file = initFile();
+					/** the releases, in column order. */
+					private String[] releases;
 
-			try (final CSVReader reader = new CSVReader(new FileReader(file))) {
-				final List<String[]> allRows = reader.readAll();
+					/** the results of each release, created on first use. */
+					private List<Map<String, TestResult>> columns;
 
-				if (!allRows.isEmpty()) {
-					// init releases
-					for (int i = 1; i < allRows.get(0).length; i++) {
-						releases.add(allRows.get(0)[i]);
+					@Override
+					public void releases(final String[] releaseNames) {
+						this.releases = releaseNames.clone();
+						this.columns = new ArrayList<>(Collections
+								.<Map<String, TestResult>> nCopies(
+										releaseNames.length, null));
 					}
 
-					for (int i = 1; i < allRows.size(); i++) {
-						// parse result
-						final String[] currentRow = allRows.get(i);
-						if (currentRow.length < (releases.size() + 1)) {
-							LOG.log(Level.WARNING,
-									"Invalid format. Aborting...");
-							break;
-						}
-						final String testCase = currentRow[0];
-						// parse through columns
-						for (int j = 1; j < currentRow.length; j++) {
-							final String release = releases.get(j - 1);
-							final TestResult testResult = TestResult
-									.getInstanceByValue(currentRow[j]);
-
-							if (testReport.get(release) == null) {
-								testReport.put(release,
-										new HashMap<String, TestResult>());
+					@Override
+					public void row(final String testCase,
+							final TestResult[] results) {
+						for (int i = 0; i < results.length; i++) {
+							if (results[i] == null) {
+								continue;
 							}
-
-							testReport.get(release).put(testCase, testResult);
+							Map<String, TestResult> column = this.columns.get(i);
+							if (column == null) {
+								column = new HashMap<>();
+								this.columns.set(i, column);
+								testReport.put(this.releases[i], column);
+							}
+							column.put(testCase, results[i]);
 						}
 					}
-				}
-				reader.close();
+				});
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "Could not read existing testreport "
+						+ file + ". Using the rows read so far.", e);
 			}
-
-		} catch (final Exception e) {
-			LOG.log(Level.WARNING,
-					"Could not parse existing testreport. File could not be read.",
-					e);
+			ResultJournal.replay(ResultJournal.journalFile(file), testReport);
 		}
-
 		return testReport;
 	}
 
+	/**
+	 * Reads the given test report one row at a time and passes the rows to the
+	 * given handler. Only one row is kept in memory. Invalid rows are skipped
+	 * and reported to the handler, so one broken row does not hide the rest of
+	 * the report. The journal of the report is not applied.
+	 * 
+	 * @param file
+	 *            the report file.
+	 * @param handler
+	 *            the handler to pass the rows to.
+	 * @throws IOException
+	 *             if the file cannot be read.
+	 */
+	public static void parseTestReport(final File file,
+			final TestReportRowHandler handler) throws IOException {
+		try (final CSVReader reader = new CSVReader(new FileReader(file))) {
+			final String[] header = reader.readNext();
+			if (header == null) {
+				return;
+			}
+			final String[] releases = Arrays.copyOfRange(header, 1,
+					header.length);
+			handler.releases(releases);
+
+			final TestResult[] results = new TestResult[releases.length];
+			int rowNumber = 1;
+			String[] row;
+			while ((row = reader.readNext()) != null) {
+				rowNumber++;
+				if (row.length == 1 && row[0].isEmpty()) {
+					// empty line
+					continue;
+				}
+				if (row.length != header.length) {
+					handler.malformed(rowNumber, "test case " + row[0]
+							+ " has " + (row.length - 1)
+							+ " result(s) but the header has "
+							+ releases.length + " release(s). skipping.");
+					continue;
+				}
+				for (int i = 0; i < releases.length; i++) {
+					try {
+						results[i] = TestResult.getInstanceByValue(row[i + 1]);
+					} catch (final IllegalArgumentException e) {
+						results[i] = null;
+						handler.malformed(rowNumber, "test case " + row[0]
+								+ ", release " + releases[i]
+								+ ": unsupported value [" + row[i + 1] + "].");
+					}
+				}
+				handler.row(row[0], results);
+			}
+		}
+	}
+
 	/**
 	 * @return the existing file with the testreports or a new empty file, if it
 	 *         doesn't exist yet.
@@ -170,7 +366,7 @@ public class TestReportParser {
 	 *             thrown if the file did not exist yet but cannot be created
 	 *             either.
 	 */
-	private static File initFile() {
+	static File initFile() {
 		File file = null;
 		final String testreportfile = DocletPropertyUtils
 				.getPropertyValue("site.report.testreport");
@@ -0,0 +1,54 @@
+package ch.puzzle.doc.reports;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives the rows of a test report one at a time, see
+ * {@link TestReportParser#parseTestReport(java.io.File, TestReportRowHandler)}
+ * . Handlers keep only what they need, e.g. a subset of the releases or test
+ * cases.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public abstract class TestReportRowHandler {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/**
+	 * Called once with the header row, before the first test case.
+	 *
+	 * @param releases
+	 *            the releases of the report, in column order.
+	 */
+	public void releases(final String[] releases) {
+		// nothing to do by default
+	}
+
+	/**
+	 * Called for every valid row of the report. The arrays are reused for the
+	 * next row, copy them to keep them.
+	 *
+	 * @param testCase
+	 *            the id of the test case.
+	 * @param results
+	 *            the results, indexed like the releases. <code>null</code> if
+	 *            the cell has an invalid value.
+	 */
+	public abstract void row(String testCase, TestResult[] results);
+
+	/**
+	 * Called for every invalid row or cell. Invalid rows are skipped, invalid
+	 * cells are passed to {@link #row(String, TestResult[])} as
+	 * <code>null</code>. Logs a warning by default.
+	 *
+	 * @param row
+	 *            the number of the row, starting with 1 for the header row.
+	 * @param message
+	 *            what is wrong with the row or cell.
+	 */
+	public void malformed(final int row, final String message) {
+		LOG.log(Level.WARNING, "Invalid test report row " + row + ": "
+				+ message);
+	}
+}
@@ -3,8 +3,16 @@ package ch.puzzle.doc.reports;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Collects the test results of a test run. Results may be recorded from many
+ * threads at once, e.g. with parallel surefire execution.
+ * 
+ * The {@link ReportWatcher} does not use it, it appends the results to the
+ * {@link ResultJournal} instead.
+ * 
  * @author Brigitte Hulliger, <hulliger@puzzle.ch>
  * 
  */
@@ -12,12 +20,10 @@ public class TestResultSaver {
 
 	/**
 	 * The Testresult matrix as a map where the key of the outer map is the
-	 * Release, the Key of the inner map is the id of the testcase.
+	 * Release, the Key of the inner map is the id of the testcase. Concurrent
+	 * maps, so test threads can record results without a global lock.
 	 */
-	private final Map<String, Map<String, TestResult>> result = new HashMap<>();
-
-	/** singleton instance of the testresult saver. */
-	private static TestResultSaver instance;
+	private final ConcurrentMap<String, ConcurrentMap<String, TestResult>> result = new ConcurrentHashMap<>();
 
 	/**
 	 * Constructor.
@@ -26,14 +32,21 @@ public class TestResultSaver {
 		// do nothing
 	}
 
+	/**
+	 * Holder of the singleton instance, initialized on first access by the
+	 * class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** singleton instance of the testresult saver. */
+		private static final TestResultSaver INSTANCE = new TestResultSaver();
+	}
+
 	/**
 	 * @return singleton instance of a {@link TestResultSaver}
 	 */
 	public static TestResultSaver getInstance() {
-		if (instance == null) {
-			instance = new TestResultSaver();
-		}
-		return instance;
+		return InstanceHolder.INSTANCE;
 	}
 
 	/**
@@ -48,10 +61,15 @@ public class TestResultSaver {
 	 */
 	private void setResult(final String build, final String testCase,
 			final TestResult result) {
-		if (this.result.get(build) == null) {
-			this.result.put(build, new HashMap<String, TestResult>());
+		ConcurrentMap<String, TestResult> buildResults = this.result.get(build);
+		if (buildResults == null) {
+			final ConcurrentMap<String, TestResult> created = new ConcurrentHashMap<>();
+			buildResults = this.result.putIfAbsent(build, created);
+			if (buildResults == null) {
+				buildResults = created;
+			}
 		}
-		this.result.get(build).put(testCase, result);
+		buildResults.put(testCase, result);
 	}
 
 	/**
@@ -80,6 +98,22 @@ public class TestResultSaver {
 		this.setResult(build, testCase, TestResult.SUCCEEDED);
 	}
 
+	/**
+	 * Copies the results recorded so far. Results recorded while copying may or
+	 * may not be part of the copy, but the copy is never modified afterwards.
+	 * 
+	 * @return the recorded results, by build and test case.
+	 */
+	public Map<String, Map<String, TestResult>> snapshot() {
+		final Map<String, Map<String, TestResult>> snapshot = new HashMap<>();
+		for (final Entry<String, ConcurrentMap<String, TestResult>> entry : this.result
+				.entrySet()) {
+			snapshot.put(entry.getKey(),
+					new HashMap<String, TestResult>(entry.getValue()));
+		}
+		return snapshot;
+	}
+
 	/**
 	 * Reads the persisted testreport (configured CSV File) and updates it with
 	 * the new result set.
@@ -91,16 +125,12 @@ public class TestResultSaver {
 				.parseExistingTestReport();
 
 		// append new results
-		for (final Entry<String, Map<String, TestResult>> entry : this.result
-				.entrySet()) {
+		for (final Entry<String, Map<String, TestResult>> entry : this
+				.snapshot().entrySet()) {
 			final String key = entry.getKey();
 			final Map<String, TestResult> value = entry.getValue();
 			if (testReport.containsKey(key)) {
-				for (final Entry<String, TestResult> toOverride : value
-						.entrySet()) {
-					testReport.get(key).put(toOverride.getKey(),
-							toOverride.getValue());
-				}
+				testReport.get(key).putAll(value);
 			} else {
 				testReport.put(key, value);
 			}
@@ -110,10 +140,12 @@ public class TestResultSaver {
 	}
 
 	/**
-	 * Updates the testreport file and persists it again.
+	 * Updates the testreport file and persists it again. Synchronized, so two
+	 * test classes finishing at the same time do not write the file at once.
 	 */
-	public void updateAndSaveTestReport() {
-		TestReportParser.saveTestReport(this.updateTestReport());
+	public synchronized void updateAndSaveTestReport() {
+		TestReportParser.saveTestReport(this.updateTestReport(),
+				TestReportParser.initFile(), RetentionPolicy.getInstance());
 	}
 
-}
\ No newline at end of file
+}
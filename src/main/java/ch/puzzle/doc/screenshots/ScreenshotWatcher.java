@@ -3,19 +3,31 @@ package ch.puzzle.doc.screenshots;
 import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
 
 import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 
 import ch.puzzle.annotations.TestCase;
+import ch.puzzle.selenium.screenshots.ScreenshotBuffer;
+import ch.puzzle.selenium.screenshots.ScreenshotDeduplicator;
 
 /**
+ * Manages the screenshots of a test. If only the screenshots of failed tests
+ * are written, the screenshots kept in the {@link ScreenshotBuffer} are
+ * written when the test fails and dropped otherwise.
+ * 
  * @author Brigitte Hulliger, <hulliger@puzzle.ch>
  */
 public class ScreenshotWatcher extends TestWatcher {
 
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
 	/**
-	 * Deletes existing screenshots before creating new ones.
+	 * Deletes existing screenshots before creating new ones. If only the
+	 * screenshots of failed tests are written, they are deleted when the test
+	 * fails instead, so a passing test does not touch the disk.
 	 * 
 	 * @see org.junit.rules.TestWatcher#starting(org.junit.runner.Description)
 	 */
@@ -27,21 +39,74 @@ public class ScreenshotWatcher extends TestWatcher {
 			final TestCase currentTestCase = description
 					.getAnnotation(TestCase.class);
 
-			// if screenshots are enabled, and the output directory already
-			// exists, then delete the existing screenshots first.
+			if (!ScreenshotBuffer.getInstance().isEnabled()) {
+				deleteScreenshots(currentTestCase);
+			}
+			ScreenshotDeduplicator.getInstance().start(currentTestCase.id());
+			ScreenshotBuffer.getInstance().clear();
+		}
+
+		super.starting(description);
+	}
+
+	/**
+	 * Replaces the screenshots of an earlier run with the kept screenshots of
+	 * the failed test.
+	 * 
+	 * @see org.junit.rules.TestWatcher#failed(java.lang.Throwable,
+	 *      org.junit.runner.Description)
+	 */
+	@Override
+	protected void failed(final Throwable e, final Description description) {
+		if ("on".equals(getPropertyValue("screenshots"))
+				&& ScreenshotBuffer.getInstance().isEnabled()) {
+			deleteScreenshots(description.getAnnotation(TestCase.class));
+			ScreenshotBuffer.getInstance().flush(
+					ScreenshotDeduplicator.getInstance());
+		}
+		super.failed(e, description);
+	}
+
+	/**
+	 * Deletes the existing screenshots of the given test case.
+	 * 
+	 * @param testCase
+	 *            the test case.
+	 */
+	private static void deleteScreenshots(final TestCase testCase) {
+		// if screenshots are enabled, and the output directory already
+		// exists, then delete the existing screenshots first.
 
-			final String screenshotDirectory = getPropertyValue("site.resources.output.screenshots");
+		final String screenshotDirectory = getPropertyValue("site.resources.output.screenshots");
 
-			final File outputFolder = new File(screenshotDirectory
-					+ currentTestCase.id());
-			if (outputFolder.exists()) {
-				final File[] files = outputFolder.listFiles();
-				for (final File file : files) {
-					file.delete();
-				}
+		final File outputFolder = new File(screenshotDirectory + testCase.id());
+		if (outputFolder.exists()) {
+			final File[] files = outputFolder.listFiles();
+			for (final File file : files) {
+				file.delete();
 			}
 		}
+	}
 
-		super.starting(description);
+	/**
+	 * Drops the kept screenshots of a test that did not fail and logs the
+	 * number of screenshots suppressed as duplicates.
+	 * 
+	 * @see org.junit.rules.TestWatcher#finished(org.junit.runner.Description)
+	 */
+	@Override
+	protected void finished(final Description description) {
+		if ("on".equals(getPropertyValue("screenshots"))) {
+			final TestCase currentTestCase = description
+					.getAnnotation(TestCase.class);
+			ScreenshotBuffer.getInstance().clear();
+			final int suppressed = ScreenshotDeduplicator.getInstance()
+					.getSuppressed(currentTestCase.id());
+			if (suppressed > 0) {
+				LOG.log(Level.INFO, currentTestCase.id() + ": suppressed "
+						+ suppressed + " duplicate screenshot(s).");
+			}
+		}
+		super.finished(description);
 	}
 }
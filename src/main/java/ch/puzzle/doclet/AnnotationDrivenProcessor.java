@@ -0,0 +1,291 @@
+package ch.puzzle.doclet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+
+import ch.puzzle.doclet.exceptions.MissingCommandLineParameterException;
+import ch.puzzle.doclet.exceptions.UnsupportedCommandLineParameterException;
+
+/**
+ * Annotation processor front end of the {@link DocumentationGenerator}. It
+ * generates the documentation during the normal compilation instead of a
+ * separate javadoc run. With incremental compilation only the pages of the
+ * compiled types are generated again, all other pages are kept.
+ *
+ * The processor takes the doclet parameters as processor options:
+ *
+ * <pre>
+ * -Aatdoclet.output=${basedir}/src/site/apt/generated/
+ * -Aatdoclet.annotations=ch.puzzle.annotations.UseCase=usecase.apt.template,ch.puzzle.annotations.TestCase=testcase.apt.template
+ * -Aatdoclet.siteResources=src/site/resources/
+ * -Aatdoclet.threads=4
+ * -Aatdoclet.profile=10
+ * -Aatdoclet.testReport=target/testresult.csv
+ * -Aatdoclet.optimizeImages=lossless
+ * </pre>
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+@SupportedOptions({ AnnotationDrivenProcessor.OPTION_OUTPUT,
+		AnnotationDrivenProcessor.OPTION_ANNOTATIONS,
+		AnnotationDrivenProcessor.OPTION_SITE_RESOURCES,
+		AnnotationDrivenProcessor.OPTION_THREADS,
+		AnnotationDrivenProcessor.OPTION_PROFILE,
+		AnnotationDrivenProcessor.OPTION_TEST_REPORT,
+		AnnotationDrivenProcessor.OPTION_OPTIMIZE_IMAGES })
+public class AnnotationDrivenProcessor extends AbstractProcessor {
+
+	/** processor option for the doclet parameter '-output'. */
+	static final String OPTION_OUTPUT = "atdoclet.output";
+
+	/**
+	 * processor option for the doclet parameters '-annotation'. Comma
+	 * separated list of annotation=template pairs.
+	 */
+	static final String OPTION_ANNOTATIONS = "atdoclet.annotations";
+
+	/** processor option for the doclet parameter '-siteResources'. */
+	static final String OPTION_SITE_RESOURCES = "atdoclet.siteResources";
+
+	/** processor option for the doclet parameter '-threads'. */
+	static final String OPTION_THREADS = "atdoclet.threads";
+
+	/** processor option for the doclet parameter '-profile'. */
+	static final String OPTION_PROFILE = "atdoclet.profile";
+
+	/** processor option for the doclet parameter '-testReport'. */
+	static final String OPTION_TEST_REPORT = "atdoclet.testReport";
+
+	/** processor option for the doclet parameter '-optimizeImages'. */
+	static final String OPTION_OPTIMIZE_IMAGES = "atdoclet.optimizeImages";
+
+	/** Regex pattern to find block tags in a doc comment. */
+	private static final Pattern BLOCK_TAG = Pattern.compile(
+			"^\\s*(@\\w+)", Pattern.MULTILINE);
+
+	/** the elements found in all rounds, in discovery order. */
+	private final List<DocumentedElement> elements = new ArrayList<>();
+
+	/** whether the options are valid and the processor generates files. */
+	private boolean enabled;
+
+	/**
+	 * @see javax.annotation.processing.AbstractProcessor#init(javax.annotation.processing.ProcessingEnvironment)
+	 */
+	@Override
+	public synchronized void init(final ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		final long optionsStart = System.nanoTime();
+		try {
+			DocumentationGenerator.processOptions(toOptions(processingEnv
+					.getOptions()));
+			this.enabled = true;
+			DocumentationGenerator.profile.record(RunProfile.OPTIONS,
+					optionsStart);
+		} catch (UnsupportedCommandLineParameterException
+				| MissingCommandLineParameterException e) {
+			processingEnv.getMessager().printMessage(Kind.WARNING,
+					"at-doclet processor disabled: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @see javax.annotation.processing.AbstractProcessor#getSupportedAnnotationTypes()
+	 */
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return new HashSet<>(DocumentationGenerator.configuredAnnotations
+				.keySet());
+	}
+
+	/**
+	 * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	/**
+	 * Collects the annotated elements of every round and generates the files
+	 * once the processing is over. The annotations are not claimed, so other
+	 * processors can still process them.
+	 *
+	 * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set,
+	 *      javax.annotation.processing.RoundEnvironment)
+	 */
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations,
+			final RoundEnvironment roundEnv) {
+		if (!this.enabled) {
+			return false;
+		}
+
+		for (final TypeElement annotation : annotations) {
+			for (final Element element : roundEnv
+					.getElementsAnnotatedWith(annotation)) {
+				this.extractElement(element, annotation);
+			}
+		}
+
+		if (roundEnv.processingOver()) {
+			try {
+				for (final String notice : DocumentationGenerator.generate(
+						this.elements, false)) {
+					this.processingEnv.getMessager().printMessage(Kind.NOTE,
+							notice);
+				}
+			} catch (final IOException e) {
+				this.processingEnv.getMessager().printMessage(Kind.ERROR,
+						"at-doclet could not write output files: "
+								+ e.getMessage());
+			}
+			this.elements.clear();
+		}
+		return false;
+	}
+
+	/**
+	 * Extracts the doc comment and the annotation values of the given element.
+	 *
+	 * @param element
+	 *            the annotated type or method.
+	 * @param annotation
+	 *            the configured annotation found on the element.
+	 */
+	private void extractElement(final Element element,
+			final TypeElement annotation) {
+		final Elements elementUtils = this.processingEnv.getElementUtils();
+		final String qualifiedAnnotationName = annotation.getQualifiedName()
+				.toString();
+
+		final Map<String, String> annotationValues = new LinkedHashMap<>();
+		for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (!mirror.getAnnotationType().asElement().equals(annotation)) {
+				continue;
+			}
+			for (final Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror
+					.getElementValues().entrySet()) {
+				annotationValues.put(value.getKey().getSimpleName().toString(),
+						value.getValue().toString());
+			}
+		}
+
+		final List<String> tagNames = new ArrayList<>();
+		final List<String> tagTexts = new ArrayList<>();
+		parseBlockTags(elementUtils.getDocComment(element), tagNames, tagTexts);
+
+		// FIXME: windows paths.
+		final String destinationFolder = DocumentationGenerator.baseOutputDir
+				+ elementUtils.getPackageOf(element).getQualifiedName()
+						.toString().replaceAll("\\.", "/");
+
+		this.elements.add(DocumentationGenerator.createElement(
+				qualifiedAnnotationName, destinationFolder,
+				tagNames.toArray(new String[tagNames.size()]),
+				tagTexts.toArray(new String[tagTexts.size()]),
+				annotationValues));
+	}
+
+	/**
+	 * Splits a doc comment into its block tags, as javadoc does. The main
+	 * description before the first tag is ignored.
+	 *
+	 * @param docComment
+	 *            the doc comment, may be <code>null</code>.
+	 * @param tagNames
+	 *            list to add the tag names to, including the '@'.
+	 * @param tagTexts
+	 *            list to add the tag texts to.
+	 */
+	static void parseBlockTags(final String docComment,
+			final List<String> tagNames, final List<String> tagTexts) {
+		if (docComment == null) {
+			return;
+		}
+		final Matcher matcher = BLOCK_TAG.matcher(docComment);
+		String name = null;
+		int textStart = 0;
+		while (matcher.find()) {
+			if (name != null) {
+				tagNames.add(name);
+				tagTexts.add(docComment.substring(textStart, matcher.start())
+						.trim());
+			}
+			name = matcher.group(1);
+			textStart = matcher.end();
+		}
+		if (name != null) {
+			tagNames.add(name);
+			tagTexts.add(docComment.substring(textStart).trim());
+		}
+	}
+
+	/**
+	 * Converts the processor options to doclet options.
+	 *
+	 * @param processorOptions
+	 *            the processor options.
+	 * @return the doclet options, each with its values.
+	 */
+	static String[][] toOptions(final Map<String, String> processorOptions) {
+		final List<String[]> options = new ArrayList<>();
+		if (processorOptions.containsKey(OPTION_OUTPUT)) {
+			options.add(new String[] { "-output",
+					processorOptions.get(OPTION_OUTPUT) });
+		}
+		if (processorOptions.containsKey(OPTION_SITE_RESOURCES)) {
+			options.add(new String[] { "-siteResources",
+					processorOptions.get(OPTION_SITE_RESOURCES) });
+		}
+		if (processorOptions.containsKey(OPTION_THREADS)) {
+			options.add(new String[] { "-threads",
+					processorOptions.get(OPTION_THREADS) });
+		}
+		if (processorOptions.containsKey(OPTION_PROFILE)) {
+			options.add(new String[] { "-profile",
+					processorOptions.get(OPTION_PROFILE) });
+		}
+		if (processorOptions.containsKey(OPTION_TEST_REPORT)) {
+			options.add(new String[] { "-testReport",
+					processorOptions.get(OPTION_TEST_REPORT) });
+		}
+		if (processorOptions.containsKey(OPTION_OPTIMIZE_IMAGES)) {
+			options.add(new String[] { "-optimizeImages",
+					processorOptions.get(OPTION_OPTIMIZE_IMAGES) });
+		}
+		if (processorOptions.containsKey(OPTION_ANNOTATIONS)) {
+			for (final String pair : processorOptions.get(OPTION_ANNOTATIONS)
+					.split(",")) {
+				final String[] option = pair.trim().split("=", 2);
+				final String[] annotationOption = new String[option.length + 1];
+				annotationOption[0] = "-annotation";
+				System.arraycopy(option, 0, annotationOption, 1,
+						option.length);
+				options.add(annotationOption);
+			}
+		}
+		return options.toArray(new String[options.size()][]);
+	}
+}
@@ -0,0 +1,896 @@
+package ch.puzzle.doclet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+import ch.puzzle.annotations.Page;
+import ch.puzzle.annotations.TestCase;
+import ch.puzzle.annotations.UseCase;
+import ch.puzzle.doclet.exceptions.MissingCommandLineParameterException;
+import ch.puzzle.doclet.exceptions.UnsupportedCommandLineParameterException;
+
+/**
+ * Generates the documentation of the extracted elements. Shared by all front
+ * ends: the doclets for both javadoc APIs, the annotation processor, the
+ * {@link SourceScanner} and the {@link ModelRenderer}. The front ends only
+ * extract the {@link DocumentedElement}s and pass the commandline parameters,
+ * so this class does not depend on a javadoc API.
+ * 
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class DocumentationGenerator {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** File formats that are supported for embedding videos in documentation. */
+	private static final String[] SUPPORTED_VIDEO_TYPES = { "ogg", "mp4",
+			"webm" };
+
+	/**
+	 * The base output directory where the apt-files are stored. The value is
+	 * passed by the commandline parameter '-output' for the javadoc command.
+	 * 
+	 * e.g. javadoc -output ~/docs
+	 */
+	static String baseOutputDir;
+
+	/**
+	 * The resource directory of the project. The parameter "-resourceDir" has
+	 * to be set as parameter if does not match the maven default of
+	 * src/site/resources.
+	 */
+	static String resourcesDir = "src/site/resources/";
+
+	/**
+	 * The number of threads used to render and write the generated files. The
+	 * value is passed by the commandline parameter '-threads'. Defaults to 1,
+	 * which renders all files on the calling thread.
+	 * 
+	 * e.g. javadoc -threads 8
+	 */
+	static int threads = 1;
+
+	/**
+	 * The test report to generate the report page from. The value is passed by
+	 * the commandline parameter '-testReport'. If not set, no report page is
+	 * generated.
+	 * 
+	 * e.g. javadoc -testReport target/testresult.csv
+	 */
+	static String testReport;
+
+	/**
+	 * Optimizes the PNG images of the site resources before generating, see
+	 * {@link ImageOptimizer}. The value is passed by the commandline
+	 * parameter '-optimizeImages', either 'lossless' or the JPEG quality
+	 * between 0 and 1. If not set, the images are kept as they are.
+	 * 
+	 * e.g. javadoc -optimizeImages lossless
+	 */
+	static ImageOptimizer imageOptimizer;
+
+	/**
+	 * Map of configured annotations. stores which template to use for which
+	 * annotation. The values are passed by at least one commandline parameter
+	 * '-annotation'. One parameter for each used annotation is required.
+	 * 
+	 * e.g. javadoc -annotation ch.puzzle.example.Page
+	 * ${basedir}/src/site/apt/templates/pages.apt.template
+	 */
+	static Map<String, String> configuredAnnotations = new HashMap<>();
+	static {
+		configuredAnnotations.put(TestCase.class.getName(),
+				"testcase.apt.template");
+		configuredAnnotations.put(UseCase.class.getName(),
+				"usecase.apt.template");
+		configuredAnnotations.put(Page.class.getName(), "page.apt.template");
+	}
+
+	/** Regex pattern to find placeholders in template file. */
+	static final Pattern KEY_DELIMITER = Pattern
+			.compile("\\$\\{\\w+\\}");
+
+	/** Delimiter to find tables inside the template file. */
+	static final String TABLE_START_DELIMITER = "~~{table}";
+
+	/** Delimiter to find table ends inside the template file. */
+	static final String TABLE_END_DELIMITER = "~~{/table}";
+
+	/** Regex pattern to find image placeholders inside the template file. */
+	static final Pattern IMAGES_DELIMITER = Pattern
+			.compile("~~\\{images:(\\/*[\\w+\\$\\{\\}]\\/*)+\\}");
+
+	/** Regex pattern to find screencast placeholders inside the template file. */
+	static final Pattern SCREENCAST_MATCHER = Pattern
+			.compile("~~\\{screencast:(\\/*[\\w+\\_\\-\\/])*\\$\\{\\w+\\}");
+
+	/**
+	 * Templates compiled during the current doclet run, by template path. A
+	 * template that could not be found is cached as <code>null</code>.
+	 */
+	static Map<String, Template> compiledTemplates = new HashMap<>();
+
+	/**
+	 * Catalog of the site resources, built once per doclet run. Images and
+	 * screencasts are resolved against it.
+	 */
+	static ResourceCatalog resourceCatalog;
+
+	/**
+	 * The number of templates and elements to print in the profile summary
+	 * after each run. The value is passed by the commandline parameter
+	 * '-profile'. Defaults to 0, which prints no summary. The JSON report is
+	 * written in any case.
+	 * 
+	 * e.g. javadoc -profile 10
+	 */
+	static int profileCount = 0;
+
+	/** Profile of the current run. Started again after each run. */
+	static RunProfile profile = new RunProfile();
+
+	/**
+	 * Empty default constructor.
+	 */
+	private DocumentationGenerator() {
+		// empty default constructor
+	}
+
+	/**
+	 * Generates the files of the given elements. Only files whose inputs
+	 * changed since the last run are written, files of elements that do not
+	 * exist anymore are deleted. The profile of the run is written to the
+	 * output directory.
+	 * 
+	 * @param elements
+	 *            the extracted elements in traversal order.
+	 * @param complete
+	 *            whether the elements are all documented elements of the
+	 *            project. If <code>false</code>, files of elements not in the
+	 *            list are kept as they are and the elements are added to the
+	 *            {@link DocumentationModel} of the earlier runs.
+	 * @return a summary of the generated and removed files, followed by the
+	 *         profile summary if requested.
+	 * @throws IOException
+	 *             if a file could not be written.
+	 */
+	static List<String> generate(final List<DocumentedElement> elements,
+			final boolean complete) throws IOException {
+		profile.start();
+		compiledTemplates.clear();
+		final String optimizeSummary = imageOptimizer == null ? null
+				: optimizeImages();
+		resourceCatalog = ResourceCatalog.scan(resourcesDir);
+
+		final long hashingStart = System.nanoTime();
+		final Manifest manifest = Manifest.load(baseOutputDir);
+		final List<DocumentedElement> changed = new ArrayList<>();
+		int unchanged = 0;
+		for (final DocumentedElement element : removeDuplicates(elements)) {
+			final String hash = Manifest.hash(element,
+					getTemplate(configuredAnnotations.get(element
+							.getQualifiedAnnotationName())));
+			if (manifest.isUpToDate(element.getDestinationFilePath(), hash)) {
+				unchanged++;
+			} else {
+				changed.add(element);
+			}
+		}
+		final List<String> removed = complete ? manifest.deleteRemoved()
+				: manifest.keepRemaining();
+		profile.record(RunProfile.HASHING, hashingStart);
+
+		renderElements(changed);
+		manifest.save();
+
+		final List<String> summary = new ArrayList<>();
+		summary.add("at-doclet: " + changed.size() + " file(s) generated, "
+				+ unchanged + " unchanged, " + removed.size() + " removed.");
+		for (final String path : removed) {
+			summary.add("at-doclet: removed " + path);
+		}
+		if (optimizeSummary != null) {
+			summary.add(optimizeSummary);
+		}
+
+		// an incremental run only knows the changed elements, the report page
+		// needs the use cases of all test cases.
+		final List<DocumentedElement> model = complete ? elements
+				: DocumentationModel.update(new File(baseOutputDir,
+						DocumentationModel.FILE_NAME), elements);
+		if (testReport != null) {
+			summary.add(generateReportPage(model));
+		}
+
+		if (new File(baseOutputDir).isDirectory()) {
+			profile.write(baseOutputDir);
+		}
+		if (profileCount > 0) {
+			summary.addAll(profile.summary(profileCount));
+		}
+		profile = new RunProfile();
+		return summary;
+	}
+
+	/**
+	 * Optimizes the images of the site resources, see {@link ImageOptimizer}.
+	 * 
+	 * @return the summary of the optimization.
+	 * @throws IOException
+	 *             if an optimized image could not be written.
+	 */
+	static String optimizeImages() throws IOException {
+		final long optimizeStart = System.nanoTime();
+		imageOptimizer.optimize(resourcesDir, baseOutputDir);
+		profile.record(RunProfile.OPTIMIZING, optimizeStart);
+		return "at-doclet: " + imageOptimizer.getOptimized()
+				+ " image(s) optimized, " + imageOptimizer.getUnchanged()
+				+ " unchanged, " + imageOptimizer.getSavedBytes()
+				+ " bytes saved.";
+	}
+
+	/**
+	 * Generates the page of the configured test report into the site
+	 * resources, see {@link ReportPage}.
+	 * 
+	 * @param elements
+	 *            all documented elements of the project, to look up the use
+	 *            cases of the test cases.
+	 * @return the summary of the report page.
+	 * @throws IOException
+	 *             if the page could not be written.
+	 */
+	static String generateReportPage(final List<DocumentedElement> elements)
+			throws IOException {
+		final File reportFile = new File(testReport);
+		if (!reportFile.isFile()) {
+			LOG.log(Level.WARNING, "Test report " + testReport
+					+ " does not exist. No report page generated.");
+			return "at-doclet: no test report page generated, "
+					+ testReport + " does not exist.";
+		}
+		final long reportStart = System.nanoTime();
+		final int rows = ReportPage.write(reportFile, elements, new File(
+				resourcesDir, ReportPage.DIRECTORY));
+		profile.record(RunProfile.TEST_REPORT, reportStart);
+		return "at-doclet: test report page of " + rows
+				+ " test case(s) generated.";
+	}
+
+	/**
+	 * Creates the {@link DocumentedElement} for the given javadoc tags and
+	 * annotation values. Shared by all front ends, so they produce the same
+	 * replacements.
+	 * 
+	 * @param qualifiedAnnotationName
+	 *            the qualified name of the annotation.
+	 * @param destinationFolder
+	 *            the directory where to put the generated file.
+	 * @param tagNames
+	 *            the names of the javadoc tags, including the '@'.
+	 * @param tagTexts
+	 *            the texts of the javadoc tags.
+	 * @param annotationValues
+	 *            the source representation of the annotation values, by
+	 *            element name.
+	 * @return the element.
+	 */
+	static DocumentedElement createElement(
+			final String qualifiedAnnotationName,
+			final String destinationFolder, final String[] tagNames,
+			final String[] tagTexts, final Map<String, String> annotationValues) {
+		final long start = System.nanoTime();
+		final Map<String, String> replacements = new HashMap<>();
+
+		for (int i = 0; i < tagNames.length; i++) {
+			String text = tagTexts[i];
+			final Matcher matcher = Pattern.compile("\n\\s*\n\\s+").matcher(
+					text);
+			if (matcher.find()) {
+				text = matcher.replaceAll("\n\n  ");
+			}
+			replacements.put(tagNames[i].replace("@", ""), text);
+		}
+
+		for (final Entry<String, String> annotationValue : annotationValues
+				.entrySet()) {
+			replacements.put(annotationValue.getKey(), annotationValue
+					.getValue().replaceAll("\"", ""));
+		}
+
+		final DocumentedElement element = new DocumentedElement(
+				qualifiedAnnotationName, destinationFolder, replacements,
+				tagNames, tagTexts);
+		profile.record(RunProfile.NORMALIZATION, start);
+		return element;
+	}
+
+	/**
+	 * Removes elements that would be written to the same file. The last
+	 * element in traversal order wins, as it would when writing the files one
+	 * after the other. A warning is logged for every dropped element.
+	 * 
+	 * @param elements
+	 *            the extracted elements in traversal order.
+	 * @return the elements to render, in traversal order.
+	 */
+	static List<DocumentedElement> removeDuplicates(
+			final List<DocumentedElement> elements) {
+		final Map<String, DocumentedElement> byPath = new LinkedHashMap<>();
+		for (final DocumentedElement element : elements) {
+			final DocumentedElement previous = byPath.remove(element
+					.getDestinationFilePath());
+			if (previous != null) {
+				LOG.log(Level.WARNING, "Duplicate id [" + element.getId()
+						+ "] in " + element.getDestinationFolder() + " for "
+						+ previous.getQualifiedAnnotationName() + " and "
+						+ element.getQualifiedAnnotationName()
+						+ ". Only the latter is written.");
+			}
+			byPath.put(element.getDestinationFilePath(), element);
+		}
+		return new ArrayList<>(byPath.values());
+	}
+
+	/**
+	 * Renders and writes the given elements. If more than one thread is
+	 * configured, the files are written on a worker pool.
+	 * 
+	 * @param elements
+	 *            the elements to render. No two elements may have the same
+	 *            destination file.
+	 * @throws IOException
+	 *             if a file could not be written.
+	 */
+	static void renderElements(final List<DocumentedElement> elements)
+			throws IOException {
+		// compile all templates up front, the workers only read the cache.
+		for (final DocumentedElement element : elements) {
+			getTemplate(configuredAnnotations.get(element
+					.getQualifiedAnnotationName()));
+		}
+
+		if (threads <= 1) {
+			for (final DocumentedElement element : elements) {
+				renderElement(element);
+			}
+			return;
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<Void>> results = new ArrayList<>();
+			for (final DocumentedElement element : elements) {
+				results.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						renderElement(element);
+						return null;
+					}
+				}));
+			}
+			for (final Future<Void> result : results) {
+				result.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing output files.", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Renders the template of the given element and writes it to its
+	 * destination file. The template is rendered to memory first, so rendering
+	 * and writing are profiled separately.
+	 * 
+	 * @param element
+	 *            the element to render.
+	 * @throws IOException
+	 *             if the fallback file could not be written.
+	 */
+	static void renderElement(final DocumentedElement element)
+			throws IOException {
+		final File file = new File(element.getDestinationFolder());
+		if (!file.exists()) {
+			file.mkdirs();
+		}
+
+		final long start = System.nanoTime();
+		final String templatePath = configuredAnnotations.get(element
+				.getQualifiedAnnotationName());
+		final Template template = getTemplate(templatePath);
+		final String destinationFilePath = element.getDestinationFilePath();
+		if (template == null) {
+			writeTags(element, destinationFilePath);
+			profile.recordElement(templatePath, destinationFilePath, start);
+			return;
+		}
+
+		final StringWriter content = new StringWriter();
+		try (final PrintWriter writer = new PrintWriter(content)) {
+			template.render(element.getReplacements(), writer);
+		}
+		profile.record(RunProfile.RENDERING, start);
+
+		final long writingStart = System.nanoTime();
+		// platform default encoding, as for all generated files.
+		final byte[] bytes = content.toString().getBytes();
+		try {
+			FileUtils.writeByteArrayToFile(new File(destinationFilePath),
+					bytes);
+			profile.recordFile(bytes.length);
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not write output file. ", e);
+		}
+		profile.record(RunProfile.WRITING, writingStart);
+		profile.recordElement(templatePath, destinationFilePath, start);
+	}
+
+	/**
+	 * Fallback if no template is available: prints the id and all tags.
+	 * 
+	 * @param element
+	 *            the element to print.
+	 * @param destinationFilePath
+	 *            the file to write.
+	 * @throws IOException
+	 */
+	private static void writeTags(final DocumentedElement element,
+			final String destinationFilePath) throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(element.getId());
+
+		for (int i = 0; i < element.getTagNames().length; i++) {
+			sb.append("\n\n* ").append(element.getTagNames()[i]);
+			sb.append("\n\n  ").append(element.getTagTexts()[i]);
+		}
+
+		final long start = System.nanoTime();
+		final File destinationFile = new File(destinationFilePath);
+		if (!destinationFile.exists()) {
+			destinationFile.createNewFile();
+		}
+		final byte[] bytes = sb.toString().getBytes();
+		FileUtils.writeByteArrayToFile(destinationFile, bytes);
+		profile.recordFile(bytes.length);
+		profile.record(RunProfile.WRITING, start);
+	}
+
+	/**
+	 * Returns the compiled template for the given path. Each template is read
+	 * and parsed only once per doclet run.
+	 * 
+	 * @param templatePath
+	 *            the path to the template file.
+	 * @return the compiled template or <code>null</code> if the template file
+	 *         does not exist.
+	 * @throws IOException
+	 *             if the template file cannot be read.
+	 */
+	static synchronized Template getTemplate(final String templatePath)
+			throws IOException {
+		if (!compiledTemplates.containsKey(templatePath)) {
+			Template template = null;
+			try {
+				template = Template.compile(templatePath);
+			} catch (final FileNotFoundException e) {
+				LOG.log(Level.WARNING, "Template " + templatePath
+						+ " not found. Printing tags only.");
+			}
+			compiledTemplates.put(templatePath, template);
+		}
+		return compiledTemplates.get(templatePath);
+	}
+
+	/**
+	 * @param line
+	 *            the input line to process.
+	 * @param insideTable
+	 *            boolean value whether the current line is between a
+	 *            TABLE_START_DELIMITER and a TABLE_END_DELIMITER.
+	 * @param replacements
+	 *            map with the replacement keys found in javadoc.
+	 * @return the processed line with all replacements done.
+	 */
+	static String processLine(final String line, final boolean insideTable,
+			final Map<String, String> replacements) {
+		return Template.compileLine(line).renderLine(replacements, insideTable);
+	}
+
+	/**
+	 * @param line
+	 *            the inputline from the template
+	 * @param replacements
+	 *            the replacement parameters from the javadoc
+	 * @return the replacement string for the screencasts
+	 */
+	static String processScreencast(final String line,
+			final Map<String, String> replacements) {
+		final long start = System.nanoTime();
+		// 1. replace placeholders
+		final String fileIdentifier = resolveScreencastIdentifier(line,
+				replacements);
+
+		final StringBuilder toPrint = new StringBuilder();
+
+		if (screencastExists(fileIdentifier)) {
+			final StringBuilder snippet = new StringBuilder();
+			snippet.append("<video width=\"800\" controls>");
+
+			for (final String supportedVideoFormat : SUPPORTED_VIDEO_TYPES) {
+				snippet.append("<source src=\"/screencasts/")
+						.append(fileIdentifier).append(".")
+						.append(supportedVideoFormat)
+						.append("\" type=\"video/")
+						.append(supportedVideoFormat).append("\">");
+			}
+
+			snippet.append("Your Browser does not support the video tag.");
+			snippet.append("</video>");
+
+			final String snippetFileName = screencastSnippet(fileIdentifier);
+			final File snippetFile = new File(snippetFileName);
+
+			try {
+				if (!snippetFile.exists()) {
+					snippetFile.getParentFile().mkdirs();
+					snippetFile.createNewFile();
+				}
+
+				try (final BufferedWriter bw = new BufferedWriter(
+						new FileWriter(snippetFile.getAbsolutePath()))) {
+					bw.write(snippet.toString());
+				}
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "could not write screencast snippet.", e);
+			}
+
+			toPrint.append("\n\n%{snippet|verbatim=false|file="
+					+ snippetFileName + "}");
+		} else {
+			toPrint.append("\n\n  n/a"); // Print "n/a" in apt file.
+		}
+		profile.record(RunProfile.SCREENCASTS, start);
+		return toPrint.toString();
+	}
+
+	/**
+	 * @param line
+	 *            the screencast directive from the template
+	 * @param replacements
+	 *            the replacement parameters from the javadoc
+	 * @return the identifier of the screencast file (without extension)
+	 */
+	static String resolveScreencastIdentifier(final String line,
+			final Map<String, String> replacements) {
+		final Matcher matcher = KEY_DELIMITER.matcher(line);
+
+		String fileIdentifier = "";
+
+		while (matcher.find()) {
+			fileIdentifier = replacements.get(Template.key(matcher.group()));
+		}
+		return fileIdentifier;
+	}
+
+	/**
+	 * @param fileIdentifier
+	 *            the identifier of the screencast file (without extension)
+	 * @return the path of the snippet file that embeds the screencast.
+	 */
+	static String screencastSnippet(final String fileIdentifier) {
+		return resourcesDir + "generated/snippets/screencast_snippet_"
+				+ fileIdentifier + ".txt";
+	}
+
+	/**
+	 * @param fileIdentifier
+	 *            the identifier of the screencast file (without extension)
+	 * @return whether a screencast in any of the supported video types exists.
+	 */
+	static boolean screencastExists(final String fileIdentifier) {
+		final ResourceCatalog catalog = getResourceCatalog();
+		for (final String supportedVideoType : SUPPORTED_VIDEO_TYPES) {
+			if (catalog.exists(new File(resourcesDir + "screencasts/"
+					+ fileIdentifier + "." + supportedVideoType))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param line
+	 *            the input line containing the folder to process
+	 * @param replacements
+	 *            the replacement parameters from the javadoc
+	 * @return the replacement string for the images
+	 */
+	static String processImages(final String line,
+			final Map<String, String> replacements) {
+		final long start = System.nanoTime();
+
+		// 1. replace placeholders
+		final File imagesDir = resolveImagesDirectory(line, replacements);
+
+		final StringBuilder sb = new StringBuilder();
+		final List<ResourceCatalog.Entry> entries = getResourceCatalog().list(
+				imagesDir);
+		if (entries != null) {
+
+			sb.append("\n\n");
+			for (final ResourceCatalog.Entry entry : entries) {
+
+				final String type = entry.getMediaType();
+
+				if ("image".equals(type)) {
+					final File image = imageLink(new File(imagesDir,
+							entry.getName()));
+					sb.append("\n\n[")
+							.append(image.getPath().replace(resourcesDir, "/"))
+							.append("]");
+				} else {
+
+					// LOG.debug(file.getName() +
+					// " has an unsupported filetype ["
+					// + type + "]. skipping.");
+					System.out.println(entry.getName()
+							+ " has an unsupported filetype [" + type
+							+ "]. skipping.");
+				}
+			}
+		}
+
+		if (sb.length() == 0) {
+			// if no images are printed, add "n/a" to stringbuilder.
+			sb.append("\n\n n/a");
+		}
+
+		profile.record(RunProfile.IMAGES, start);
+		// // 4. return apt-content
+		return sb.toString();
+	}
+
+	/**
+	 * @param image
+	 *            an image of the site resources.
+	 * @return the optimized copy of the image if images are optimized and it
+	 *         has one, the image otherwise.
+	 */
+	static File imageLink(final File image) {
+		if (imageOptimizer != null) {
+			final File copy = ImageOptimizer.copyOf(new File(resourcesDir),
+					image);
+			if (copy != null) {
+				return copy;
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * @return the catalog of the site resources. Built on first use and again
+	 *         if the resources directory changed.
+	 */
+	static synchronized ResourceCatalog getResourceCatalog() {
+		if (resourceCatalog == null || !resourceCatalog.isFor(resourcesDir)) {
+			resourceCatalog = ResourceCatalog.scan(resourcesDir);
+		}
+		return resourceCatalog;
+	}
+
+	/**
+	 * @param line
+	 *            the images directive from the template
+	 * @param replacements
+	 *            the replacement parameters from the javadoc
+	 * @return the directory to load the images from
+	 */
+	static File resolveImagesDirectory(final String line,
+			final Map<String, String> replacements) {
+		String toPrint = line;
+
+		final Matcher matcher = KEY_DELIMITER.matcher(line);
+
+		while (matcher.find()) {
+			final String placeholder = matcher.group();
+			final String key = Template.key(placeholder);
+			final String replacement = replacements.containsKey(key) ? replacements
+					.get(key) : "";
+
+			toPrint = toPrint.replace(placeholder, replacement);
+		}
+		final Matcher pathMatcher = Pattern.compile(
+				":(\\/*[\\w\\-\\_\\s]+\\/*)+").matcher(toPrint);
+		String directoryPath = "";
+		if (pathMatcher.find()) {
+			directoryPath = pathMatcher.group();
+		}
+
+		directoryPath = directoryPath.replaceAll(":", "");
+		return new File(resourcesDir + directoryPath);
+	}
+
+	/**
+	 * Removes newlines from the input String. This is used, because the
+	 * apt-format from maven brings some limitations to multiline cells inside
+	 * tables.
+	 * 
+	 * Replaces new Lines (\n), Tabs (\t) and multi whitespaces (\\s+) with a
+	 * single whitespace.
+	 * 
+	 * @param inputString
+	 *            the inputString to replace newlines
+	 * @return the formatted string usable in table cells of the apt-format
+	 */
+	static String formatTextForTableCell(final String inputString) {
+		final Matcher matcher = Pattern.compile("\\s+|\t|\n").matcher(
+				inputString);
+
+		if (matcher.find()) {
+			return matcher.replaceAll(" ");
+		}
+
+		return inputString;
+	}
+
+	/**
+	 * @param options
+	 *            the command line parameter options provided with the javadoc
+	 *            call
+	 * @throws UnsupportedCommandLineParameterException
+	 *             thrown if the provided commandline parameters do not fit the
+	 *             requirements (too many or to few options per command)
+	 * @throws MissingCommandLineParameterException
+	 *             thrown if a parameter is missing.
+	 */
+	static void processOptions(final String[][] options)
+			throws UnsupportedCommandLineParameterException,
+			MissingCommandLineParameterException {
+		for (final String[] strings : options) {
+			final String tag = strings[0];
+			switch (tag) {
+			case "-output":
+				validateNumberOfParameters(strings, 1);
+				baseOutputDir = strings[1];
+				break;
+			case "-annotation":
+				validateNumberOfParameters(strings, 2);
+				configuredAnnotations.put(strings[1], strings[2]);
+				break;
+			case "-siteResources":
+				validateNumberOfParameters(strings, 1);
+				resourcesDir = strings[1];
+				break;
+			case "-threads":
+				validateNumberOfParameters(strings, 1);
+				try {
+					threads = Integer.parseInt(strings[1]);
+				} catch (final NumberFormatException e) {
+					throw new UnsupportedCommandLineParameterException(
+							"invalid number of threads provided: " + strings[1]
+									+ ".");
+				}
+				break;
+			case "-testReport":
+				validateNumberOfParameters(strings, 1);
+				testReport = strings[1];
+				break;
+			case "-optimizeImages":
+				validateNumberOfParameters(strings, 1);
+				try {
+					imageOptimizer = ImageOptimizer.parse(strings[1]);
+				} catch (final IllegalArgumentException e) {
+					throw new UnsupportedCommandLineParameterException(
+							"invalid image optimization provided: "
+									+ strings[1]
+									+ ". Use 'lossless' or a quality between 0 and 1.");
+				}
+				break;
+			case "-profile":
+				validateNumberOfParameters(strings, 1);
+				try {
+					profileCount = Integer.parseInt(strings[1]);
+				} catch (final NumberFormatException e) {
+					throw new UnsupportedCommandLineParameterException(
+							"invalid profile count provided: " + strings[1]
+									+ ".");
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		// validate if all parameters were provided
+		if (baseOutputDir == null) {
+			throw new MissingCommandLineParameterException(
+					"-output parameter is required but not provided.");
+		}
+		if (configuredAnnotations.isEmpty()) {
+			throw new MissingCommandLineParameterException(
+					"at least one '-annotation' configuration is required but none is provided.");
+		}
+
+	}
+
+	/**
+	 * @param strings
+	 *            the provided parameters as string array.
+	 * @param expected
+	 *            the number of expected parameter values
+	 * @throws UnsupportedCommandLineParameterException
+	 *             if the number of provided parameters do not match the given
+	 *             parameters.
+	 */
+	private static void validateNumberOfParameters(final String[] strings,
+			final int expected) throws UnsupportedCommandLineParameterException {
+		if (strings.length != (expected + 1)) {
+			throw new UnsupportedCommandLineParameterException(
+					"invalid number of arguments provided for output option. allowed is 1 parameter. found "
+							+ expected + ".");
+		}
+	}
+
+	/**
+	 * The number of values of each commandline parameter, including the
+	 * parameter itself, as required by the doclet APIs.
+	 * 
+	 * @param option
+	 *            the provided commandline parameter option.
+	 * @return the number of parameters.
+	 */
+	public static int optionLength(final String option) {
+		if ("-output".equals(option)) {
+			return 2;
+		}
+		if ("-annotation".equals(option)) {
+			return 3;
+		}
+		if ("-siteResources".equals(option)) {
+			return 2;
+		}
+		if ("-threads".equals(option)) {
+			return 2;
+		}
+		if ("-profile".equals(option)) {
+			return 2;
+		}
+		if ("-testReport".equals(option)) {
+			return 2;
+		}
+		if ("-optimizeImages".equals(option)) {
+			return 2;
+		}
+		return 0;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,215 @@
+package ch.puzzle.doclet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary snapshot of the {@link DocumentedElement}s extracted by the doclet.
+ * The snapshot is written to the output directory on every doclet run, so the
+ * pages can be rendered again with changed templates without running javadoc
+ * (see {@link ModelRenderer}). Front ends that only see the changed elements,
+ * e.g. the {@link AnnotationDrivenProcessor} with incremental compilation,
+ * update the snapshot instead, see {@link #update(File, List)}.
+ *
+ * The format is a magic number and a version, followed by the number of
+ * elements and for each element: the qualified annotation name, the
+ * destination folder, the replacements and the tags. Strings are written as
+ * length prefixed UTF-8, so there is no size limit for the javadoc texts.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class DocumentationModel {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** name of the snapshot file inside the output directory. */
+	static final String FILE_NAME = ".at-doclet.model";
+
+	/** magic number at the beginning of the file. */
+	private static final int MAGIC = 0x41544443;
+
+	/** version of the file format. */
+	private static final int VERSION = 1;
+
+	/**
+	 * Empty default constructor.
+	 */
+	private DocumentationModel() {
+		// empty default constructor
+	}
+
+	/**
+	 * Writes the given elements to the snapshot file.
+	 *
+	 * @param file
+	 *            the snapshot file.
+	 * @param elements
+	 *            the extracted elements in traversal order.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	static void write(final File file, final List<DocumentedElement> elements)
+			throws IOException {
+		if (elements.isEmpty() && !file.exists()) {
+			// nothing extracted, nothing to remember.
+			return;
+		}
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		try (final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(elements.size());
+			for (final DocumentedElement element : elements) {
+				writeString(out, element.getQualifiedAnnotationName());
+				writeString(out, element.getDestinationFolder());
+
+				out.writeInt(element.getReplacements().size());
+				for (final Entry<String, String> replacement : element
+						.getReplacements().entrySet()) {
+					writeString(out, replacement.getKey());
+					writeString(out, replacement.getValue());
+				}
+
+				out.writeInt(element.getTagNames().length);
+				for (int i = 0; i < element.getTagNames().length; i++) {
+					writeString(out, element.getTagNames()[i]);
+					writeString(out, element.getTagTexts()[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the elements from the snapshot file.
+	 *
+	 * @param file
+	 *            the snapshot file.
+	 * @return the elements in traversal order.
+	 * @throws IOException
+	 *             if the file cannot be read or has an unsupported format.
+	 */
+	static List<DocumentedElement> read(final File file) throws IOException {
+		try (final DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a documentation model.");
+			}
+			final int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("unsupported version " + version
+						+ " of documentation model " + file + ".");
+			}
+
+			final int size = in.readInt();
+			final List<DocumentedElement> elements = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				final String qualifiedAnnotationName = readString(in);
+				final String destinationFolder = readString(in);
+
+				final int replacementCount = in.readInt();
+				final Map<String, String> replacements = new HashMap<>();
+				for (int j = 0; j < replacementCount; j++) {
+					replacements.put(readString(in), readString(in));
+				}
+
+				final int tagCount = in.readInt();
+				final String[] tagNames = new String[tagCount];
+				final String[] tagTexts = new String[tagCount];
+				for (int j = 0; j < tagCount; j++) {
+					tagNames[j] = readString(in);
+					tagTexts[j] = readString(in);
+				}
+
+				elements.add(new DocumentedElement(qualifiedAnnotationName,
+						destinationFolder, replacements, tagNames, tagTexts));
+			}
+			return elements;
+		}
+	}
+
+	/**
+	 * Updates the snapshot file with the elements of an incremental run.
+	 * Elements written to the same file as an element of the snapshot replace
+	 * it, all other elements of the snapshot are kept.
+	 *
+	 * @param file
+	 *            the snapshot file.
+	 * @param elements
+	 *            the elements extracted by the incremental run.
+	 * @return all known elements: the elements of the snapshot, updated with
+	 *         the given elements.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	static List<DocumentedElement> update(final File file,
+			final List<DocumentedElement> elements) throws IOException {
+		final Map<String, DocumentedElement> byPath = new LinkedHashMap<>();
+		if (file.isFile()) {
+			try {
+				for (final DocumentedElement element : read(file)) {
+					byPath.put(element.getDestinationFilePath(), element);
+				}
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "Could not read documentation model "
+						+ file + ". Only the elements of this run are kept.", e);
+			}
+		}
+		for (final DocumentedElement element : elements) {
+			byPath.put(element.getDestinationFilePath(), element);
+		}
+		final List<DocumentedElement> model = new ArrayList<>(byPath.values());
+		write(file, model);
+		return model;
+	}
+
+	/**
+	 * @param out
+	 *            the stream to write to.
+	 * @param value
+	 *            the string to write, may be <code>null</code>.
+	 * @throws IOException
+	 */
+	private static void writeString(final DataOutputStream out,
+			final String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * @param in
+	 *            the stream to read from.
+	 * @return the string read, may be <code>null</code>.
+	 * @throws IOException
+	 */
+	private static String readString(final DataInputStream in)
+			throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,101 @@
+package ch.puzzle.doclet;
+
+import java.util.Map;
+
+/**
+ * The data extracted from the javadoc of one annotated type or method. It
+ * contains everything needed to render the page of the element, so rendering
+ * does not have to access the javadoc model anymore.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class DocumentedElement {
+
+	/** the qualified name of the annotation the element is documented for. */
+	private final String qualifiedAnnotationName;
+
+	/** the directory where to put the generated file. */
+	private final String destinationFolder;
+
+	/** the replacements found in the javadoc and the annotation. */
+	private final Map<String, String> replacements;
+
+	/** the names of the javadoc tags, including the '@'. */
+	private final String[] tagNames;
+
+	/** the raw texts of the javadoc tags. */
+	private final String[] tagTexts;
+
+	/**
+	 * @param qualifiedAnnotationName
+	 *            the qualified name of the annotation.
+	 * @param destinationFolder
+	 *            the directory where to put the generated file.
+	 * @param replacements
+	 *            the replacements found in the javadoc and the annotation.
+	 * @param tagNames
+	 *            the names of the javadoc tags.
+	 * @param tagTexts
+	 *            the raw texts of the javadoc tags.
+	 */
+	DocumentedElement(final String qualifiedAnnotationName,
+			final String destinationFolder,
+			final Map<String, String> replacements, final String[] tagNames,
+			final String[] tagTexts) {
+		this.qualifiedAnnotationName = qualifiedAnnotationName;
+		this.destinationFolder = destinationFolder;
+		this.replacements = replacements;
+		this.tagNames = tagNames;
+		this.tagTexts = tagTexts;
+	}
+
+	/**
+	 * @return the qualified name of the annotation.
+	 */
+	String getQualifiedAnnotationName() {
+		return this.qualifiedAnnotationName;
+	}
+
+	/**
+	 * @return the directory where to put the generated file.
+	 */
+	String getDestinationFolder() {
+		return this.destinationFolder;
+	}
+
+	/**
+	 * @return the replacements found in the javadoc and the annotation.
+	 */
+	Map<String, String> getReplacements() {
+		return this.replacements;
+	}
+
+	/**
+	 * @return the names of the javadoc tags.
+	 */
+	String[] getTagNames() {
+		return this.tagNames;
+	}
+
+	/**
+	 * @return the raw texts of the javadoc tags.
+	 */
+	String[] getTagTexts() {
+		return this.tagTexts;
+	}
+
+	/**
+	 * @return the id of the element, used as file name.
+	 */
+	String getId() {
+		return this.replacements.get("id");
+	}
+
+	/**
+	 * @return the path of the generated file.
+	 */
+	String getDestinationFilePath() {
+		return this.destinationFolder + "/" + this.getId() + ".apt";
+	}
+
+}
@@ -0,0 +1,503 @@
+package ch.puzzle.doclet;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Optimizes the PNG images of the site resources before the pages are
+ * generated. Every image is encoded again with the highest compression and
+ * without metadata. With a quality, it is converted to JPEG if that is
+ * smaller. The images of the site resources are never changed: if the result
+ * is smaller, it is written as copy to {@link #DIRECTORY} in the site
+ * resources, with the same relative path, and the image galleries link the
+ * copy instead of the image, see {@link #copyOf(File, File)}.
+ *
+ * The images are optimized in parallel, one thread per processor. The hash of
+ * every image and the name of its copy are kept in {@link #FILE_NAME} in the
+ * output directory, so unchanged images are skipped in the next run. Copies
+ * of images that do not exist anymore are deleted.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class ImageOptimizer {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** name of the file with the hashes of the optimized images. */
+	static final String FILE_NAME = ".at-doclet.images";
+
+	/** the directory of the optimized copies, relative to the site resources. */
+	static final String DIRECTORY = "generated/images";
+
+	/** the copy of an image that is not smaller when optimized. */
+	private static final String NO_COPY = "-";
+
+	/**
+	 * version of the optimization. Increase it whenever the optimization
+	 * changes, so all images are optimized again.
+	 */
+	private static final String VERSION = "2";
+
+	/** the quality to convert to JPEG, 0 to keep PNG. */
+	private final float quality;
+
+	/** the number of images optimized in the last run. */
+	private int optimized;
+
+	/** the number of images skipped in the last run. */
+	private int unchanged;
+
+	/** the number of bytes saved in the last run. */
+	private long savedBytes;
+
+	/**
+	 * @param quality
+	 *            the quality to convert to JPEG, between 0 (exclusive) and 1.
+	 *            0 to keep PNG.
+	 */
+	ImageOptimizer(final float quality) {
+		this.quality = quality;
+	}
+
+	/**
+	 * @param value
+	 *            the value of the parameter '-optimizeImages': 'lossless' or
+	 *            the JPEG quality between 0 (exclusive) and 1.
+	 * @return the optimizer.
+	 * @throws IllegalArgumentException
+	 *             if the value is invalid.
+	 */
+	static ImageOptimizer parse(final String value) {
+		if ("lossless".equals(value)) {
+			return new ImageOptimizer(0);
+		}
+		final float quality = Float.parseFloat(value);
+		if (!(quality > 0 && quality <= 1)) {
+			throw new IllegalArgumentException("quality " + value
+					+ " is not between 0 and 1.");
+		}
+		return new ImageOptimizer(quality);
+	}
+
+	/**
+	 * @param resourcesDir
+	 *            the site resources.
+	 * @param image
+	 *            an image of the site resources.
+	 * @return the optimized copy of the image, <code>null</code> if there is
+	 *         none.
+	 */
+	static File copyOf(final File resourcesDir, final File image) {
+		final String path = relativePath(resourcesDir, image);
+		if (path == null) {
+			return null;
+		}
+		final File copies = new File(resourcesDir, DIRECTORY);
+		final File png = new File(copies, path);
+		if (png.isFile()) {
+			return png;
+		}
+		final File jpeg = new File(copies, jpegName(path));
+		return jpeg.isFile() ? jpeg : null;
+	}
+
+	/**
+	 * Optimizes all PNG images of the site resources that changed since the
+	 * last run.
+	 *
+	 * @param resourcesDir
+	 *            the site resources.
+	 * @param outputDir
+	 *            the output directory, to keep the hashes of the optimized
+	 *            images.
+	 * @throws IOException
+	 *             if a copy or the hashes cannot be written.
+	 */
+	void optimize(final String resourcesDir, final String outputDir)
+			throws IOException {
+		this.optimized = 0;
+		this.unchanged = 0;
+		this.savedBytes = 0;
+
+		final File root = new File(resourcesDir);
+		final File copies = new File(root, DIRECTORY);
+		final File hashFile = new File(outputDir, FILE_NAME);
+		final Properties previous = new Properties();
+		if (hashFile.exists()) {
+			try (final InputStream in = new FileInputStream(hashFile)) {
+				previous.load(in);
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "Could not read " + hashFile
+						+ ". Optimizing all images.", e);
+				previous.clear();
+			}
+		}
+
+		final List<File> images = new ArrayList<>();
+		collect(root, copies, images);
+
+		final Map<String, String> current = new TreeMap<>();
+		final ExecutorService executor = Executors.newFixedThreadPool(Math
+				.max(1, Runtime.getRuntime().availableProcessors()));
+		try {
+			final List<Future<Result>> results = new ArrayList<>();
+			for (final File image : images) {
+				final String path = relativePath(root, image);
+				final String entry = previous.getProperty(path);
+				results.add(executor.submit(new Callable<Result>() {
+					@Override
+					public Result call() throws IOException {
+						return ImageOptimizer.this.optimize(image, path,
+								copies, entry);
+					}
+				}));
+			}
+			for (final Future<Result> future : results) {
+				final Result result = future.get();
+				if (result == null) {
+					continue;
+				}
+				current.put(result.path, result.entry);
+				if (result.savedBytes < 0) {
+					this.unchanged++;
+				} else {
+					this.optimized++;
+					this.savedBytes += result.savedBytes;
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while optimizing images.", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// the copies of removed images.
+		for (final String path : previous.stringPropertyNames()) {
+			if (!current.containsKey(path)) {
+				deleteCopies(copies, path);
+			}
+		}
+
+		if (current.isEmpty() && !hashFile.exists()) {
+			return;
+		}
+		final Properties properties = new Properties();
+		properties.putAll(current);
+		hashFile.getParentFile().mkdirs();
+		try (final OutputStream out = new FileOutputStream(hashFile)) {
+			properties.store(out, "generated by at-doclet. do not edit.");
+		}
+	}
+
+	/**
+	 * @param directory
+	 *            the directory to search.
+	 * @param copies
+	 *            the directory of the optimized copies, not searched.
+	 * @param images
+	 *            the list to add the PNG images to.
+	 */
+	private static void collect(final File directory, final File copies,
+			final List<File> images) {
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (final File file : files) {
+			if (file.isDirectory()) {
+				if (!file.equals(copies)) {
+					collect(file, copies, images);
+				}
+			} else if (file.getName().toLowerCase(Locale.ROOT).endsWith(".png")) {
+				images.add(file);
+			}
+		}
+	}
+
+	/**
+	 * @param root
+	 *            the site resources.
+	 * @param file
+	 *            a file of the site resources.
+	 * @return the path of the file relative to the site resources, with '/'
+	 *         as separator. <code>null</code> if the file is not in the site
+	 *         resources.
+	 */
+	private static String relativePath(final File root, final File file) {
+		final URI relative = root.getAbsoluteFile().toURI()
+				.relativize(file.getAbsoluteFile().toURI());
+		return relative.isAbsolute() ? null : relative.getPath();
+	}
+
+	/**
+	 * @param path
+	 *            the path of a PNG image.
+	 * @return the path of its JPEG copy.
+	 */
+	private static String jpegName(final String path) {
+		return path.replaceAll("(?i)\\.png$", ".jpg");
+	}
+
+	/**
+	 * Deletes the copies of an image, never the image itself.
+	 *
+	 * @param copies
+	 *            the directory of the optimized copies.
+	 * @param path
+	 *            the path of the image relative to the site resources.
+	 * @throws IOException
+	 *             if a copy cannot be deleted.
+	 */
+	private static void deleteCopies(final File copies, final String path)
+			throws IOException {
+		Files.deleteIfExists(new File(copies, path).toPath());
+		Files.deleteIfExists(new File(copies, jpegName(path)).toPath());
+	}
+
+	/**
+	 * Optimizes an image, unless it was optimized before. The image itself is
+	 * only read.
+	 *
+	 * @param image
+	 *            the image.
+	 * @param path
+	 *            the path of the image relative to the site resources.
+	 * @param copies
+	 *            the directory of the optimized copies.
+	 * @param previousEntry
+	 *            the hash of the image and the name of its copy after the
+	 *            last optimization, <code>null</code> if never optimized.
+	 * @return the result, <code>null</code> if the image cannot be read.
+	 * @throws IOException
+	 *             if the copy cannot be written.
+	 */
+	Result optimize(final File image, final String path, final File copies,
+			final String previousEntry) throws IOException {
+		final byte[] original = Files.readAllBytes(image.toPath());
+		final String hash = this.hash(original);
+		if (previousEntry != null && previousEntry.startsWith(hash + ' ')) {
+			final String copy = previousEntry.substring(hash.length() + 1);
+			if (NO_COPY.equals(copy) || new File(copies, copy).isFile()) {
+				return new Result(path, previousEntry, -1);
+			}
+		}
+
+		final BufferedImage decoded = ImageIO.read(image);
+		if (decoded == null) {
+			LOG.log(Level.WARNING, image + " is not a readable image. skipping.");
+			return null;
+		}
+		byte[] best = original;
+		String copy = path;
+		final byte[] png = encodePng(decoded);
+		if (png.length < best.length) {
+			best = png;
+		}
+		if (this.quality > 0) {
+			final byte[] jpeg = this.encodeJpeg(decoded);
+			if (jpeg.length < best.length) {
+				best = jpeg;
+				copy = jpegName(path);
+			}
+		}
+
+		deleteCopies(copies, path);
+		if (best == original) {
+			return new Result(path, hash + ' ' + NO_COPY, 0);
+		}
+		final File target = new File(copies, copy);
+		Files.createDirectories(target.getParentFile().toPath());
+		final File temp = new File(target.getPath() + ".tmp");
+		Files.write(temp.toPath(), best);
+		Files.move(temp.toPath(), target.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		return new Result(path, hash + ' ' + copy, original.length
+				- best.length);
+	}
+
+	/**
+	 * @param image
+	 *            the image.
+	 * @return the image as PNG with the highest compression, without
+	 *         metadata.
+	 * @throws IOException
+	 *             if the image cannot be encoded.
+	 */
+	static byte[] encodePng(final BufferedImage image) throws IOException {
+		final ImageWriter writer = writer("png");
+		final ImageWriteParam param = writer.getDefaultWriteParam();
+		if (param.canWriteCompressed()) {
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			// the lowest quality is the highest compression, png is lossless.
+			param.setCompressionQuality(0f);
+		}
+		return write(writer, param, image);
+	}
+
+	/**
+	 * @param image
+	 *            the image.
+	 * @return the image as JPEG of the configured quality, transparent pixels
+	 *         on white.
+	 * @throws IOException
+	 *             if the image cannot be encoded.
+	 */
+	private byte[] encodeJpeg(final BufferedImage image) throws IOException {
+		final BufferedImage rgb = new BufferedImage(image.getWidth(),
+				image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		final Graphics2D graphics = rgb.createGraphics();
+		try {
+			graphics.drawImage(image, 0, 0, Color.WHITE, null);
+		} finally {
+			graphics.dispose();
+		}
+		final ImageWriter writer = writer("jpg");
+		final ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setCompressionQuality(this.quality);
+		return write(writer, param, rgb);
+	}
+
+	/**
+	 * @param format
+	 *            the format name.
+	 * @return a writer of the format.
+	 * @throws IOException
+	 *             if the format is not supported.
+	 */
+	private static ImageWriter writer(final String format) throws IOException {
+		final Iterator<ImageWriter> writers = ImageIO
+				.getImageWritersByFormatName(format);
+		if (!writers.hasNext()) {
+			throw new IOException("no image writer for " + format + ".");
+		}
+		return writers.next();
+	}
+
+	/**
+	 * @param writer
+	 *            the writer.
+	 * @param param
+	 *            the parameters of the writer.
+	 * @param image
+	 *            the image to write, without metadata.
+	 * @return the encoded image.
+	 * @throws IOException
+	 *             if the image cannot be encoded.
+	 */
+	private static byte[] write(final ImageWriter writer,
+			final ImageWriteParam param, final BufferedImage image)
+			throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final ImageOutputStream stream = ImageIO
+				.createImageOutputStream(out)) {
+			writer.setOutput(stream);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param bytes
+	 *            the content of an image.
+	 * @return the hash of the content and the optimization.
+	 */
+	private String hash(final byte[] bytes) {
+		final MessageDigest digest = Manifest.newDigest();
+		Manifest.update(digest, VERSION);
+		Manifest.update(digest, String.valueOf(this.quality));
+		digest.update(bytes);
+		return Manifest.toHex(digest.digest());
+	}
+
+	/**
+	 * @return the number of images optimized in the last run.
+	 */
+	int getOptimized() {
+		return this.optimized;
+	}
+
+	/**
+	 * @return the number of images skipped in the last run, because they were
+	 *         optimized before.
+	 */
+	int getUnchanged() {
+		return this.unchanged;
+	}
+
+	/**
+	 * @return the number of bytes saved in the last run.
+	 */
+	long getSavedBytes() {
+		return this.savedBytes;
+	}
+
+	/**
+	 * The result of the optimization of an image.
+	 */
+	static final class Result {
+
+		/** the path of the image relative to the site resources. */
+		private final String path;
+
+		/** the hash of the image and the name of its copy. */
+		private final String entry;
+
+		/** the bytes saved, -1 if skipped. */
+		private final long savedBytes;
+
+		/**
+		 * @param path
+		 *            the path of the image relative to the site resources.
+		 * @param entry
+		 *            the hash of the image and the name of its copy.
+		 * @param savedBytes
+		 *            the bytes saved, -1 if skipped.
+		 */
+		Result(final String path, final String entry, final long savedBytes) {
+			this.path = path;
+			this.entry = entry;
+			this.savedBytes = savedBytes;
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Manifest of the files generated by the doclet. It maps each generated file
+ * to a hash of everything the file was generated from: the javadoc tags, the
+ * annotation values, the template and the site resources the template refers
+ * to. Files whose hash did not change since the last run are not written
+ * again.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class Manifest {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** name of the manifest file inside the output directory. */
+	static final String FILE_NAME = ".at-doclet.manifest";
+
+	/**
+	 * version of the hashed content. Increase it whenever the rendered output
+	 * changes for the same input, so all files are generated again.
+	 */
+	private static final String VERSION = "1";
+
+	/** the manifest file. */
+	private final File file;
+
+	/** the hashes of the last run, by generated file. */
+	private final Properties previous = new Properties();
+
+	/** the hashes of the current run, by generated file. */
+	private final Map<String, String> current = new TreeMap<>();
+
+	/**
+	 * @param file
+	 *            the manifest file.
+	 */
+	private Manifest(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Reads the manifest of the last run from the given output directory. If
+	 * no manifest exists or it cannot be read, all files are considered
+	 * changed.
+	 *
+	 * @param outputDir
+	 *            the base output directory of the doclet.
+	 * @return the manifest.
+	 */
+	static Manifest load(final String outputDir) {
+		final Manifest manifest = new Manifest(new File(outputDir, FILE_NAME));
+		if (manifest.file.exists()) {
+			try (final InputStream in = new FileInputStream(manifest.file)) {
+				manifest.previous.load(in);
+			} catch (final IOException e) {
+				LOG.log(Level.WARNING, "Could not read manifest "
+						+ manifest.file + ". Generating all files.", e);
+				manifest.previous.clear();
+			}
+		}
+		return manifest;
+	}
+
+	/**
+	 * Registers the given file for the current run.
+	 *
+	 * @param destinationFilePath
+	 *            the generated file.
+	 * @param hash
+	 *            the hash of the inputs of the file.
+	 * @return <code>true</code> if the file exists and was generated from the
+	 *         same inputs in the last run.
+	 */
+	boolean isUpToDate(final String destinationFilePath, final String hash) {
+		this.current.put(destinationFilePath, hash);
+		return hash.equals(this.previous.getProperty(destinationFilePath))
+				&& new File(destinationFilePath).exists();
+	}
+
+	/**
+	 * Deletes all files of the last run that were not registered in the
+	 * current run, because their annotated element does not exist anymore.
+	 *
+	 * @return the deleted files.
+	 */
+	List<String> deleteRemoved() {
+		final List<String> removed = new ArrayList<>();
+		for (final String path : this.previous.stringPropertyNames()) {
+			if (!this.current.containsKey(path)) {
+				final File removedFile = new File(path);
+				if (removedFile.exists() && !removedFile.delete()) {
+					LOG.log(Level.WARNING, "Could not delete " + path + ".");
+				}
+				removed.add(path);
+			}
+		}
+		Collections.sort(removed);
+		return removed;
+	}
+
+	/**
+	 * Keeps all files of the last run that were not registered in the current
+	 * run. Used if the current run only saw a part of the documented elements,
+	 * e.g. in an incremental compilation.
+	 *
+	 * @return an empty list, no files are deleted.
+	 */
+	List<String> keepRemaining() {
+		for (final String path : this.previous.stringPropertyNames()) {
+			if (!this.current.containsKey(path)) {
+				this.current.put(path, this.previous.getProperty(path));
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Writes the hashes of the current run to the manifest file.
+	 *
+	 * @throws IOException
+	 *             if the manifest cannot be written.
+	 */
+	void save() throws IOException {
+		if (this.current.isEmpty() && !this.file.exists()) {
+			// nothing generated, nothing to remember.
+			return;
+		}
+		final Properties properties = new Properties();
+		properties.putAll(this.current);
+		this.file.getParentFile().mkdirs();
+		try (final OutputStream out = new FileOutputStream(this.file)) {
+			properties.store(out, "generated by at-doclet. do not edit.");
+		}
+	}
+
+	/**
+	 * Computes the hash of all inputs of the given element.
+	 *
+	 * @param element
+	 *            the element to hash.
+	 * @param template
+	 *            the compiled template of the element or <code>null</code> if
+	 *            none is available.
+	 * @return the hash as hex string.
+	 */
+	static String hash(final DocumentedElement element, final Template template) {
+		final MessageDigest digest = newDigest();
+		update(digest, VERSION);
+		update(digest, element.getQualifiedAnnotationName());
+		for (int i = 0; i < element.getTagNames().length; i++) {
+			update(digest, element.getTagNames()[i]);
+			update(digest, element.getTagTexts()[i]);
+		}
+		for (final Entry<String, String> replacement : new TreeMap<>(
+				element.getReplacements()).entrySet()) {
+			update(digest, replacement.getKey());
+			update(digest, replacement.getValue());
+		}
+		if (template != null) {
+			update(digest, template.getHash());
+			final StringBuilder resources = new StringBuilder();
+			template.describeResources(element.getReplacements(), resources);
+			update(digest, resources.toString());
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * @return a new SHA-1 message digest.
+	 */
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not supported.", e);
+		}
+	}
+
+	/**
+	 * Adds the given value and a separator to the digest.
+	 *
+	 * @param digest
+	 *            the digest to update.
+	 * @param value
+	 *            the value to add, may be <code>null</code>.
+	 */
+	static void update(final MessageDigest digest, final String value) {
+		digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * @param bytes
+	 *            the bytes to convert.
+	 * @return the bytes as lower case hex string.
+	 */
+	static String toHex(final byte[] bytes) {
+		final StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (final byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
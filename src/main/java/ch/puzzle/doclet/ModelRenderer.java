@@ -0,0 +1,99 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ch.puzzle.doclet.exceptions.UnsupportedCommandLineParameterException;
+
+/**
+ * Renders the pages again from the documentation model written by the last
+ * doclet run and the current templates, without starting javadoc. Useful if
+ * only templates or site resources changed.
+ *
+ * Takes the same parameters as the doclet, e.g.
+ *
+ * <pre>
+ * java -cp at-doclet.jar ch.puzzle.doclet.ModelRenderer -output ~/docs
+ *     -annotation ch.puzzle.example.Page ~/templates/pages.apt.template
+ * </pre>
+ *
+ * The '-output' parameter must be the same as in the doclet run.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ModelRenderer {
+
+	/**
+	 * Empty default constructor.
+	 */
+	private ModelRenderer() {
+		// empty default constructor
+	}
+
+	/**
+	 * @param args
+	 *            the same commandline parameters as provided to the doclet.
+	 * @throws Exception
+	 *             if a parameter is missing or invalid, or the files cannot be
+	 *             read or written.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final long optionsStart = System.nanoTime();
+		DocumentationGenerator.processOptions(toOptions(args));
+		DocumentationGenerator.profile.record(RunProfile.OPTIONS,
+				optionsStart);
+
+		final File model = new File(DocumentationGenerator.baseOutputDir,
+				DocumentationModel.FILE_NAME);
+		if (!model.exists()) {
+			System.err.println("No documentation model found in "
+					+ DocumentationGenerator.baseOutputDir
+					+ ". Run the doclet first.");
+			System.exit(1);
+		}
+
+		final long traversalStart = System.nanoTime();
+		final List<DocumentedElement> elements = DocumentationModel
+				.read(model);
+		DocumentationGenerator.profile.record(RunProfile.TRAVERSAL,
+				traversalStart);
+
+		for (final String notice : DocumentationGenerator.generate(elements,
+				true)) {
+			System.out.println(notice);
+		}
+	}
+
+	/**
+	 * Groups the commandline arguments the same way javadoc does for the
+	 * doclet options.
+	 *
+	 * @param args
+	 *            the commandline arguments.
+	 * @return the options, each with its values.
+	 * @throws UnsupportedCommandLineParameterException
+	 *             if an unknown option or too few values are provided.
+	 */
+	static String[][] toOptions(final String[] args)
+			throws UnsupportedCommandLineParameterException {
+		final List<String[]> options = new ArrayList<>();
+		int i = 0;
+		while (i < args.length) {
+			final int length = DocumentationGenerator.optionLength(args[i]);
+			if (length == 0) {
+				throw new UnsupportedCommandLineParameterException(
+						"unsupported option " + args[i] + ".");
+			}
+			if (i + length > args.length) {
+				throw new UnsupportedCommandLineParameterException(
+						"invalid number of arguments provided for " + args[i]
+								+ " option.");
+			}
+			options.add(Arrays.copyOfRange(args, i, i + length));
+			i += length;
+		}
+		return options.toArray(new String[options.size()][]);
+	}
+}
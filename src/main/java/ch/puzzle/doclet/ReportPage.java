@@ -0,0 +1,299 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import ch.puzzle.annotations.TestCase;
+import ch.puzzle.doc.reports.TestReportParser;
+import ch.puzzle.doc.reports.TestReportRowHandler;
+import ch.puzzle.doc.reports.TestResult;
+
+/**
+ * Generates the page of the test report into the site resources. The report
+ * is read row by row and written as JSON chunks of {@link #CHUNK_ROWS} rows.
+ * The page loads the chunks on demand and renders only the visible rows and
+ * columns, so it opens at once for any size of the report.
+ *
+ * <ul>
+ * <li>index.html: the page.</li>
+ * <li>meta.json: the releases, the use cases and the use case of each row.</li>
+ * <li>rows-&lt;n&gt;.json: the test cases and the results of a chunk, one
+ * character per release: O (OK), N (NOK), . (n/a) or ? (invalid).</li>
+ * </ul>
+ *
+ * The use case of a test case is taken from the {@link TestCase} annotation of
+ * the documented elements.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class ReportPage {
+
+	/** the directory of the page, relative to the site resources. */
+	static final String DIRECTORY = "generated/testreport";
+
+	/** the number of rows per chunk. */
+	static final int CHUNK_ROWS = 256;
+
+	/** the page template, a resource next to this class. */
+	private static final String PAGE_TEMPLATE = "testreport.html";
+
+	/** the chunk files, with the number of the chunk as group 1. */
+	private static final Pattern CHUNK = Pattern.compile("^rows-(\\d+)\\.json$");
+
+	/**
+	 * Empty default constructor.
+	 */
+	private ReportPage() {
+		// empty default constructor
+	}
+
+	/**
+	 * Writes the page of the given report.
+	 *
+	 * @param reportFile
+	 *            the test report.
+	 * @param elements
+	 *            the documented elements, to look up the use case of each
+	 *            test case.
+	 * @param directory
+	 *            the directory to write the page to.
+	 * @return the number of rows written.
+	 * @throws IOException
+	 *             if the report cannot be read or the page cannot be written.
+	 */
+	static int write(final File reportFile,
+			final List<DocumentedElement> elements, final File directory)
+			throws IOException {
+		final Map<String, String> useCaseOfTestCase = new HashMap<>();
+		for (final DocumentedElement element : elements) {
+			if (TestCase.class.getName().equals(
+					element.getQualifiedAnnotationName())
+					&& element.getReplacements().get("useCase") != null) {
+				useCaseOfTestCase.put(element.getId(), element
+						.getReplacements().get("useCase")
+						.replaceAll("\\.class$", ""));
+			}
+		}
+
+		FileUtils.forceMkdir(directory);
+		final ChunkWriter chunks = new ChunkWriter(directory, useCaseOfTestCase);
+		try {
+			TestReportParser.parseTestReport(reportFile, chunks);
+		} catch (final IllegalStateException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+		chunks.flush();
+		deleteChunks(directory, chunks.chunk);
+
+		final StringBuilder meta = new StringBuilder();
+		meta.append("{\"chunkRows\":").append(CHUNK_ROWS)
+				.append(",\"rows\":").append(chunks.rows)
+				.append(",\"releases\":");
+		appendArray(meta, chunks.releases);
+		meta.append(",\"useCases\":");
+		appendArray(meta, new ArrayList<>(chunks.useCases.keySet()));
+		meta.append(",\"rowUseCase\":[");
+		for (int row = 0; row < chunks.rowUseCase.size(); row++) {
+			if (row > 0) {
+				meta.append(',');
+			}
+			meta.append(chunks.rowUseCase.get(row));
+		}
+		meta.append("]}\n");
+		FileUtils.writeStringToFile(new File(directory, "meta.json"),
+				meta.toString(), "UTF-8");
+
+		try (final InputStream page = ReportPage.class
+				.getResourceAsStream(PAGE_TEMPLATE)) {
+			if (page == null) {
+				throw new IOException("page template " + PAGE_TEMPLATE
+						+ " not found.");
+			}
+			FileUtils.writeByteArrayToFile(new File(directory, "index.html"),
+					IOUtils.toByteArray(page));
+		}
+		return chunks.rows;
+	}
+
+	/**
+	 * Deletes the chunks of an earlier, larger report.
+	 *
+	 * @param directory
+	 *            the directory of the page.
+	 * @param chunkCount
+	 *            the number of chunks written.
+	 */
+	private static void deleteChunks(final File directory, final int chunkCount) {
+		final File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				final Matcher matcher = CHUNK.matcher(name);
+				return matcher.matches()
+						&& Integer.parseInt(matcher.group(1)) >= chunkCount;
+			}
+		});
+		if (files != null) {
+			for (final File file : files) {
+				FileUtils.deleteQuietly(file);
+			}
+		}
+	}
+
+	/**
+	 * @param sb
+	 *            the builder to append to.
+	 * @param values
+	 *            the values to append as JSON array of strings.
+	 */
+	private static void appendArray(final StringBuilder sb,
+			final List<String> values) {
+		sb.append('[');
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			RunProfile.appendString(sb, values.get(i));
+		}
+		sb.append(']');
+	}
+
+	/**
+	 * @param result
+	 *            a result, <code>null</code> if invalid.
+	 * @return the character of the result in a chunk.
+	 */
+	static char code(final TestResult result) {
+		if (result == null) {
+			return '?';
+		}
+		switch (result) {
+		case SUCCEEDED:
+			return 'O';
+		case FAILED:
+			return 'N';
+		default:
+			return '.';
+		}
+	}
+
+	/**
+	 * Writes the rows of the report in chunks.
+	 */
+	private static final class ChunkWriter extends TestReportRowHandler {
+
+		/** the directory of the page. */
+		private final File directory;
+
+		/** the use case of each test case. */
+		private final Map<String, String> useCaseOfTestCase;
+
+		/** the releases of the report. */
+		private final List<String> releases = new ArrayList<>();
+
+		/** the index of each use case, in the order they were found. */
+		private final Map<String, Integer> useCases = new LinkedHashMap<>();
+
+		/** the index of the use case of each row, -1 if unknown. */
+		private final List<Integer> rowUseCase = new ArrayList<>();
+
+		/** the test cases of the current chunk. */
+		private final List<String> testCases = new ArrayList<>();
+
+		/** the results of the current chunk. */
+		private final List<String> results = new ArrayList<>();
+
+		/** the number of rows read. */
+		private int rows;
+
+		/** the number of chunks written. */
+		private int chunk;
+
+		/**
+		 * @param directory
+		 *            the directory of the page.
+		 * @param useCaseOfTestCase
+		 *            the use case of each test case.
+		 */
+		ChunkWriter(final File directory,
+				final Map<String, String> useCaseOfTestCase) {
+			this.directory = directory;
+			this.useCaseOfTestCase = useCaseOfTestCase;
+		}
+
+		@Override
+		public void releases(final String[] releaseNames) {
+			for (final String release : releaseNames) {
+				this.releases.add(release);
+			}
+		}
+
+		@Override
+		public void row(final String testCase, final TestResult[] rowResults) {
+			final char[] codes = new char[rowResults.length];
+			for (int i = 0; i < rowResults.length; i++) {
+				codes[i] = code(rowResults[i]);
+			}
+			this.testCases.add(testCase);
+			this.results.add(new String(codes));
+
+			final String useCase = this.useCaseOfTestCase.get(testCase);
+			Integer index = Integer.valueOf(-1);
+			if (useCase != null) {
+				index = this.useCases.get(useCase);
+				if (index == null) {
+					index = Integer.valueOf(this.useCases.size());
+					this.useCases.put(useCase, index);
+				}
+			}
+			this.rowUseCase.add(index);
+
+			this.rows++;
+			if (this.testCases.size() == CHUNK_ROWS) {
+				try {
+					this.flush();
+				} catch (final IOException e) {
+					throw new IllegalStateException("Could not write chunk "
+							+ this.chunk + " of the test report page.", e);
+				}
+			}
+		}
+
+		/**
+		 * Writes the current chunk, if it has rows.
+		 *
+		 * @throws IOException
+		 *             if the chunk cannot be written.
+		 */
+		void flush() throws IOException {
+			if (this.testCases.isEmpty()) {
+				return;
+			}
+			final StringBuilder sb = new StringBuilder();
+			sb.append("{\"testCases\":");
+			appendArray(sb, this.testCases);
+			sb.append(",\"results\":");
+			appendArray(sb, this.results);
+			sb.append("}\n");
+			FileUtils.writeStringToFile(new File(this.directory, "rows-"
+					+ this.chunk + ".json"), sb.toString(), "UTF-8");
+			this.chunk++;
+			this.testCases.clear();
+			this.results.clear();
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.activation.MimetypesFileTypeMap;
+
+/**
+ * In-memory catalog of the site resources directory. The directory is walked
+ * once and every file is recorded with its media type and size, so images and
+ * screencast directives can be resolved without listing directories or
+ * probing files for every generated page.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class ResourceCatalog {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** the resources directory as configured. */
+	private final String resourcesDir;
+
+	/** the entries of each directory, sorted, by normalized directory path. */
+	private final Map<String, List<Entry>> directories = new HashMap<>();
+
+	/** the normalized paths of all files and directories in the catalog. */
+	private final Set<String> paths = new HashSet<>();
+
+	/**
+	 * @param resourcesDir
+	 *            the resources directory as configured.
+	 */
+	private ResourceCatalog(final String resourcesDir) {
+		this.resourcesDir = resourcesDir;
+	}
+
+	/**
+	 * Walks the given resources directory and records all files.
+	 *
+	 * @param resourcesDir
+	 *            the resources directory.
+	 * @return the catalog. Empty if the directory does not exist.
+	 */
+	static ResourceCatalog scan(final String resourcesDir) {
+		final ResourceCatalog catalog = new ResourceCatalog(resourcesDir);
+		final Path root = new File(resourcesDir).toPath();
+		if (!Files.isDirectory(root)) {
+			return catalog;
+		}
+
+		final MimetypesFileTypeMap mimetypesFileTypeMap = new MimetypesFileTypeMap();
+		mimetypesFileTypeMap.addMimeTypes("image png tif jpg jpeg bmp");
+
+		try {
+			Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+					Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult preVisitDirectory(
+								final Path dir, final BasicFileAttributes attrs) {
+							catalog.entries(dir);
+							if (!dir.equals(root)) {
+								this.record(dir, attrs);
+							}
+							return FileVisitResult.CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFile(final Path file,
+								final BasicFileAttributes attrs) {
+							this.record(file, attrs);
+							return FileVisitResult.CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFileFailed(final Path file,
+								final IOException e) {
+							LOG.log(Level.WARNING, "Could not read " + file
+									+ ". skipping.", e);
+							return FileVisitResult.CONTINUE;
+						}
+
+						/**
+						 * @param path
+						 *            the file or directory to record in its
+						 *            parent directory.
+						 * @param attrs
+						 *            the attributes of the file.
+						 */
+						private void record(final Path path,
+								final BasicFileAttributes attrs) {
+							final String name = path.getFileName().toString();
+							catalog.paths.add(key(path.toFile()));
+							catalog.entries(path.getParent()).add(
+									new Entry(name, mimetypesFileTypeMap
+											.getContentType(name).split("/")[0],
+											attrs.size(), attrs
+													.lastModifiedTime()
+													.toMillis()));
+						}
+					});
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING, "Could not read site resources in "
+					+ resourcesDir + ".", e);
+		}
+
+		for (final List<Entry> entries : catalog.directories.values()) {
+			Collections.sort(entries, new Comparator<Entry>() {
+				@Override
+				public int compare(final Entry first, final Entry second) {
+					return new File(first.name)
+							.compareTo(new File(second.name));
+				}
+			});
+		}
+		return catalog;
+	}
+
+	/**
+	 * @param dir
+	 *            the directory.
+	 * @return the (modifiable) entries of the directory.
+	 */
+	private List<Entry> entries(final Path dir) {
+		final String key = key(dir.toFile());
+		List<Entry> entries = this.directories.get(key);
+		if (entries == null) {
+			entries = new ArrayList<>();
+			this.directories.put(key, entries);
+		}
+		return entries;
+	}
+
+	/**
+	 * @param resourcesDirectory
+	 *            the configured resources directory.
+	 * @return whether this catalog was built for the given directory.
+	 */
+	boolean isFor(final String resourcesDirectory) {
+		return this.resourcesDir.equals(resourcesDirectory);
+	}
+
+	/**
+	 * @param dir
+	 *            the directory to list.
+	 * @return the sorted entries of the directory or <code>null</code> if the
+	 *         directory does not exist.
+	 */
+	List<Entry> list(final File dir) {
+		final List<Entry> entries = this.directories.get(key(dir));
+		return entries == null ? null : Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * @param file
+	 *            the file to look for.
+	 * @return whether the file exists in the catalog.
+	 */
+	boolean exists(final File file) {
+		return this.paths.contains(key(file));
+	}
+
+	/**
+	 * @param file
+	 *            a file or directory.
+	 * @return the normalized absolute path of the file.
+	 */
+	private static String key(final File file) {
+		return file.getAbsoluteFile().toPath().normalize().toString();
+	}
+
+	/**
+	 * A file or directory in the catalog.
+	 */
+	static final class Entry {
+
+		/** the name of the file. */
+		private final String name;
+
+		/** the major media type of the file, e.g. 'image'. */
+		private final String mediaType;
+
+		/** the size of the file in bytes. */
+		private final long size;
+
+		/** the last modification time in milliseconds. */
+		private final long lastModified;
+
+		/**
+		 * @param name
+		 *            the name of the file.
+		 * @param mediaType
+		 *            the major media type of the file.
+		 * @param size
+		 *            the size of the file in bytes.
+		 * @param lastModified
+		 *            the last modification time in milliseconds.
+		 */
+		Entry(final String name, final String mediaType, final long size,
+				final long lastModified) {
+			this.name = name;
+			this.mediaType = mediaType;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * @return the name of the file.
+		 */
+		String getName() {
+			return this.name;
+		}
+
+		/**
+		 * @return the major media type of the file, e.g. 'image'.
+		 */
+		String getMediaType() {
+			return this.mediaType;
+		}
+
+		/**
+		 * @return the size of the file in bytes.
+		 */
+		long getSize() {
+			return this.size;
+		}
+
+		/**
+		 * @return the last modification time in milliseconds.
+		 */
+		long getLastModified() {
+			return this.lastModified;
+		}
+	}
+}
@@ -0,0 +1,339 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Counts and times the phases of a doclet run, the rendering of each template
+ * and of each element, and the bytes written. The profile is written as JSON
+ * report to the output directory after each run.
+ *
+ * The total time is measured from the start of the generation, see
+ * {@link #start()}. Phases may be nested and run on several threads, and the
+ * front ends time the options and the traversal before the generation, so
+ * the sum of the phase times can exceed the total time.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class RunProfile {
+
+	/** name of the report file in the output directory. */
+	static final String FILE_NAME = ".at-doclet.profile.json";
+
+	/** the version of the report format. */
+	static final String VERSION = "1";
+
+	/** the number of slowest elements in the report. */
+	static final int SLOWEST_ELEMENTS = 20;
+
+	/** phase: processing the commandline parameters. */
+	static final String OPTIONS = "options";
+
+	/** phase: traversing the documentation model of the front end. */
+	static final String TRAVERSAL = "traversal";
+
+	/** phase: normalizing the tag texts and annotation values. */
+	static final String NORMALIZATION = "normalization";
+
+	/** phase: hashing the inputs and checking the manifest. */
+	static final String HASHING = "hashing";
+
+	/** phase: rendering the templates, includes images and screencasts. */
+	static final String RENDERING = "rendering";
+
+	/** phase: resolving the images directives. */
+	static final String IMAGES = "images";
+
+	/** phase: resolving the screencast directives. */
+	static final String SCREENCASTS = "screencasts";
+
+	/** phase: writing the generated files. */
+	static final String WRITING = "writing";
+
+	/** phase: generating the test report page. */
+	static final String TEST_REPORT = "testreport";
+
+	/** phase: optimizing the images of the site resources. */
+	static final String OPTIMIZING = "optimizing";
+
+	/** the start of the generation in nanoseconds. */
+	private long started = System.nanoTime();
+
+	/** the timer of each phase, in the order the phases first ran. */
+	private final Map<String, Timer> phases = new LinkedHashMap<>();
+
+	/** the timer of each template, by template path. */
+	private final Map<String, Timer> templates = new TreeMap<>();
+
+	/** the rendering time in nanoseconds of each element, by file path. */
+	private final Map<String, Long> elements = new LinkedHashMap<>();
+
+	/** the number of files written. */
+	private int filesWritten;
+
+	/** the number of bytes written. */
+	private long bytesWritten;
+
+	/**
+	 * Starts the clock of the total time, e.g. at the start of the generation,
+	 * so the time since the profile was created is not counted.
+	 */
+	synchronized void start() {
+		this.started = System.nanoTime();
+	}
+
+	/**
+	 * @param phase
+	 *            the phase to record.
+	 * @param start
+	 *            the start of the phase, as returned by
+	 *            {@link System#nanoTime()}.
+	 */
+	synchronized void record(final String phase, final long start) {
+		timer(this.phases, phase).add(System.nanoTime() - start);
+	}
+
+	/**
+	 * @param templatePath
+	 *            the template the element was rendered with.
+	 * @param filePath
+	 *            the file the element was rendered to.
+	 * @param start
+	 *            the start of the rendering, as returned by
+	 *            {@link System#nanoTime()}.
+	 */
+	synchronized void recordElement(final String templatePath,
+			final String filePath, final long start) {
+		final long nanos = System.nanoTime() - start;
+		timer(this.templates, String.valueOf(templatePath)).add(nanos);
+		this.elements.put(filePath, Long.valueOf(nanos));
+	}
+
+	/**
+	 * @param bytes
+	 *            the number of bytes of the written file.
+	 */
+	synchronized void recordFile(final long bytes) {
+		this.filesWritten++;
+		this.bytesWritten += bytes;
+	}
+
+	/**
+	 * @param timers
+	 *            the timers to look in.
+	 * @param name
+	 *            the name of the timer.
+	 * @return the timer, created if not yet present.
+	 */
+	private static Timer timer(final Map<String, Timer> timers,
+			final String name) {
+		Timer timer = timers.get(name);
+		if (timer == null) {
+			timer = new Timer();
+			timers.put(name, timer);
+		}
+		return timer;
+	}
+
+	/**
+	 * @param count
+	 *            the maximum number of elements to return.
+	 * @return the slowest elements, the slowest first.
+	 */
+	private List<Entry<String, Long>> slowestElements(final int count) {
+		final List<Entry<String, Long>> sorted = new ArrayList<>(
+				this.elements.entrySet());
+		Collections.sort(sorted, new Comparator<Entry<String, Long>>() {
+			@Override
+			public int compare(final Entry<String, Long> first,
+					final Entry<String, Long> second) {
+				return second.getValue().compareTo(first.getValue());
+			}
+		});
+		return sorted.subList(0, Math.min(count, sorted.size()));
+	}
+
+	/**
+	 * @param count
+	 *            the number of templates and elements to print.
+	 * @return a human readable summary of the phases and the slowest
+	 *         templates and elements.
+	 */
+	synchronized List<String> summary(final int count) {
+		final List<String> summary = new ArrayList<>();
+		summary.add("at-doclet profile: " + millis(System.nanoTime()
+				- this.started) + " ms total, " + this.filesWritten
+				+ " file(s), " + this.bytesWritten + " bytes written.");
+		for (final Entry<String, Timer> phase : this.phases.entrySet()) {
+			summary.add("at-doclet profile: phase " + phase.getKey() + " "
+					+ phase.getValue());
+		}
+
+		final List<Entry<String, Timer>> sortedTemplates = new ArrayList<>(
+				this.templates.entrySet());
+		Collections.sort(sortedTemplates,
+				new Comparator<Entry<String, Timer>>() {
+					@Override
+					public int compare(final Entry<String, Timer> first,
+							final Entry<String, Timer> second) {
+						return Long.compare(second.getValue().nanos,
+								first.getValue().nanos);
+					}
+				});
+		for (final Entry<String, Timer> template : sortedTemplates.subList(0,
+				Math.min(count, sortedTemplates.size()))) {
+			summary.add("at-doclet profile: template " + template.getKey()
+					+ " " + template.getValue());
+		}
+
+		for (final Entry<String, Long> element : this.slowestElements(count)) {
+			summary.add("at-doclet profile: element " + element.getKey() + " "
+					+ millis(element.getValue().longValue()) + " ms");
+		}
+		return summary;
+	}
+
+	/**
+	 * @return the profile as JSON.
+	 */
+	synchronized String toJson() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{\n  \"version\": ").append(VERSION);
+		sb.append(",\n  \"totalNanos\": ").append(
+				System.nanoTime() - this.started);
+		sb.append(",\n  \"filesWritten\": ").append(this.filesWritten);
+		sb.append(",\n  \"bytesWritten\": ").append(this.bytesWritten);
+		sb.append(",\n  \"phases\": ");
+		appendTimers(sb, this.phases);
+		sb.append(",\n  \"templates\": ");
+		appendTimers(sb, this.templates);
+		sb.append(",\n  \"slowestElements\": [");
+		String separator = "\n";
+		for (final Entry<String, Long> element : this
+				.slowestElements(SLOWEST_ELEMENTS)) {
+			sb.append(separator).append("    {\"file\": ");
+			appendString(sb, element.getKey());
+			sb.append(", \"nanos\": ").append(element.getValue()).append('}');
+			separator = ",\n";
+		}
+		sb.append(separator.length() == 1 ? "]" : "\n  ]");
+		sb.append("\n}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the profile to the report file.
+	 *
+	 * @param outputDir
+	 *            the output directory of the doclet.
+	 * @throws IOException
+	 *             if the report cannot be written.
+	 */
+	void write(final String outputDir) throws IOException {
+		FileUtils.writeStringToFile(new File(outputDir, FILE_NAME),
+				this.toJson(), "UTF-8");
+	}
+
+	/**
+	 * @param sb
+	 *            the builder to append to.
+	 * @param timers
+	 *            the timers to append as JSON object.
+	 */
+	private static void appendTimers(final StringBuilder sb,
+			final Map<String, Timer> timers) {
+		sb.append('{');
+		String separator = "\n";
+		for (final Entry<String, Timer> timer : timers.entrySet()) {
+			sb.append(separator).append("    ");
+			appendString(sb, timer.getKey());
+			sb.append(": {\"count\": ").append(timer.getValue().count)
+					.append(", \"nanos\": ").append(timer.getValue().nanos)
+					.append('}');
+			separator = ",\n";
+		}
+		sb.append(separator.length() == 1 ? "}" : "\n  }");
+	}
+
+	/**
+	 * @param sb
+	 *            the builder to append to.
+	 * @param value
+	 *            the string to append as quoted and escaped JSON string.
+	 */
+	static void appendString(final StringBuilder sb, final String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", Integer.valueOf(c)));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+	}
+
+	/**
+	 * @param nanos
+	 *            a duration in nanoseconds.
+	 * @return the duration in milliseconds.
+	 */
+	private static long millis(final long nanos) {
+		return nanos / 1000000L;
+	}
+
+	/**
+	 * Number of calls and total time of a phase or template.
+	 */
+	private static final class Timer {
+
+		/** the number of calls. */
+		private int count;
+
+		/** the total time in nanoseconds. */
+		private long nanos;
+
+		/**
+		 * @param duration
+		 *            the duration of a call in nanoseconds.
+		 */
+		void add(final long duration) {
+			this.count++;
+			this.nanos += duration;
+		}
+
+		@Override
+		public String toString() {
+			return this.count + "x " + millis(this.nanos) + " ms";
+		}
+	}
+}
@@ -0,0 +1,496 @@
+package ch.puzzle.doclet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal lexer for java source files. It only recognizes what the
+ * {@link DocumentationGenerator} needs: the package, the imports, doc
+ * comments and annotations with their element values. Types are not
+ * attributed, so annotation names are resolved through the imports only.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class SourceLexer {
+
+	/** the source to scan. */
+	private final String source;
+
+	/** the current position in the source. */
+	private int position;
+
+	/** the package of the source file. */
+	private String packageName = "";
+
+	/** single type imports, qualified name by simple name. */
+	private final Map<String, String> imports = new HashMap<>();
+
+	/** packages imported on demand. */
+	private final List<String> wildcardImports = new ArrayList<>();
+
+	/** the last doc comment not yet attached to a declaration. */
+	private String pendingDocComment;
+
+	/** the annotations not yet attached to a declaration. */
+	private final List<Annotation> pendingAnnotations = new ArrayList<>();
+
+	/**
+	 * whether an annotation has the simple name of a configured annotation
+	 * but could not be resolved.
+	 */
+	private boolean unresolved;
+
+	/**
+	 * @param source
+	 *            the source to scan.
+	 */
+	SourceLexer(final String source) {
+		this.source = source;
+	}
+
+	/**
+	 * Scans the source for declarations with one of the configured
+	 * annotations.
+	 *
+	 * @param configuredAnnotations
+	 *            the qualified names of the annotations to find.
+	 * @param baseOutputDir
+	 *            the base output directory of the generated files.
+	 * @return the documented elements in source order.
+	 */
+	List<DocumentedElement> scan(
+			final Map<String, String> configuredAnnotations,
+			final String baseOutputDir) {
+		final List<DocumentedElement> elements = new ArrayList<>();
+		Token token;
+		while ((token = this.next()) != null) {
+			switch (token.type) {
+			case DOC_COMMENT:
+				this.pendingDocComment = this.text(token);
+				break;
+			case IDENTIFIER:
+				final String word = this.text(token);
+				if ("package".equals(word)) {
+					this.packageName = this.readQualifiedName();
+				} else if ("import".equals(word)) {
+					this.readImport();
+				}
+				break;
+			case SYMBOL:
+				final char symbol = this.source.charAt(token.start);
+				if (symbol == '@') {
+					this.readAnnotation();
+				} else if (symbol == ';' || symbol == '{' || symbol == '}') {
+					this.attach(configuredAnnotations, baseOutputDir, elements);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Attaches the pending doc comment to the pending annotations at the end
+	 * of a declaration.
+	 *
+	 * @param configuredAnnotations
+	 *            the qualified names of the annotations to find.
+	 * @param baseOutputDir
+	 *            the base output directory of the generated files.
+	 * @param elements
+	 *            list to add the documented elements to.
+	 */
+	private void attach(final Map<String, String> configuredAnnotations,
+			final String baseOutputDir, final List<DocumentedElement> elements) {
+		String[] tagNames = null;
+		String[] tagTexts = null;
+		for (final Annotation annotation : this.pendingAnnotations) {
+			final String qualifiedName = this.resolve(annotation.name,
+					configuredAnnotations);
+			if (qualifiedName == null) {
+				this.unresolved |= isConfiguredSimpleName(annotation.name,
+						configuredAnnotations);
+				continue;
+			}
+			if (tagNames == null) {
+				final List<String> names = new ArrayList<>();
+				final List<String> texts = new ArrayList<>();
+				AnnotationDrivenProcessor.parseBlockTags(
+						this.pendingDocComment, names, texts);
+				tagNames = names.toArray(new String[names.size()]);
+				tagTexts = texts.toArray(new String[texts.size()]);
+			}
+			// FIXME: windows paths.
+			elements.add(DocumentationGenerator.createElement(qualifiedName,
+					baseOutputDir + this.packageName.replaceAll("\\.", "/"),
+					tagNames, tagTexts, annotation.values));
+		}
+		this.pendingAnnotations.clear();
+		this.pendingDocComment = null;
+	}
+
+	/**
+	 * @return <code>true</code> if the scanned source has an annotation with
+	 *         the simple name of a configured annotation that could not be
+	 *         resolved through the imports, i.e. the source may contain
+	 *         elements that were not found.
+	 */
+	boolean hasUnresolvedAnnotations() {
+		return this.unresolved;
+	}
+
+	/**
+	 * @param name
+	 *            the simple or qualified name of an annotation.
+	 * @param configuredAnnotations
+	 *            the qualified names of the annotations to find.
+	 * @return <code>true</code> if a configured annotation has the same simple
+	 *         name.
+	 */
+	private static boolean isConfiguredSimpleName(final String name,
+			final Map<String, String> configuredAnnotations) {
+		final String simpleName = name.substring(name.lastIndexOf('.') + 1);
+		for (final String configured : configuredAnnotations.keySet()) {
+			if (configured.substring(configured.lastIndexOf('.') + 1).equals(
+					simpleName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Resolves the name of an annotation as written in the source.
+	 *
+	 * @param name
+	 *            the simple or qualified name of the annotation.
+	 * @param configuredAnnotations
+	 *            the qualified names of the annotations to find.
+	 * @return the qualified name if it is a configured annotation,
+	 *         <code>null</code> otherwise.
+	 */
+	private String resolve(final String name,
+			final Map<String, String> configuredAnnotations) {
+		if (configuredAnnotations.containsKey(name)) {
+			return name;
+		}
+		final List<String> candidates = new ArrayList<>();
+		if (this.imports.containsKey(name)) {
+			candidates.add(this.imports.get(name));
+		}
+		candidates.add(this.packageName + "." + name);
+		for (final String wildcardImport : this.wildcardImports) {
+			candidates.add(wildcardImport + "." + name);
+		}
+		for (final String candidate : candidates) {
+			if (configuredAnnotations.containsKey(candidate)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads an import declaration after the 'import' keyword.
+	 */
+	private void readImport() {
+		final int mark = this.position;
+		final Token token = this.next();
+		if (token == null || !"static".equals(this.text(token))) {
+			this.position = mark;
+		}
+		final String name = this.readQualifiedName();
+		if (name.endsWith(".*")) {
+			this.wildcardImports.add(name.substring(0, name.length() - 2));
+		} else {
+			this.imports.put(name.substring(name.lastIndexOf('.') + 1), name);
+		}
+	}
+
+	/**
+	 * Reads an annotation after the '@' and adds it to the pending
+	 * annotations. '@interface' declarations are ignored.
+	 */
+	private void readAnnotation() {
+		final int mark = this.position;
+		final Token first = this.next();
+		if (first == null || first.type != TokenType.IDENTIFIER
+				|| "interface".equals(this.text(first))) {
+			this.position = mark;
+			return;
+		}
+		this.position = mark;
+		final Annotation annotation = new Annotation(this.readQualifiedName());
+
+		final int afterName = this.position;
+		final Token open = this.next();
+		if (open == null || this.source.charAt(open.start) != '(') {
+			this.position = afterName;
+		} else {
+			this.readElementValues(annotation);
+		}
+		this.pendingAnnotations.add(annotation);
+	}
+
+	/**
+	 * Reads the element values of an annotation after the opening parenthesis.
+	 *
+	 * @param annotation
+	 *            the annotation to add the values to.
+	 */
+	private void readElementValues(final Annotation annotation) {
+		int depth = 0;
+		int valueStart = -1;
+		int valueEnd = -1;
+		String name = "value";
+		Token token;
+		while ((token = this.next()) != null) {
+			final char c = token.type == TokenType.SYMBOL ? this.source
+					.charAt(token.start) : 0;
+			if (depth == 0 && (c == ',' || c == ')')) {
+				if (valueStart >= 0) {
+					annotation.values.put(name,
+							this.source.substring(valueStart, valueEnd).trim());
+				}
+				if (c == ')') {
+					return;
+				}
+				name = "value";
+				valueStart = -1;
+				continue;
+			}
+			if (depth == 0 && c == '=' && valueStart >= 0
+					&& this.isName(this.source.substring(valueStart, valueEnd))) {
+				name = this.source.substring(valueStart, valueEnd).trim();
+				valueStart = -1;
+				continue;
+			}
+			if (c == '(' || c == '{' || c == '[') {
+				depth++;
+			} else if (c == ')' || c == '}' || c == ']') {
+				depth--;
+			}
+			if (token.type != TokenType.DOC_COMMENT) {
+				if (valueStart < 0) {
+					valueStart = token.start;
+				}
+				valueEnd = token.end;
+			}
+		}
+	}
+
+	/**
+	 * @param text
+	 *            the text to check.
+	 * @return whether the text is a single java identifier.
+	 */
+	private boolean isName(final String text) {
+		final String name = text.trim();
+		if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < name.length(); i++) {
+			if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a qualified name, e.g. 'ch.puzzle.annotations.UseCase' or
+	 * 'ch.puzzle.*', until the next token that is not part of it.
+	 *
+	 * @return the qualified name.
+	 */
+	private String readQualifiedName() {
+		final StringBuilder sb = new StringBuilder();
+		int mark = this.position;
+		Token token;
+		while ((token = this.next()) != null) {
+			final boolean dot = token.type == TokenType.SYMBOL
+					&& this.source.charAt(token.start) == '.';
+			final boolean star = token.type == TokenType.SYMBOL
+					&& this.source.charAt(token.start) == '*';
+			final boolean expectName = sb.length() == 0
+					|| sb.charAt(sb.length() - 1) == '.';
+			if (expectName && (token.type == TokenType.IDENTIFIER || star)) {
+				sb.append(this.text(token));
+			} else if (!expectName && dot) {
+				sb.append('.');
+			} else {
+				break;
+			}
+			mark = this.position;
+		}
+		this.position = mark;
+		return sb.toString();
+	}
+
+	/**
+	 * @param token
+	 *            the token.
+	 * @return the text of the token. Doc comments are returned without the
+	 *         comment delimiters and leading asterisks, as javac does.
+	 */
+	private String text(final Token token) {
+		if (token.type != TokenType.DOC_COMMENT) {
+			return this.source.substring(token.start, token.end);
+		}
+		final String comment = this.source.substring(token.start + 3,
+				token.end - 2);
+		final StringBuilder sb = new StringBuilder();
+		for (final String line : comment.split("\r\n|\r|\n", -1)) {
+			int i = 0;
+			while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+				i++;
+			}
+			while (i < line.length() && line.charAt(i) == '*') {
+				i++;
+			}
+			sb.append(line.substring(i)).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the next token. Whitespace, comments that are not doc comments
+	 * and literals are skipped.
+	 *
+	 * @return the next token or <code>null</code> at the end of the source.
+	 */
+	private Token next() {
+		final int length = this.source.length();
+		while (this.position < length) {
+			final int start = this.position;
+			final char c = this.source.charAt(start);
+			final char following = start + 1 < length ? this.source
+					.charAt(start + 1) : 0;
+
+			if (Character.isWhitespace(c)) {
+				this.position++;
+			} else if (c == '/' && following == '/') {
+				final int end = this.source.indexOf('\n', start);
+				this.position = end < 0 ? length : end + 1;
+			} else if (c == '/' && following == '*') {
+				final int end = this.source.indexOf("*/", start + 2);
+				this.position = end < 0 ? length : end + 2;
+				if (start + 2 < length && this.source.charAt(start + 2) == '*'
+						&& this.position - start > 4 && end >= 0) {
+					return new Token(TokenType.DOC_COMMENT, start,
+							this.position);
+				}
+			} else if (c == '"' || c == '\'') {
+				this.position = this.skipLiteral(start);
+				return new Token(TokenType.LITERAL, start, this.position);
+			} else if (Character.isJavaIdentifierStart(c)) {
+				int end = start + 1;
+				while (end < length
+						&& Character.isJavaIdentifierPart(this.source
+								.charAt(end))) {
+					end++;
+				}
+				this.position = end;
+				return new Token(TokenType.IDENTIFIER, start, end);
+			} else {
+				this.position++;
+				return new Token(TokenType.SYMBOL, start, this.position);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param start
+	 *            the position of the opening quote.
+	 * @return the position after the closing quote.
+	 */
+	private int skipLiteral(final int start) {
+		final char quote = this.source.charAt(start);
+		final int length = this.source.length();
+		if (quote == '"' && this.source.startsWith("\"\"\"", start)) {
+			final int end = this.source.indexOf("\"\"\"", start + 3);
+			return end < 0 ? length : end + 3;
+		}
+		int i = start + 1;
+		while (i < length) {
+			final char c = this.source.charAt(i);
+			if (c == '\\') {
+				i += 2;
+			} else if (c == quote || c == '\n') {
+				return i + 1;
+			} else {
+				i++;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * The types of tokens the lexer distinguishes.
+	 */
+	private enum TokenType {
+		/** a doc comment. */
+		DOC_COMMENT,
+		/** an identifier or keyword. */
+		IDENTIFIER,
+		/** a string or character literal. */
+		LITERAL,
+		/** any other single character. */
+		SYMBOL
+	}
+
+	/**
+	 * A token of the source, given by its type and position.
+	 */
+	private static final class Token {
+
+		/** the type of the token. */
+		private final TokenType type;
+
+		/** the start position of the token. */
+		private final int start;
+
+		/** the end position of the token (exclusive). */
+		private final int end;
+
+		/**
+		 * @param type
+		 *            the type of the token.
+		 * @param start
+		 *            the start position of the token.
+		 * @param end
+		 *            the end position of the token (exclusive).
+		 */
+		Token(final TokenType type, final int start, final int end) {
+			this.type = type;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * An annotation found in the source.
+	 */
+	private static final class Annotation {
+
+		/** the name as written in the source. */
+		private final String name;
+
+		/** the element values as written in the source, by element name. */
+		private final Map<String, String> values = new LinkedHashMap<>();
+
+		/**
+		 * @param name
+		 *            the name as written in the source.
+		 */
+		Annotation(final String name) {
+			this.name = name;
+		}
+	}
+}
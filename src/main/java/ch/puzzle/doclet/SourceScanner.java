@@ -0,0 +1,206 @@
+package ch.puzzle.doclet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ch.puzzle.doclet.exceptions.MissingCommandLineParameterException;
+
+/**
+ * Generates a preview of the documentation directly from the java sources,
+ * without running javadoc. The sources are scanned by the {@link SourceLexer}
+ * in parallel, only the extracted elements are kept in memory.
+ *
+ * Since types are not attributed, annotations are resolved through the
+ * imports only and annotation values are used as written in the source.
+ *
+ * Takes the same parameters as the doclet and one or more '-sourcepath'
+ * parameters, e.g.
+ *
+ * <pre>
+ * java -cp at-doclet.jar ch.puzzle.doclet.SourceScanner -sourcepath src/main/java
+ *     -output ~/preview -annotation ch.puzzle.example.Page ~/templates/pages.apt.template
+ * </pre>
+ *
+ * If no '-threads' parameter is provided, one thread per processor is used.
+ *
+ * If a file cannot be read or has an annotation with the simple name of a
+ * configured annotation that cannot be resolved, the files of earlier runs
+ * are kept, since the scanner may have missed elements of that file.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class SourceScanner {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/**
+	 * Empty default constructor.
+	 */
+	private SourceScanner() {
+		// empty default constructor
+	}
+
+	/**
+	 * @param args
+	 *            the commandline parameters.
+	 * @throws Exception
+	 *             if a parameter is missing or invalid, or the files cannot be
+	 *             read or written.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final List<String> sourcePaths = new ArrayList<>();
+		final List<String> docletArgs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if ("-sourcepath".equals(args[i]) && i + 1 < args.length) {
+				sourcePaths.add(args[++i]);
+			} else {
+				docletArgs.add(args[i]);
+			}
+		}
+		if (sourcePaths.isEmpty()) {
+			throw new MissingCommandLineParameterException(
+					"at least one '-sourcepath' is required but none is provided.");
+		}
+
+		final long optionsStart = System.nanoTime();
+		DocumentationGenerator.threads = Runtime.getRuntime()
+				.availableProcessors();
+		DocumentationGenerator.processOptions(ModelRenderer
+				.toOptions(docletArgs.toArray(new String[docletArgs.size()])));
+		DocumentationGenerator.profile.record(RunProfile.OPTIONS,
+				optionsStart);
+
+		final long traversalStart = System.nanoTime();
+		final Collection<String> skipped = new ConcurrentSkipListSet<>();
+		final List<DocumentedElement> elements = scan(sourcePaths,
+				DocumentationGenerator.threads, skipped);
+		DocumentationGenerator.profile.record(RunProfile.TRAVERSAL,
+				traversalStart);
+		if (!skipped.isEmpty()) {
+			LOG.log(Level.WARNING, skipped.size()
+					+ " file(s) could not be scanned completely, keeping the "
+					+ "files of earlier runs: " + skipped);
+		}
+		// only a complete scan may delete the files of removed elements
+		for (final String notice : DocumentationGenerator.generate(elements,
+				skipped.isEmpty())) {
+			System.out.println(notice);
+		}
+	}
+
+	/**
+	 * Scans all java files in the given directories.
+	 *
+	 * @param sourcePaths
+	 *            the source directories to scan.
+	 * @param threads
+	 *            the number of threads to scan with.
+	 * @param skipped
+	 *            thread safe collection to add the files to that could not be
+	 *            scanned completely.
+	 * @return the documented elements, ordered by file path and position.
+	 * @throws IOException
+	 *             if a directory cannot be read.
+	 */
+	static List<DocumentedElement> scan(final List<String> sourcePaths,
+			final int threads, final Collection<String> skipped)
+			throws IOException {
+		final Map<String, List<DocumentedElement>> elementsByFile = new ConcurrentSkipListMap<>();
+		final int poolSize = Math.max(1, threads);
+
+		// bounded queue, the walking thread scans files itself if all workers
+		// are busy. this limits the number of files in memory.
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize,
+				poolSize, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(poolSize * 4),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		try {
+			for (final String sourcePath : sourcePaths) {
+				Files.walkFileTree(Paths.get(sourcePath),
+						new SimpleFileVisitor<Path>() {
+							@Override
+							public FileVisitResult visitFile(final Path file,
+									final BasicFileAttributes attrs) {
+								if (file.toString().endsWith(".java")) {
+									executor.execute(new Runnable() {
+										@Override
+										public void run() {
+											scanFile(file, elementsByFile,
+													skipped);
+										}
+									});
+								}
+								return FileVisitResult.CONTINUE;
+							}
+						});
+			}
+		} finally {
+			executor.shutdown();
+		}
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scanning sources.", e);
+		}
+
+		final List<DocumentedElement> elements = new ArrayList<>();
+		for (final List<DocumentedElement> fileElements : elementsByFile
+				.values()) {
+			elements.addAll(fileElements);
+		}
+		return elements;
+	}
+
+	/**
+	 * Scans a single java file.
+	 *
+	 * @param file
+	 *            the file to scan.
+	 * @param elementsByFile
+	 *            map to add the documented elements of the file to.
+	 * @param skipped
+	 *            collection to add the file to if it cannot be scanned
+	 *            completely.
+	 */
+	static void scanFile(final Path file,
+			final Map<String, List<DocumentedElement>> elementsByFile,
+			final Collection<String> skipped) {
+		try {
+			final String source = new String(Files.readAllBytes(file),
+					StandardCharsets.UTF_8);
+			final SourceLexer lexer = new SourceLexer(source);
+			final List<DocumentedElement> elements = lexer.scan(
+					DocumentationGenerator.configuredAnnotations,
+					DocumentationGenerator.baseOutputDir);
+			if (!elements.isEmpty()) {
+				elementsByFile.put(file.toString(), elements);
+			}
+			if (lexer.hasUnresolvedAnnotations()) {
+				LOG.log(Level.WARNING, "Could not resolve an annotation in "
+						+ file + ". Its elements may be missing.");
+				skipped.add(file.toString());
+			}
+		} catch (final IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Could not read " + file + ". skipping.", e);
+			skipped.add(file.toString());
+		}
+	}
+}
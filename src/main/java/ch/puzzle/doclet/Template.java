@@ -0,0 +1,418 @@
+package ch.puzzle.doclet;
+
+import static ch.puzzle.doclet.DocumentationGenerator.IMAGES_DELIMITER;
+import static ch.puzzle.doclet.DocumentationGenerator.KEY_DELIMITER;
+import static ch.puzzle.doclet.DocumentationGenerator.SCREENCAST_MATCHER;
+import static ch.puzzle.doclet.DocumentationGenerator.TABLE_END_DELIMITER;
+import static ch.puzzle.doclet.DocumentationGenerator.TABLE_START_DELIMITER;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * A template file compiled into a tree of nodes. The template is parsed only
+ * once per doclet run and can afterwards be rendered for any number of
+ * annotated types and methods without reading or matching the template again.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+final class Template {
+
+	/** the top level nodes of the template. */
+	private final List<Node> nodes;
+
+	/** hash of the template content. */
+	private final String hash;
+
+	/**
+	 * @param nodes
+	 *            the top level nodes of the template.
+	 * @param hash
+	 *            hash of the template content.
+	 */
+	private Template(final List<Node> nodes, final String hash) {
+		this.nodes = nodes;
+		this.hash = hash;
+	}
+
+	/**
+	 * Reads and parses the given template file.
+	 *
+	 * @param templatePath
+	 *            the path to the template file.
+	 * @return the compiled template.
+	 * @throws FileNotFoundException
+	 *             if the template file does not exist.
+	 * @throws IOException
+	 *             if the template file cannot be read.
+	 */
+	static Template compile(final String templatePath)
+			throws FileNotFoundException, IOException {
+		final List<Node> nodes = new ArrayList<>();
+		final MessageDigest digest = Manifest.newDigest();
+		TableRegion table = null;
+
+		try (final BufferedReader reader = new BufferedReader(new FileReader(
+				templatePath))) {
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				Manifest.update(digest, line);
+				if (line.contains(TABLE_START_DELIMITER)) {
+					if (table == null) {
+						table = new TableRegion();
+						nodes.add(table);
+					}
+				} else if (line.contains(TABLE_END_DELIMITER)) {
+					table = null;
+				}
+
+				final Line node = compileLine(line);
+				if (table != null) {
+					table.children.add(node);
+				} else {
+					nodes.add(node);
+				}
+			}
+		}
+		return new Template(Collections.unmodifiableList(nodes),
+				Manifest.toHex(digest.digest()));
+	}
+
+	/**
+	 * Parses a single template line.
+	 *
+	 * @param line
+	 *            the template line.
+	 * @return the compiled line.
+	 */
+	static Line compileLine(final String line) {
+		final Matcher screencastMatcher = SCREENCAST_MATCHER.matcher(line);
+		if (screencastMatcher.find()) {
+			return new ScreencastDirective(screencastMatcher.group());
+		}
+
+		final Matcher imageMatcher = IMAGES_DELIMITER.matcher(line);
+		if (imageMatcher.find()) {
+			return new ImagesDirective(imageMatcher.group());
+		}
+
+		final Matcher matcher = KEY_DELIMITER.matcher(line);
+		if (!matcher.find()) {
+			return new Literal(line);
+		}
+
+		final List<String> literals = new ArrayList<>();
+		final List<String> keys = new ArrayList<>();
+		int position = 0;
+		do {
+			literals.add(line.substring(position, matcher.start()));
+			keys.add(key(matcher.group()));
+			position = matcher.end();
+		} while (matcher.find());
+		literals.add(line.substring(position));
+
+		return new PlaceholderLine(literals.toArray(new String[literals.size()]),
+				keys.toArray(new String[keys.size()]));
+	}
+
+	/**
+	 * @param placeholder
+	 *            a placeholder of the form ${key}.
+	 * @return the key of the placeholder.
+	 */
+	static String key(final String placeholder) {
+		return placeholder.substring(2, placeholder.length() - 1);
+	}
+
+	/**
+	 * Renders the template into the given writer.
+	 *
+	 * @param replacements
+	 *            map with the replacement keys found in javadoc.
+	 * @param writer
+	 *            the writer to print the output to.
+	 */
+	void render(final Map<String, String> replacements, final PrintWriter writer) {
+		for (final Node node : this.nodes) {
+			node.render(replacements, false, writer);
+		}
+	}
+
+	/**
+	 * @return hash of the template content.
+	 */
+	String getHash() {
+		return this.hash;
+	}
+
+	/**
+	 * Describes the state of all site resources the template refers to for
+	 * the given replacements, e.g. the files listed in an images directory.
+	 * The description changes whenever the rendered output would change
+	 * because of a changed resource.
+	 *
+	 * @param replacements
+	 *            map with the replacement keys found in javadoc.
+	 * @param sb
+	 *            the builder to append the description to.
+	 */
+	void describeResources(final Map<String, String> replacements,
+			final StringBuilder sb) {
+		for (final Node node : this.nodes) {
+			node.describeResources(replacements, sb);
+		}
+	}
+
+	/**
+	 * A node of a compiled template.
+	 */
+	interface Node {
+
+		/**
+		 * @param replacements
+		 *            map with the replacement keys found in javadoc.
+		 * @param insideTable
+		 *            whether the node is rendered inside a table.
+		 * @param writer
+		 *            the writer to print the output to.
+		 */
+		void render(Map<String, String> replacements, boolean insideTable,
+				PrintWriter writer);
+
+		/**
+		 * @param replacements
+		 *            map with the replacement keys found in javadoc.
+		 * @param sb
+		 *            the builder to append the state of the referenced site
+		 *            resources to.
+		 */
+		void describeResources(Map<String, String> replacements,
+				StringBuilder sb);
+	}
+
+	/**
+	 * A single line of the template.
+	 */
+	abstract static class Line implements Node {
+
+		/**
+		 * @param replacements
+		 *            map with the replacement keys found in javadoc.
+		 * @param insideTable
+		 *            whether the line is rendered inside a table.
+		 * @return the processed line with all replacements done.
+		 */
+		abstract String renderLine(Map<String, String> replacements,
+				boolean insideTable);
+
+		/**
+		 * @see ch.puzzle.doclet.Template.Node#render(java.util.Map, boolean,
+		 *      java.io.PrintWriter)
+		 */
+		@Override
+		public void render(final Map<String, String> replacements,
+				final boolean insideTable, final PrintWriter writer) {
+			writer.println(this.renderLine(replacements, insideTable));
+		}
+
+		/**
+		 * Lines do not refer to site resources by default.
+		 *
+		 * @see ch.puzzle.doclet.Template.Node#describeResources(java.util.Map,
+		 *      java.lang.StringBuilder)
+		 */
+		@Override
+		public void describeResources(final Map<String, String> replacements,
+				final StringBuilder sb) {
+			// no resources
+		}
+	}
+
+	/**
+	 * A line without any placeholders. Printed as it is.
+	 */
+	static final class Literal extends Line {
+
+		/** the text of the line. */
+		private final String text;
+
+		/**
+		 * @param text
+		 *            the text of the line.
+		 */
+		Literal(final String text) {
+			this.text = text;
+		}
+
+		@Override
+		String renderLine(final Map<String, String> replacements,
+				final boolean insideTable) {
+			return this.text;
+		}
+	}
+
+	/**
+	 * A line containing placeholder slots. The literal parts always surround
+	 * the slots, so there is exactly one literal more than there are keys.
+	 */
+	static final class PlaceholderLine extends Line {
+
+		/** the text between the placeholders. */
+		private final String[] literals;
+
+		/** the keys of the placeholders. */
+		private final String[] keys;
+
+		/**
+		 * @param literals
+		 *            the text between the placeholders.
+		 * @param keys
+		 *            the keys of the placeholders.
+		 */
+		PlaceholderLine(final String[] literals, final String[] keys) {
+			this.literals = literals;
+			this.keys = keys;
+		}
+
+		@Override
+		String renderLine(final Map<String, String> replacements,
+				final boolean insideTable) {
+			final StringBuilder sb = new StringBuilder(this.literals[0]);
+			for (int i = 0; i < this.keys.length; i++) {
+				String replacement = replacements.containsKey(this.keys[i]) ? replacements
+						.get(this.keys[i]) : "";
+
+				// TODO: replace javadoc links
+
+				// format text for tablecells.
+				if (insideTable) {
+					replacement = DocumentationGenerator
+							.formatTextForTableCell(replacement);
+				}
+				sb.append(replacement).append(this.literals[i + 1]);
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * The lines between a TABLE_START_DELIMITER and a TABLE_END_DELIMITER.
+	 * Replacements inside a table are printed without line breaks.
+	 */
+	static final class TableRegion implements Node {
+
+		/** the lines inside the table. */
+		private final List<Line> children = new ArrayList<>();
+
+		@Override
+		public void render(final Map<String, String> replacements,
+				final boolean insideTable, final PrintWriter writer) {
+			for (final Line child : this.children) {
+				child.render(replacements, true, writer);
+			}
+		}
+
+		@Override
+		public void describeResources(final Map<String, String> replacements,
+				final StringBuilder sb) {
+			for (final Line child : this.children) {
+				child.describeResources(replacements, sb);
+			}
+		}
+	}
+
+	/**
+	 * A ~~{images:...} directive. The whole line is replaced by the images
+	 * found in the directory.
+	 */
+	static final class ImagesDirective extends Line {
+
+		/** the directive as found in the template. */
+		private final String directive;
+
+		/**
+		 * @param directive
+		 *            the directive as found in the template.
+		 */
+		ImagesDirective(final String directive) {
+			this.directive = directive;
+		}
+
+		@Override
+		String renderLine(final Map<String, String> replacements,
+				final boolean insideTable) {
+			return DocumentationGenerator.processImages(this.directive,
+					replacements);
+		}
+
+		@Override
+		public void describeResources(final Map<String, String> replacements,
+				final StringBuilder sb) {
+			final File imagesDir = DocumentationGenerator
+					.resolveImagesDirectory(this.directive, replacements);
+			sb.append(imagesDir.getPath()).append('\n');
+			final List<ResourceCatalog.Entry> entries = DocumentationGenerator
+					.getResourceCatalog().list(imagesDir);
+			if (entries != null) {
+				for (final ResourceCatalog.Entry entry : entries) {
+					sb.append(entry.getName()).append(' ')
+							.append(entry.getSize()).append(' ')
+							.append(entry.getLastModified()).append(' ')
+							.append(DocumentationGenerator.imageLink(
+									new File(imagesDir, entry.getName()))
+									.getPath()).append('\n');
+				}
+			}
+		}
+	}
+
+	/**
+	 * A ~~{screencast:...} directive. The whole line is replaced by the
+	 * screencast snippet.
+	 */
+	static final class ScreencastDirective extends Line {
+
+		/** the directive as found in the template. */
+		private final String directive;
+
+		/**
+		 * @param directive
+		 *            the directive as found in the template.
+		 */
+		ScreencastDirective(final String directive) {
+			this.directive = directive;
+		}
+
+		@Override
+		String renderLine(final Map<String, String> replacements,
+				final boolean insideTable) {
+			return DocumentationGenerator.processScreencast(this.directive,
+					replacements);
+		}
+
+		@Override
+		public void describeResources(final Map<String, String> replacements,
+				final StringBuilder sb) {
+			final String fileIdentifier = DocumentationGenerator
+					.resolveScreencastIdentifier(this.directive, replacements);
+			// the page refers to the snippet by its path in the resources.
+			final String snippet = DocumentationGenerator
+					.screencastSnippet(fileIdentifier);
+			sb.append(fileIdentifier).append(' ')
+					.append(DocumentationGenerator
+							.screencastExists(fileIdentifier)).append(' ')
+					.append(snippet).append(' ')
+					.append(new File(snippet).exists()).append('\n');
+		}
+	}
+}
@@ -14,6 +14,7 @@ import org.junit.AfterClass;
 import org.junit.Rule;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
+import org.junit.runner.RunWith;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.firefox.FirefoxBinary;
@@ -22,17 +23,24 @@ import org.openqa.selenium.htmlunit.HtmlUnitDriver;
 import org.openqa.selenium.remote.DesiredCapabilities;
 
 import ch.puzzle.annotations.TestCase;
+import ch.puzzle.doc.reports.HistoryOrderedRunner;
 import ch.puzzle.doc.reports.ReportWatcher;
-import ch.puzzle.doc.reports.TestResultSaver;
+import ch.puzzle.doc.reports.ResultJournal;
+import ch.puzzle.doc.reports.ResultShards;
 import ch.puzzle.doc.screencasts.ScreencastWatcher;
 import ch.puzzle.doc.screenshots.ScreenshotWatcher;
 import ch.puzzle.selenium.screenshots.ScreenshotDriver;
+import ch.puzzle.selenium.screenshots.ScreenshotWriter;
 import ch.puzzle.util.DocletPropertyUtils;
 
 /**
+ * Base class of the selenium tests. The tests of a class run ordered by their
+ * history, the likely failures first, see {@link HistoryOrderedRunner}.
+ * 
  * @author Brigitte Hulliger, <hulliger@puzzle.ch>
  * 
  */
+@RunWith(HistoryOrderedRunner.class)
 public abstract class BaseSeleniumTest {
 
 	/** Log4J Logger. */
@@ -83,13 +91,28 @@ public abstract class BaseSeleniumTest {
 		}
 	}
 
+	/**
+	 * Waits until the screenshots of the test class are written, see
+	 * {@link ScreenshotWriter}.
+	 */
+	@AfterClass
+	public static void writeScreenshots() {
+		if ("on".equals(DocletPropertyUtils.getPropertyValue("screenshots"))) {
+			ScreenshotWriter.getInstance().drain();
+		}
+	}
+
 	/**
 	 * Update the testreport file (as configured in the config.properties file).
+	 * The results are journaled by the {@link ReportWatcher}, the report is
+	 * only written once at the end of the test run. Shards of forked test runs
+	 * are merged separately, see {@link ResultShards}.
 	 */
 	@AfterClass
 	public static void updateReports() {
-		if ("on".equals(DocletPropertyUtils.getPropertyValue("reports"))) {
-			TestResultSaver.getInstance().updateAndSaveTestReport();
+		if ("on".equals(DocletPropertyUtils.getPropertyValue("reports"))
+				&& ResultShards.forkId() == null) {
+			ResultJournal.getInstance().compactAtShutdown();
 		}
 	}
 
@@ -0,0 +1,218 @@
+package ch.puzzle.selenium.screenshots;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ch.puzzle.selenium.screenshots.ScreenshotCapture.Region;
+
+/**
+ * Keeps the last screenshots of the running test in memory and writes them
+ * only if the test fails. Enabled with 'screenshots.keep' set to 'failures'
+ * in the doclet.properties:
+ *
+ * <ul>
+ * <li>screenshots.keep.frames: the number of screenshots kept per test
+ * (default: 10). Older screenshots are dropped.</li>
+ * <li>screenshots.keep.offHeap: <code>true</code> to keep the screenshots
+ * in direct buffers outside the heap (default: false).</li>
+ * </ul>
+ *
+ * The screenshots are kept as taken. They are cropped, see
+ * {@link ScreenshotCapture}, and compared, see {@link ScreenshotDeduplicator},
+ * only when they are written, so a green test costs no image processing and
+ * no disk access.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ScreenshotBuffer {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** the default number of screenshots kept per test. */
+	static final int DEFAULT_FRAMES = 10;
+
+	/** the screenshots, oldest first starting at {@link #first}. */
+	private final Frame[] frames;
+
+	/** whether the screenshots are kept outside the heap. */
+	private final boolean offHeap;
+
+	/** the index of the oldest screenshot. */
+	private int first;
+
+	/** the number of screenshots kept. */
+	private int size;
+
+	/** the number of screenshots taken by the current test. */
+	private int taken;
+
+	/**
+	 * Holder of the singleton instance, initialized on first access by the
+	 * class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** the configured buffer. */
+		private static final ScreenshotBuffer INSTANCE = configured();
+	}
+
+	/**
+	 * @param frames
+	 *            the number of screenshots kept per test, 0 to write all
+	 *            screenshots at once.
+	 * @param offHeap
+	 *            whether the screenshots are kept outside the heap.
+	 */
+	public ScreenshotBuffer(final int frames, final boolean offHeap) {
+		this.frames = new Frame[Math.max(0, frames)];
+		this.offHeap = offHeap;
+	}
+
+	/**
+	 * @return the configured buffer.
+	 */
+	public static ScreenshotBuffer getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @return a buffer with the values of the doclet.properties.
+	 */
+	private static ScreenshotBuffer configured() {
+		if (!"failures".equals(getPropertyValue("screenshots.keep"))) {
+			return new ScreenshotBuffer(0, false);
+		}
+		int frames = DEFAULT_FRAMES;
+		final String framesValue = getPropertyValue("screenshots.keep.frames");
+		if (framesValue != null && !framesValue.trim().isEmpty()) {
+			try {
+				frames = Math.max(1, Integer.parseInt(framesValue.trim()));
+			} catch (final NumberFormatException e) {
+				LOG.log(Level.WARNING, "Invalid value [" + framesValue
+						+ "] of screenshots.keep.frames. Using "
+						+ DEFAULT_FRAMES + ".");
+			}
+		}
+		return new ScreenshotBuffer(frames,
+				"true".equals(getPropertyValue("screenshots.keep.offHeap")));
+	}
+
+	/**
+	 * @return <code>true</code> if screenshots are only written for failed
+	 *         tests.
+	 */
+	public boolean isEnabled() {
+		return this.frames.length > 0;
+	}
+
+	/**
+	 * Keeps a screenshot, the oldest screenshot is dropped if the buffer is
+	 * full.
+	 *
+	 * @param png
+	 *            the screenshot.
+	 * @param region
+	 *            the region to crop, <code>null</code> for the whole
+	 *            screenshot.
+	 * @param destination
+	 *            the file to write the screenshot to if the test fails.
+	 */
+	public synchronized void add(final byte[] png, final Region region,
+			final File destination) {
+		final ByteBuffer data;
+		if (this.offHeap) {
+			data = ByteBuffer.allocateDirect(png.length);
+			data.put(png).flip();
+		} else {
+			data = ByteBuffer.wrap(png);
+		}
+		final Frame frame = new Frame(data, region, destination);
+		if (this.size < this.frames.length) {
+			this.frames[(this.first + this.size) % this.frames.length] = frame;
+			this.size++;
+		} else {
+			this.frames[this.first] = frame;
+			this.first = (this.first + 1) % this.frames.length;
+		}
+		this.taken++;
+	}
+
+	/**
+	 * Writes the kept screenshots of the failed test, oldest first, and
+	 * empties the buffer.
+	 *
+	 * @param deduplicator
+	 *            the deduplicator to write the screenshots with.
+	 * @return the number of screenshots written.
+	 */
+	public synchronized int flush(final ScreenshotDeduplicator deduplicator) {
+		final int written = this.size;
+		if (this.taken > written) {
+			LOG.log(Level.INFO, "writing the last " + written + " of "
+					+ this.taken + " screenshot(s) of the failed test.");
+		}
+		for (int i = 0; i < this.size; i++) {
+			final Frame frame = this.frames[(this.first + i)
+					% this.frames.length];
+			final byte[] png = new byte[frame.data.remaining()];
+			frame.data.duplicate().get(png);
+			deduplicator.capture(ScreenshotCapture.crop(png, frame.region),
+					frame.destination);
+		}
+		this.clear();
+		return written;
+	}
+
+	/**
+	 * Drops the kept screenshots.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < this.frames.length; i++) {
+			this.frames[i] = null;
+		}
+		this.first = 0;
+		this.size = 0;
+		this.taken = 0;
+	}
+
+	/**
+	 * @return the number of screenshots kept.
+	 */
+	public synchronized int size() {
+		return this.size;
+	}
+
+	/**
+	 * A kept screenshot.
+	 */
+	private static final class Frame {
+
+		/** the screenshot. */
+		private final ByteBuffer data;
+
+		/** the region to crop, <code>null</code> for the whole screenshot. */
+		private final Region region;
+
+		/** the file to write the screenshot to. */
+		private final File destination;
+
+		/**
+		 * @param data
+		 *            the screenshot.
+		 * @param region
+		 *            the region to crop.
+		 * @param destination
+		 *            the file to write the screenshot to.
+		 */
+		Frame(final ByteBuffer data, final Region region,
+				final File destination) {
+			this.data = data;
+			this.region = region;
+			this.destination = destination;
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package ch.puzzle.selenium.screenshots;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Decides which region of the page a screenshot shows. Configured as
+ * 'screenshots.capture' in the doclet.properties:
+ *
+ * <ul>
+ * <li>page: the whole page (default).</li>
+ * <li>viewport: the visible part of the page.</li>
+ * <li>element: the element clicked or submitted, with a padding of
+ * 'screenshots.capture.padding' pixels (default: 20).</li>
+ * </ul>
+ *
+ * The region is cropped from the screenshot in memory, before it is compared
+ * with the screenshot before and written. Drivers like the ChromeDriver only
+ * capture the viewport: if the screenshot has the size of the viewport, the
+ * region is moved by the scroll position and the viewport is not cropped. The
+ * region is scaled by the device pixel ratio.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ScreenshotCapture {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** the default padding around an element, in pixels. */
+	static final int DEFAULT_PADDING = 20;
+
+	/**
+	 * script returning the scroll position and size of the viewport and the
+	 * device pixel ratio.
+	 */
+	private static final String VIEWPORT_SCRIPT = "var d = document.documentElement;"
+			+ " return [window.pageXOffset || d.scrollLeft,"
+			+ " window.pageYOffset || d.scrollTop,"
+			+ " window.innerWidth || d.clientWidth,"
+			+ " window.innerHeight || d.clientHeight,"
+			+ " window.devicePixelRatio || 1];";
+
+	/**
+	 * The region of a screenshot.
+	 */
+	public enum Mode {
+
+		/** the whole page. */
+		PAGE,
+
+		/** the visible part of the page. */
+		VIEWPORT,
+
+		/** the element with padding. */
+		ELEMENT;
+	}
+
+	/**
+	 * A region of the page and the viewport it was determined in.
+	 */
+	public static final class Region {
+
+		/** the region in page coordinates, <code>null</code> for the viewport. */
+		final Rectangle area;
+
+		/**
+		 * the scroll position and size of the viewport, <code>null</code> if
+		 * unknown.
+		 */
+		final Rectangle viewport;
+
+		/** the device pixels per page pixel. */
+		final double pixelRatio;
+
+		/**
+		 * @param area
+		 *            the region in page coordinates, <code>null</code> for the
+		 *            viewport.
+		 * @param viewport
+		 *            the scroll position and size of the viewport,
+		 *            <code>null</code> if unknown.
+		 * @param pixelRatio
+		 *            the device pixels per page pixel.
+		 */
+		Region(final Rectangle area, final Rectangle viewport,
+				final double pixelRatio) {
+			this.area = area;
+			this.viewport = viewport;
+			this.pixelRatio = pixelRatio > 0 ? pixelRatio : 1;
+		}
+	}
+
+	/** the region of the screenshots. */
+	private final Mode mode;
+
+	/** the padding around an element, in pixels. */
+	private final int padding;
+
+	/**
+	 * Holder of the singleton instance, initialized on first access by the
+	 * class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** the configured capture. */
+		private static final ScreenshotCapture INSTANCE = configured();
+	}
+
+	/**
+	 * @param mode
+	 *            the region of the screenshots.
+	 * @param padding
+	 *            the padding around an element, in pixels.
+	 */
+	public ScreenshotCapture(final Mode mode, final int padding) {
+		this.mode = mode;
+		this.padding = padding;
+	}
+
+	/**
+	 * @return the configured capture.
+	 */
+	public static ScreenshotCapture getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @return a capture with the values of the doclet.properties.
+	 */
+	private static ScreenshotCapture configured() {
+		Mode mode = Mode.PAGE;
+		final String modeValue = getPropertyValue("screenshots.capture");
+		if (modeValue != null && !modeValue.trim().isEmpty()) {
+			try {
+				mode = Mode.valueOf(modeValue.trim().toUpperCase());
+			} catch (final IllegalArgumentException e) {
+				LOG.log(Level.WARNING, "Invalid value [" + modeValue
+						+ "] of screenshots.capture. Using page.");
+			}
+		}
+		int padding = DEFAULT_PADDING;
+		final String paddingValue = getPropertyValue("screenshots.capture.padding");
+		if (paddingValue != null && !paddingValue.trim().isEmpty()) {
+			try {
+				padding = Math.max(0, Integer.parseInt(paddingValue.trim()));
+			} catch (final NumberFormatException e) {
+				LOG.log(Level.WARNING, "Invalid value [" + paddingValue
+						+ "] of screenshots.capture.padding. Using "
+						+ DEFAULT_PADDING + ".");
+			}
+		}
+		return new ScreenshotCapture(mode, padding);
+	}
+
+	/**
+	 * Determines the region to capture. Call it before the action, the element
+	 * may be gone afterwards.
+	 *
+	 * @param driver
+	 *            the driver.
+	 * @param element
+	 *            the element acted on.
+	 * @return the region, <code>null</code> for the whole page or if the
+	 *         region cannot be determined.
+	 */
+	public Region region(final WebDriver driver, final WebElement element) {
+		try {
+			switch (this.mode) {
+			case ELEMENT:
+				final Point location = element.getLocation();
+				final Dimension size = element.getSize();
+				final Rectangle area = new Rectangle(location.getX()
+						- this.padding, location.getY() - this.padding,
+						size.getWidth() + 2 * this.padding, size.getHeight() + 2
+								* this.padding);
+				final Region viewport = viewport(driver);
+				return viewport == null ? new Region(area, null, 1)
+						: new Region(area, viewport.viewport,
+								viewport.pixelRatio);
+			case VIEWPORT:
+				return viewport(driver);
+			default:
+				return null;
+			}
+		} catch (final WebDriverException e) {
+			LOG.log(Level.FINE, "Could not determine the " + this.mode
+					+ " region. Capturing the whole page.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param driver
+	 *            the driver.
+	 * @return the region of the viewport, <code>null</code> if unknown.
+	 */
+	private static Region viewport(final WebDriver driver) {
+		if (driver instanceof JavascriptExecutor) {
+			final Object viewport = ((JavascriptExecutor) driver)
+					.executeScript(VIEWPORT_SCRIPT);
+			if (viewport instanceof List && ((List<?>) viewport).size() == 5) {
+				final List<?> values = (List<?>) viewport;
+				return new Region(null, new Rectangle(intValue(values.get(0)),
+						intValue(values.get(1)), intValue(values.get(2)),
+						intValue(values.get(3))),
+						values.get(4) instanceof Number ? ((Number) values
+								.get(4)).doubleValue() : 1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param value
+	 *            a number returned by a script.
+	 * @return the value as int, 0 if it is not a number.
+	 */
+	private static int intValue(final Object value) {
+		return value instanceof Number ? ((Number) value).intValue() : 0;
+	}
+
+	/**
+	 * Crops the region from the screenshot.
+	 *
+	 * @param png
+	 *            the screenshot, of the whole page or of the viewport.
+	 * @param region
+	 *            the region, <code>null</code> for the whole screenshot.
+	 * @return the cropped screenshot, the screenshot itself if the region
+	 *         covers it or the screenshot cannot be cropped.
+	 */
+	public static byte[] crop(final byte[] png, final Region region) {
+		if (region == null) {
+			return png;
+		}
+		try {
+			final BufferedImage image = ImageIO.read(new ByteArrayInputStream(
+					png));
+			if (image == null) {
+				return png;
+			}
+			final Rectangle bounds = new Rectangle(image.getWidth(),
+					image.getHeight());
+			final Rectangle area = area(region, bounds);
+			if (area == null) {
+				return png;
+			}
+			final Rectangle clipped = bounds.intersection(area);
+			if (clipped.isEmpty() || clipped.equals(bounds)) {
+				return png;
+			}
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ImageIO.write(image.getSubimage(clipped.x, clipped.y,
+					clipped.width, clipped.height), "png", out);
+			return out.toByteArray();
+		} catch (final IOException e) {
+			LOG.log(Level.FINE, "Could not crop screenshot.", e);
+			return png;
+		}
+	}
+
+	/**
+	 * @param region
+	 *            the region.
+	 * @param bounds
+	 *            the bounds of the screenshot.
+	 * @return the region in screenshot pixels, <code>null</code> for the
+	 *         whole screenshot.
+	 */
+	static Rectangle area(final Region region, final Rectangle bounds) {
+		final double ratio = region.pixelRatio;
+		Rectangle area = region.area;
+		final Rectangle viewport = region.viewport;
+		if (viewport != null
+				&& Math.abs(bounds.width - viewport.width * ratio) <= ratio
+				&& Math.abs(bounds.height - viewport.height * ratio) <= ratio) {
+			// screenshot of the viewport only
+			if (area == null) {
+				return null;
+			}
+			area = new Rectangle(area.x - viewport.x, area.y - viewport.y,
+					area.width, area.height);
+		} else if (area == null) {
+			if (viewport == null) {
+				return null;
+			}
+			area = viewport;
+		}
+		final int x = (int) Math.floor(area.x * ratio);
+		final int y = (int) Math.floor(area.y * ratio);
+		return new Rectangle(x, y, (int) Math.ceil((area.x + area.width)
+				* ratio)
+				- x, (int) Math.ceil((area.y + area.height) * ratio) - y);
+	}
+}
@@ -0,0 +1,274 @@
+package ch.puzzle.selenium.screenshots;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Suppresses screenshots that look like the screenshot before, e.g. after a
+ * click that only moved the focus. Every screenshot is compared with the last
+ * kept screenshot of the same test:
+ *
+ * <ul>
+ * <li>identical screenshots (same SHA-256) are skipped or, with
+ * 'screenshots.duplicates' set to 'link', hard-linked to the kept
+ * screenshot. 'keep' writes all screenshots.</li>
+ * <li>with 'screenshots.duplicates.threshold' set, screenshots of the same
+ * size are skipped if the share of different pixels is below the threshold,
+ * e.g. 0.001 for 0.1% of the pixels.</li>
+ * </ul>
+ *
+ * The properties are read from the doclet.properties. The kept screenshots
+ * are written by the {@link ScreenshotWriter}.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ScreenshotDeduplicator {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/**
+	 * What to do with identical screenshots.
+	 */
+	public enum Mode {
+
+		/** write every screenshot. */
+		KEEP,
+
+		/** skip identical screenshots. */
+		SKIP,
+
+		/** hard-link identical screenshots to the kept screenshot. */
+		LINK;
+	}
+
+	/** the writer of the kept screenshots. */
+	private final ScreenshotWriter writer;
+
+	/** what to do with identical screenshots. */
+	private final Mode mode;
+
+	/** the share of different pixels below which a screenshot is skipped. */
+	private final double threshold;
+
+	/** the number of suppressed screenshots of each test. */
+	private final Map<String, Integer> suppressed = new HashMap<>();
+
+	/** the test taking screenshots. */
+	private String currentTest = "";
+
+	/** the hash of the last kept screenshot. */
+	private byte[] lastHash;
+
+	/** the file of the last kept screenshot. */
+	private File lastFile;
+
+	/** the pending write of the last kept screenshot. */
+	private Future<?> lastWrite;
+
+	/** the last kept screenshot, if compared by pixels. */
+	private BufferedImage lastImage;
+
+	/**
+	 * Holder of the singleton instance, initialized on first access by the
+	 * class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** the configured deduplicator. */
+		private static final ScreenshotDeduplicator INSTANCE = configured();
+	}
+
+	/**
+	 * @param writer
+	 *            the writer of the kept screenshots.
+	 * @param mode
+	 *            what to do with identical screenshots.
+	 * @param threshold
+	 *            the share of different pixels below which a screenshot is
+	 *            skipped, 0 to compare the hashes only.
+	 */
+	public ScreenshotDeduplicator(final ScreenshotWriter writer,
+			final Mode mode, final double threshold) {
+		this.writer = writer;
+		this.mode = mode;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * @return the configured deduplicator.
+	 */
+	public static ScreenshotDeduplicator getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @return a deduplicator with the values of the doclet.properties.
+	 */
+	private static ScreenshotDeduplicator configured() {
+		Mode mode = Mode.SKIP;
+		final String modeValue = getPropertyValue("screenshots.duplicates");
+		if (modeValue != null && !modeValue.trim().isEmpty()) {
+			try {
+				mode = Mode.valueOf(modeValue.trim().toUpperCase());
+			} catch (final IllegalArgumentException e) {
+				LOG.log(Level.WARNING, "Invalid value [" + modeValue
+						+ "] of screenshots.duplicates. Using skip.");
+			}
+		}
+		double threshold = 0;
+		final String thresholdValue = getPropertyValue("screenshots.duplicates.threshold");
+		if (thresholdValue != null && !thresholdValue.trim().isEmpty()) {
+			try {
+				threshold = Math.max(0, Double.parseDouble(thresholdValue.trim()));
+			} catch (final NumberFormatException e) {
+				LOG.log(Level.WARNING, "Invalid value [" + thresholdValue
+						+ "] of screenshots.duplicates.threshold. Ignoring it.");
+			}
+		}
+		return new ScreenshotDeduplicator(ScreenshotWriter.getInstance(),
+				mode, threshold);
+	}
+
+	/**
+	 * Starts a test, its first screenshot is always kept.
+	 *
+	 * @param test
+	 *            the id of the test.
+	 */
+	public synchronized void start(final String test) {
+		this.currentTest = test;
+		this.suppressed.put(test, Integer.valueOf(0));
+		this.lastHash = null;
+		this.lastFile = null;
+		this.lastWrite = null;
+		this.lastImage = null;
+	}
+
+	/**
+	 * Writes the screenshot, unless it looks like the last kept screenshot of
+	 * the test.
+	 *
+	 * @param png
+	 *            the screenshot.
+	 * @param destination
+	 *            the file to write the screenshot to.
+	 */
+	public synchronized void capture(final byte[] png, final File destination) {
+		if (this.mode == Mode.KEEP && this.threshold <= 0) {
+			this.writer.submit(png, destination);
+			return;
+		}
+		final byte[] hash = sha256(png);
+		if (this.mode != Mode.KEEP && this.lastHash != null
+				&& MessageDigest.isEqual(hash, this.lastHash)) {
+			this.suppress();
+			if (this.mode == Mode.LINK) {
+				this.writer.link(this.lastWrite, this.lastFile, png,
+						destination);
+			}
+			return;
+		}
+		BufferedImage image = null;
+		if (this.threshold > 0) {
+			image = decode(png);
+			if (image != null && this.lastImage != null
+					&& difference(this.lastImage, image) < this.threshold) {
+				this.suppress();
+				return;
+			}
+		}
+		this.lastHash = hash;
+		this.lastFile = destination;
+		this.lastWrite = this.writer.submit(png, destination);
+		this.lastImage = image;
+	}
+
+	/**
+	 * Counts a suppressed screenshot of the current test.
+	 */
+	private void suppress() {
+		final Integer count = this.suppressed.get(this.currentTest);
+		this.suppressed.put(this.currentTest,
+				Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+	}
+
+	/**
+	 * @param test
+	 *            the id of the test.
+	 * @return the number of screenshots of the test that were skipped or
+	 *         linked.
+	 */
+	public synchronized int getSuppressed(final String test) {
+		final Integer count = this.suppressed.get(test);
+		return count == null ? 0 : count.intValue();
+	}
+
+	/**
+	 * @param png
+	 *            the screenshot.
+	 * @return the SHA-256 of the screenshot.
+	 */
+	private static byte[] sha256(final byte[] png) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(png);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported.", e);
+		}
+	}
+
+	/**
+	 * @param png
+	 *            the screenshot.
+	 * @return the image, <code>null</code> if it cannot be decoded.
+	 */
+	private static BufferedImage decode(final byte[] png) {
+		try {
+			return ImageIO.read(new ByteArrayInputStream(png));
+		} catch (final IOException e) {
+			LOG.log(Level.FINE, "Could not decode screenshot.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param image1
+	 *            an image.
+	 * @param image2
+	 *            another image.
+	 * @return the share of different pixels, 1 if the sizes differ.
+	 */
+	static double difference(final BufferedImage image1,
+			final BufferedImage image2) {
+		final int width = image1.getWidth();
+		final int height = image1.getHeight();
+		if (width != image2.getWidth() || height != image2.getHeight()) {
+			return 1;
+		}
+		final int[] row1 = new int[width];
+		final int[] row2 = new int[width];
+		long different = 0;
+		for (int y = 0; y < height; y++) {
+			image1.getRGB(0, y, width, 1, row1, 0, width);
+			image2.getRGB(0, y, width, 1, row2, 0, width);
+			for (int x = 0; x < width; x++) {
+				if (row1[x] != row2[x]) {
+					different++;
+				}
+			}
+		}
+		return (double) different / ((long) width * height);
+	}
+}
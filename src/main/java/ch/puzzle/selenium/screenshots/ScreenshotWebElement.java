@@ -1,14 +1,9 @@
 package ch.puzzle.selenium.screenshots;
 
-import static org.apache.commons.io.FileUtils.copyFile;
-
 import java.io.File;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.Dimension;
@@ -20,6 +15,7 @@ import org.openqa.selenium.WebElement;
 
 import ch.puzzle.annotations.TestCase;
 import ch.puzzle.selenium.BaseSeleniumTest;
+import ch.puzzle.selenium.screenshots.ScreenshotCapture.Region;
 import ch.puzzle.util.DocletPropertyUtils;
 
 /**
@@ -29,8 +25,6 @@ import ch.puzzle.util.DocletPropertyUtils;
  */
 public class ScreenshotWebElement implements WebElement {
 
-	private static final Logger LOG = Logger.getAnonymousLogger();
-
 	/** the selenium {@link WebElement} that get wrapped. */
 	private final WebElement element;
 
@@ -51,19 +45,48 @@ public class ScreenshotWebElement implements WebElement {
 	}
 
 	/**
-	 * @see whatever.util.screenshots.Screenshotable#takeScreenshot(java.lang.String)
+	 * Takes a screenshot of the whole page and queues it to be written by the
+	 * {@link ScreenshotWriter}, unless the {@link ScreenshotDeduplicator}
+	 * suppresses it.
+	 * 
+	 * @param destinationFile
+	 *            the file to write the screenshot to.
 	 */
 	public void takeScreenshot(final String destinationFile) {
-		try {
-			final File srcFile = ((TakesScreenshot) this.driver)
-					.getScreenshotAs(OutputType.FILE);
-
-			copyFile(srcFile, new File(destinationFile));
+		this.takeScreenshot(destinationFile, null);
+	}
 
-		} catch (final IOException e) {
-			LOG.log(Level.WARNING, "screenshot could not be saved to system.",
-					e);
+	/**
+	 * Takes a screenshot of a region, see {@link ScreenshotCapture}, and
+	 * queues it to be written by the {@link ScreenshotWriter}, unless the
+	 * {@link ScreenshotDeduplicator} suppresses it. If only the screenshots of
+	 * failed tests are written, it is kept in the {@link ScreenshotBuffer}
+	 * instead.
+	 * 
+	 * @param destinationFile
+	 *            the file to write the screenshot to.
+	 * @param region
+	 *            the region, <code>null</code> for the whole page.
+	 */
+	public void takeScreenshot(final String destinationFile,
+			final Region region) {
+		final byte[] png = ((TakesScreenshot) this.driver)
+				.getScreenshotAs(OutputType.BYTES);
+		final ScreenshotBuffer buffer = ScreenshotBuffer.getInstance();
+		if (buffer.isEnabled()) {
+			buffer.add(png, region, new File(destinationFile));
+			return;
 		}
+		ScreenshotDeduplicator.getInstance().capture(
+				ScreenshotCapture.crop(png, region), new File(destinationFile));
+	}
+
+	/**
+	 * @return the configured region of the screenshot of this element,
+	 *         determined before the element is acted on.
+	 */
+	private Region captureRegion() {
+		return ScreenshotCapture.getInstance().region(this.driver, this.element);
 	}
 
 	/**
@@ -95,8 +118,9 @@ public class ScreenshotWebElement implements WebElement {
 	 */
 	@Override
 	public void click() {
+		final Region region = this.captureRegion();
 		this.element.click();
-		this.takeScreenshot(this.getFilePath());
+		this.takeScreenshot(this.getFilePath(), region);
 	}
 
 	/**
@@ -106,8 +130,9 @@ public class ScreenshotWebElement implements WebElement {
 	 */
 	@Override
 	public void submit() {
+		final Region region = this.captureRegion();
 		this.element.submit();
-		this.takeScreenshot(this.getFilePath());
+		this.takeScreenshot(this.getFilePath(), region);
 	}
 
 	/**
@@ -0,0 +1,356 @@
+package ch.puzzle.selenium.screenshots;
+
+import static ch.puzzle.util.DocletPropertyUtils.getPropertyValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the screenshots in the background, so the test does not wait for the
+ * disk. The screenshots are queued to a pool of writer threads. If the queue
+ * is full, the test thread writes the screenshot itself, so a slow disk slows
+ * the tests down instead of filling the memory.
+ *
+ * The pool is configured in the doclet.properties:
+ *
+ * <ul>
+ * <li>screenshots.writers: the number of writer threads (default: 2).</li>
+ * <li>screenshots.queue: the number of screenshots waiting to be written
+ * (default: 16).</li>
+ * </ul>
+ *
+ * Call {@link #drain()} before the screenshots are needed, e.g. after the test
+ * class.
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public final class ScreenshotWriter {
+
+	private static final Logger LOG = Logger.getAnonymousLogger();
+
+	/** the default number of writer threads. */
+	static final int DEFAULT_WRITERS = 2;
+
+	/** the default capacity of the queue. */
+	static final int DEFAULT_QUEUE = 16;
+
+	/** seconds an idle writer thread is kept. */
+	private static final long KEEP_ALIVE_SECONDS = 30;
+
+	/** the writer threads. */
+	private final ThreadPoolExecutor executor;
+
+	/** the number of screenshots submitted but not written yet. */
+	private int pending;
+
+	/** the number of screenshots written. */
+	private final AtomicLong written = new AtomicLong();
+
+	/** the number of screenshots that could not be written. */
+	private final AtomicLong failed = new AtomicLong();
+
+	/** the total time spent writing, in nanoseconds. */
+	private final AtomicLong writeNanos = new AtomicLong();
+
+	/** the longest time spent writing a screenshot, in nanoseconds. */
+	private final AtomicLong maxWriteNanos = new AtomicLong();
+
+	/** the largest number of queued screenshots seen. */
+	private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+	/**
+	 * Holder of the singleton instance, initialized on first access by the
+	 * class loader.
+	 */
+	private static final class InstanceHolder {
+
+		/** the writer with the configured pool. */
+		private static final ScreenshotWriter INSTANCE = new ScreenshotWriter(
+				intValue("screenshots.writers", DEFAULT_WRITERS), intValue(
+						"screenshots.queue", DEFAULT_QUEUE));
+	}
+
+	/**
+	 * @param writers
+	 *            the number of writer threads.
+	 * @param queueCapacity
+	 *            the number of screenshots waiting to be written.
+	 */
+	ScreenshotWriter(final int writers, final int queueCapacity) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(writers, writers,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable,
+								"screenshot-writer-"
+										+ threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return the writer with the configured pool.
+	 */
+	public static ScreenshotWriter getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * @param property
+	 *            the property key.
+	 * @param defaultValue
+	 *            the value if not set or invalid.
+	 * @return the value of the property, at least 1.
+	 */
+	private static int intValue(final String property, final int defaultValue) {
+		final String value = getPropertyValue(property);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(value.trim()));
+		} catch (final NumberFormatException e) {
+			LOG.log(Level.WARNING, "Invalid value [" + value + "] of "
+					+ property + ". Using " + defaultValue + ".");
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Queues a screenshot to be written. Writes it on the calling thread if
+	 * the queue is full.
+	 *
+	 * @param png
+	 *            the screenshot.
+	 * @param destination
+	 *            the file to write the screenshot to.
+	 * @return the pending write.
+	 */
+	public Future<?> submit(final byte[] png, final File destination) {
+		return this.queue(new Runnable() {
+			@Override
+			public void run() {
+				ScreenshotWriter.this.write(png, destination);
+			}
+		});
+	}
+
+	/**
+	 * Queues a hard link to a screenshot written before. The screenshot is
+	 * written as copy if the file system does not support hard links.
+	 *
+	 * @param original
+	 *            the pending write of the original screenshot.
+	 * @param originalFile
+	 *            the file of the original screenshot.
+	 * @param png
+	 *            the screenshot, identical to the original.
+	 * @param destination
+	 *            the file to link to the original.
+	 * @return the pending link.
+	 */
+	public Future<?> link(final Future<?> original, final File originalFile,
+			final byte[] png, final File destination) {
+		return this.queue(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					original.get();
+					final long start = System.nanoTime();
+					Files.deleteIfExists(destination.toPath());
+					Files.createLink(destination.toPath(), originalFile.toPath());
+					ScreenshotWriter.this.written.incrementAndGet();
+					ScreenshotWriter.this.recordWrite(System.nanoTime()
+							- start);
+				} catch (final IOException | UnsupportedOperationException
+						| ExecutionException e) {
+					LOG.log(Level.FINE, "Could not link " + destination
+							+ " to " + originalFile + ". Writing a copy.", e);
+					ScreenshotWriter.this.write(png, destination);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					ScreenshotWriter.this.write(png, destination);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Queues a write.
+	 *
+	 * @param write
+	 *            the write.
+	 * @return the pending write.
+	 */
+	private Future<?> queue(final Runnable write) {
+		synchronized (this) {
+			this.pending++;
+		}
+		final Future<?> future = this.executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					write.run();
+				} finally {
+					ScreenshotWriter.this.done();
+				}
+			}
+		});
+		final int depth = this.getQueueDepth();
+		int max;
+		while (depth > (max = this.maxQueueDepth.get())
+				&& !this.maxQueueDepth.compareAndSet(max, depth)) {
+			// retry with the new maximum
+		}
+		return future;
+	}
+
+	/**
+	 * Writes a screenshot and records the time spent.
+	 *
+	 * @param png
+	 *            the screenshot.
+	 * @param destination
+	 *            the file to write the screenshot to.
+	 */
+	private void write(final byte[] png, final File destination) {
+		final long start = System.nanoTime();
+		try {
+			final File parent = destination.getAbsoluteFile().getParentFile();
+			if (parent != null && !parent.isDirectory() && !parent.mkdirs()
+					&& !parent.isDirectory()) {
+				throw new IOException("Could not create directory " + parent
+						+ ".");
+			}
+			try (final FileChannel channel = FileChannel.open(
+					destination.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				final ByteBuffer buffer = ByteBuffer.wrap(png);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			this.written.incrementAndGet();
+		} catch (final IOException e) {
+			this.failed.incrementAndGet();
+			LOG.log(Level.WARNING, "screenshot could not be saved to "
+					+ destination + ".", e);
+		}
+		this.recordWrite(System.nanoTime() - start);
+	}
+
+	/**
+	 * @param nanos
+	 *            the time spent writing a screenshot, in nanoseconds.
+	 */
+	private void recordWrite(final long nanos) {
+		this.writeNanos.addAndGet(nanos);
+		long max;
+		while (nanos > (max = this.maxWriteNanos.get())
+				&& !this.maxWriteNanos.compareAndSet(max, nanos)) {
+			// retry with the new maximum
+		}
+	}
+
+	/**
+	 * Marks a screenshot as written.
+	 */
+	private synchronized void done() {
+		this.pending--;
+		if (this.pending == 0) {
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until all submitted screenshots are written.
+	 */
+	public void drain() {
+		final long start = System.nanoTime();
+		synchronized (this) {
+			boolean interrupted = false;
+			while (this.pending > 0) {
+				try {
+					this.wait();
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		LOG.log(Level.FINE, "waited "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+				+ "ms for screenshots. written: " + this.getWritten()
+				+ ", failed: " + this.getFailed() + ", average write: "
+				+ TimeUnit.NANOSECONDS.toMillis(this.getAverageWriteNanos())
+				+ "ms, max write: "
+				+ TimeUnit.NANOSECONDS.toMillis(this.getMaxWriteNanos())
+				+ "ms, max queue depth: " + this.getMaxQueueDepth() + ".");
+	}
+
+	/**
+	 * @return the number of screenshots waiting in the queue.
+	 */
+	public int getQueueDepth() {
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 * @return the largest number of screenshots waiting in the queue.
+	 */
+	public int getMaxQueueDepth() {
+		return this.maxQueueDepth.get();
+	}
+
+	/**
+	 * @return the number of screenshots written.
+	 */
+	public long getWritten() {
+		return this.written.get();
+	}
+
+	/**
+	 * @return the number of screenshots that could not be written.
+	 */
+	public long getFailed() {
+		return this.failed.get();
+	}
+
+	/**
+	 * @return the average time to write a screenshot, in nanoseconds.
+	 */
+	public long getAverageWriteNanos() {
+		final long count = this.written.get() + this.failed.get();
+		return count == 0 ? 0 : this.writeNanos.get() / count;
+	}
+
+	/**
+	 * @return the longest time to write a screenshot, in nanoseconds.
+	 */
+	public long getMaxWriteNanos() {
+		return this.maxWriteNanos.get();
+	}
+}
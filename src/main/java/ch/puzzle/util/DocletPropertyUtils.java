@@ -22,8 +22,15 @@ public final class DocletPropertyUtils {
 	/** Log4j Logger. */
 	private static final Logger LOG = Logger.getAnonymousLogger();
 
-	/** Site-Generation-Properties to read from. */
-	private static Properties docletProperties;
+	/**
+	 * Holder of the Site-Generation-Properties, loaded completely by the class
+	 * loader on first access, so parallel tests never see them partly loaded.
+	 */
+	private static final class PropertiesHolder {
+
+		/** Site-Generation-Properties to read from. */
+		private static final Properties DOCLET_PROPERTIES = load();
+	}
 
 	/**
 	 * @param property
@@ -31,27 +38,29 @@ public final class DocletPropertyUtils {
 	 * @return the value to the provided property
 	 */
 	public static String getPropertyValue(final String property) {
-		return DocletPropertyUtils.getProperties().getProperty(property);
+		return PropertiesHolder.DOCLET_PROPERTIES.getProperty(property);
 	}
 
 	/**
-	 * Initializes the properties if not done yet.
+	 * Loads the properties.
 	 * 
-	 * @return the (initialized) properties.
+	 * @return the loaded properties, empty if they cannot be read.
 	 */
-	private static Properties getProperties() {
-		if (docletProperties == null) {
-			try (final InputStream resourceAsStream = DocletPropertyUtils.class
-					.getResourceAsStream("/doclet.properties")) {
-				docletProperties = new Properties();
-				docletProperties.load(resourceAsStream);
-				resourceAsStream.close();
-			} catch (final IOException e) {
+	private static Properties load() {
+		final Properties properties = new Properties();
+		try (final InputStream resourceAsStream = DocletPropertyUtils.class
+				.getResourceAsStream("/doclet.properties")) {
+			if (resourceAsStream == null) {
 				LOG.log(Level.WARNING,
-						"cannot read properties. File [doclet.properties] does not exists.",
-						e);
+						"cannot read properties. File [doclet.properties] does not exists.");
+				return properties;
 			}
+			properties.load(resourceAsStream);
+		} catch (final IOException e) {
+			LOG.log(Level.WARNING,
+					"cannot read properties. File [doclet.properties] does not exists.",
+					e);
 		}
-		return docletProperties;
+		return properties;
 	}
 }
@@ -0,0 +1,278 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+
+import jdk.javadoc.doclet.Doclet;
+import jdk.javadoc.doclet.DocletEnvironment;
+import jdk.javadoc.doclet.Reporter;
+import ch.puzzle.doclet.exceptions.MissingCommandLineParameterException;
+import ch.puzzle.doclet.exceptions.UnsupportedCommandLineParameterException;
+
+/**
+ * Doclet for the jdk.javadoc doclet API of Java 9 and later. The included
+ * elements are traversed lazily and only elements with a configured
+ * annotation are asked for their doc comment. The documentation is generated
+ * by the {@link DocumentationGenerator}.
+ *
+ * Takes the same parameters as the legacy AnnotationDrivenDoclet, e.g.
+ *
+ * <pre>
+ * javadoc -doclet ch.puzzle.doclet.AnnotationDrivenJdkDoclet -output ~/docs
+ *     -annotation ch.puzzle.example.Page ~/templates/pages.apt.template
+ * </pre>
+ *
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class AnnotationDrivenJdkDoclet implements Doclet {
+
+	/** the options provided with the javadoc call, in the given order. */
+	private final List<String[]> options = new ArrayList<>();
+
+	/** reporter to print notices and errors with. */
+	private Reporter reporter;
+
+	/**
+	 * @see jdk.javadoc.doclet.Doclet#init(java.util.Locale,
+	 *      jdk.javadoc.doclet.Reporter)
+	 */
+	@Override
+	public void init(final Locale locale, final Reporter reporter) {
+		this.reporter = reporter;
+		this.options.clear();
+	}
+
+	/**
+	 * @see jdk.javadoc.doclet.Doclet#getName()
+	 */
+	@Override
+	public String getName() {
+		return "at-doclet";
+	}
+
+	/**
+	 * @see jdk.javadoc.doclet.Doclet#getSupportedOptions()
+	 */
+	@Override
+	public Set<? extends Option> getSupportedOptions() {
+		final Set<Option> supportedOptions = new LinkedHashSet<>();
+		supportedOptions.add(new DocletOption("-output", "<path>",
+				"the directory where to put the generated files"));
+		supportedOptions.add(new DocletOption("-annotation",
+				"<annotation> <template>",
+				"the annotation to document and the template to use for it"));
+		supportedOptions.add(new DocletOption("-siteResources", "<path>",
+				"the maven site resources directory"));
+		supportedOptions.add(new DocletOption("-threads", "<number>",
+				"the number of threads used to write the generated files"));
+		supportedOptions.add(new DocletOption("-profile", "<count>",
+				"the number of slowest templates and elements to print"));
+		supportedOptions.add(new DocletOption("-testReport", "<path>",
+				"the test report to generate the report page from"));
+		supportedOptions.add(new DocletOption("-optimizeImages",
+				"<lossless|quality>",
+				"optimize the PNG images of the site resources"));
+		return supportedOptions;
+	}
+
+	/**
+	 * @see jdk.javadoc.doclet.Doclet#getSupportedSourceVersion()
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latest();
+	}
+
+	/**
+	 * @see jdk.javadoc.doclet.Doclet#run(jdk.javadoc.doclet.DocletEnvironment)
+	 */
+	@Override
+	public boolean run(final DocletEnvironment environment) {
+		final long optionsStart = System.nanoTime();
+		try {
+			DocumentationGenerator.processOptions(this.options
+					.toArray(new String[this.options.size()][]));
+		} catch (UnsupportedCommandLineParameterException
+				| MissingCommandLineParameterException e) {
+			this.reporter.print(Kind.ERROR, e.getMessage());
+			return false;
+		}
+
+		DocumentationGenerator.profile.record(RunProfile.OPTIONS,
+				optionsStart);
+
+		final long traversalStart = System.nanoTime();
+		final Elements elementUtils = environment.getElementUtils();
+		final List<DocumentedElement> elements = new ArrayList<>();
+		for (final TypeElement type : ElementFilter.typesIn(environment
+				.getIncludedElements())) {
+			// FIXME: windows paths.
+			final String destinationFolder = DocumentationGenerator.baseOutputDir
+					+ elementUtils.getPackageOf(type).getQualifiedName()
+							.toString().replaceAll("\\.", "/");
+
+			this.extractElements(elementUtils, type, destinationFolder,
+					elements);
+			for (final ExecutableElement method : ElementFilter
+					.methodsIn(type.getEnclosedElements())) {
+				if (environment.isIncluded(method)) {
+					this.extractElements(elementUtils, method,
+							destinationFolder, elements);
+				}
+			}
+		}
+		DocumentationGenerator.profile.record(RunProfile.TRAVERSAL,
+				traversalStart);
+
+		try {
+			DocumentationModel.write(new File(
+					DocumentationGenerator.baseOutputDir,
+					DocumentationModel.FILE_NAME), elements);
+			for (final String notice : DocumentationGenerator.generate(
+					elements, true)) {
+				this.reporter.print(Kind.NOTE, notice);
+			}
+		} catch (final IOException e) {
+			this.reporter.print(Kind.ERROR,
+					"Could not write output files: " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Extracts one {@link DocumentedElement} per configured annotation of the
+	 * given element. The doc comment is only read if the element has a
+	 * configured annotation.
+	 *
+	 * @param elementUtils
+	 *            the element utilities of the environment.
+	 * @param element
+	 *            the type or method to extract.
+	 * @param destinationFolder
+	 *            the directory where to put the generated files.
+	 * @param elements
+	 *            the list to add the extracted elements to.
+	 */
+	private void extractElements(final Elements elementUtils,
+			final Element element, final String destinationFolder,
+			final List<DocumentedElement> elements) {
+		String[] tagNames = null;
+		String[] tagTexts = null;
+
+		for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			final String qualifiedAnnotationName = ((TypeElement) mirror
+					.getAnnotationType().asElement()).getQualifiedName()
+					.toString();
+			if (!DocumentationGenerator.configuredAnnotations
+					.containsKey(qualifiedAnnotationName)) {
+				continue;
+			}
+
+			if (tagNames == null) {
+				final List<String> names = new ArrayList<>();
+				final List<String> texts = new ArrayList<>();
+				AnnotationDrivenProcessor.parseBlockTags(
+						elementUtils.getDocComment(element), names, texts);
+				tagNames = names.toArray(new String[names.size()]);
+				tagTexts = texts.toArray(new String[texts.size()]);
+			}
+
+			final Map<String, String> annotationValues = new LinkedHashMap<>();
+			for (final Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror
+					.getElementValues().entrySet()) {
+				annotationValues.put(value.getKey().getSimpleName().toString(),
+						value.getValue().toString());
+			}
+
+			elements.add(DocumentationGenerator.createElement(
+					qualifiedAnnotationName, destinationFolder, tagNames,
+					tagTexts, annotationValues));
+		}
+	}
+
+	/**
+	 * A doclet option. The option and its values are stored in the order they
+	 * are provided, the same way the legacy doclet API provides them.
+	 */
+	private final class DocletOption implements Option {
+
+		/** the name of the option. */
+		private final String name;
+
+		/** the description of the parameters. */
+		private final String parameters;
+
+		/** the description of the option. */
+		private final String description;
+
+		/**
+		 * @param name
+		 *            the name of the option.
+		 * @param parameters
+		 *            the description of the parameters.
+		 * @param description
+		 *            the description of the option.
+		 */
+		DocletOption(final String name, final String parameters,
+				final String description) {
+			this.name = name;
+			this.parameters = parameters;
+			this.description = description;
+		}
+
+		@Override
+		public int getArgumentCount() {
+			return DocumentationGenerator.optionLength(this.name) - 1;
+		}
+
+		@Override
+		public String getDescription() {
+			return this.description;
+		}
+
+		@Override
+		public Option.Kind getKind() {
+			return Option.Kind.STANDARD;
+		}
+
+		@Override
+		public List<String> getNames() {
+			return Collections.singletonList(this.name);
+		}
+
+		@Override
+		public String getParameters() {
+			return this.parameters;
+		}
+
+		@Override
+		public boolean process(final String option, final List<String> arguments) {
+			final List<String> values = new ArrayList<>();
+			values.add(option);
+			values.addAll(arguments);
+			AnnotationDrivenJdkDoclet.this.options.add(values
+					.toArray(new String[values.size()]));
+			return true;
+		}
+	}
+}
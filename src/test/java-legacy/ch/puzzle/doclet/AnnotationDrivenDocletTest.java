@@ -0,0 +1,71 @@
+package ch.puzzle.doclet;
+
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.RootDoc;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class AnnotationDrivenDocletTest {
+
+	/**
+	 * reset static fields
+	 */
+	@After
+	public void tearDown() {
+		DocumentationGenerator.configuredAnnotations = new HashMap<>();
+		DocumentationGenerator.baseOutputDir = null;
+		DocumentationGenerator.resourcesDir = "src/site/resources/";
+		DocumentationGenerator.compiledTemplates.clear();
+		DocumentationGenerator.resourceCatalog = null;
+		DocumentationGenerator.profile = new RunProfile();
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.AnnotationDrivenDoclet#start(com.sun.javadoc.RootDoc)}
+	 * .
+	 */
+	@Test
+	public void shouldProcessCommandLineParametersInDoclet() throws Exception {
+		// GIVEN
+		final RootDoc root = Mockito.mock(RootDoc.class);
+		final String[][] providedCommandLineParameters = {
+				{ "-output", "anywhere" },
+				{ "-annotation", "class1", "template1" },
+				{ "-siteResources", "anywhere/else" } };
+
+		Mockito.when(root.options()).thenReturn(providedCommandLineParameters);
+		Mockito.when(root.classes()).thenReturn(new ClassDoc[] {});
+
+		// WHEN
+		AnnotationDrivenDoclet.start(root);
+
+		// THEN
+		Assert.assertEquals("anywhere", DocumentationGenerator.baseOutputDir);
+		Assert.assertEquals("anywhere/else",
+				DocumentationGenerator.resourcesDir);
+		Assert.assertTrue(DocumentationGenerator.configuredAnnotations
+				.containsKey("class1"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.AnnotationDrivenDoclet#processAnnotations(com.sun.javadoc.Tag[], com.sun.javadoc.AnnotationDesc[], java.lang.String)}
+	 * .
+	 */
+	@Test
+	@Ignore(value = "not yet implemented")
+	public void testProcessAnnotations() {
+		// TODO
+		Assert.fail("Not yet implemented");
+	}
+}
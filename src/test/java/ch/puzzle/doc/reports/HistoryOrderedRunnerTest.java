@@ -0,0 +1,225 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import ch.puzzle.annotations.TestCase;
+import ch.puzzle.doc.reports.TestAnalytics.Statistics;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class HistoryOrderedRunnerTest {
+
+	/** the tests in the order they ran. */
+	static final List<String> RUN = new ArrayList<>();
+
+	/**
+	 * Test class with a history.
+	 */
+	public static class Suite {
+
+		@Test
+		@TestCase(useCase = Object.class, id = "stable")
+		public void stable() {
+			RUN.add("stable");
+		}
+
+		@Test
+		@TestCase(useCase = Object.class, id = "flaky")
+		public void flaky() {
+			RUN.add("flaky");
+		}
+
+		@Test
+		@TestCase(useCase = Object.class, id = "broken")
+		public void broken() {
+			RUN.add("broken");
+			Assert.fail("still broken");
+		}
+
+		@Test
+		@TestCase(useCase = Object.class, id = "new")
+		public void added() {
+			RUN.add("new");
+		}
+
+		@Test
+		public void unannotated() {
+			RUN.add("unannotated");
+		}
+	}
+
+	/**
+	 * Test class that did not change.
+	 */
+	public static class Unchanged {
+
+		@Test
+		@TestCase(useCase = Object.class, id = "unchanged")
+		public void unchanged() {
+			RUN.add("unchanged");
+		}
+	}
+
+	/**
+	 * Test class that changed since its last run.
+	 */
+	public static class Changed {
+
+		@Test
+		@TestCase(useCase = Object.class, id = "changed")
+		public void changed() {
+			RUN.add("changed");
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void tearDown() {
+		RUN.clear();
+		HistoryOrderedRunner.reset();
+		System.clearProperty(HistoryOrderedRunner.FAIL_FAST_PROPERTY);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.HistoryOrderedRunner#run(org.junit.runner.notification.RunNotifier)}
+	 * .
+	 */
+	@Test
+	public void shouldRunLikelyFailuresFirst() throws Exception {
+		// GIVEN
+		final HistoryOrderedRunner runner = new HistoryOrderedRunner(
+				Suite.class, new HistorySorter(this.history(), null));
+
+		// WHEN
+		runner.run(new RunNotifier());
+
+		// THEN
+		Assert.assertEquals("broken", RUN.get(0));
+		Assert.assertEquals("new", RUN.get(1));
+		Assert.assertEquals("flaky", RUN.get(2));
+		Assert.assertEquals(5, RUN.size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.HistoryOrderedRunner#runChild(org.junit.runners.model.FrameworkMethod, RunNotifier)}
+	 * .
+	 */
+	@Test
+	public void shouldSkipTestsAfterFirstFailureWhenFailingFast()
+			throws Exception {
+		// GIVEN
+		System.setProperty(HistoryOrderedRunner.FAIL_FAST_PROPERTY, "true");
+		final HistoryOrderedRunner runner = new HistoryOrderedRunner(
+				Suite.class, new HistorySorter(this.history(), null));
+		final RunNotifier notifier = new RunNotifier();
+		final int[] ignored = new int[1];
+		notifier.addListener(new RunListener() {
+			@Override
+			public void testIgnored(final Description description) {
+				ignored[0]++;
+			}
+		});
+
+		// WHEN
+		runner.run(notifier);
+
+		// THEN
+		Assert.assertEquals(1, RUN.size());
+		Assert.assertEquals(4, ignored[0]);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.HistorySorter#HistorySorter(java.util.Map, java.io.File)}
+	 * .
+	 */
+	@Test
+	public void shouldRunChangedClassesFirstInSuite() throws Exception {
+		// GIVEN
+		final File fingerprints = this.folder.newFile("report.csv"
+				+ HistorySorter.FINGERPRINT_SUFFIX);
+		FileUtils.writeStringToFile(fingerprints, Unchanged.class.getName()
+				+ "\t" + HistorySorter.fingerprint(Unchanged.class) + "\n"
+				+ Changed.class.getName() + "\toutdated\n", "UTF-8");
+		final HistorySorter sorter = new HistorySorter(this.history(),
+				fingerprints);
+
+		// WHEN
+		new JUnitCore().run(Request.classes(Unchanged.class, Changed.class)
+				.sortWith(sorter));
+
+		// THEN
+		Assert.assertEquals("changed", RUN.get(0));
+		Assert.assertEquals("unchanged", RUN.get(1));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.HistoryOrderedRunner#run(org.junit.runner.notification.RunNotifier)}
+	 * .
+	 */
+	@Test
+	public void shouldKeepFingerprintOfClassThatRan() throws Exception {
+		// GIVEN
+		final File fingerprints = this.folder.newFile("report.csv"
+				+ HistorySorter.FINGERPRINT_SUFFIX);
+		FileUtils.writeStringToFile(fingerprints, Changed.class.getName()
+				+ "\toutdated\n", "UTF-8");
+		final HistoryOrderedRunner runner = new HistoryOrderedRunner(
+				Changed.class, new HistorySorter(this.history(), fingerprints));
+
+		// WHEN
+		runner.run(new RunNotifier());
+		runner.run(new RunNotifier());
+
+		// THEN
+		Assert.assertEquals(HistorySorter.fingerprint(Changed.class),
+				HistorySorter.readFingerprints(fingerprints).get(
+						Changed.class.getName()));
+		Assert.assertEquals(2, FileUtils.readLines(fingerprints).size());
+	}
+
+	/**
+	 * @return the history of the test cases of the {@link Suite}, the
+	 *         {@link Unchanged} and the {@link Changed} class.
+	 */
+	private Map<String, Statistics> history() {
+		final Map<String, Map<String, TestResult>> results = new HashMap<>();
+		final String[] builds = { "01.01.2014", "02.01.2014", "03.01.2014" };
+		final TestResult[] flaky = { TestResult.FAILED, TestResult.SUCCEEDED,
+				TestResult.SUCCEEDED };
+		for (int i = 0; i < builds.length; i++) {
+			results.put(builds[i], new HashMap<String, TestResult>());
+			results.get(builds[i]).put("stable", TestResult.SUCCEEDED);
+			results.get(builds[i]).put("flaky", flaky[i]);
+			results.get(builds[i]).put("broken", TestResult.FAILED);
+			results.get(builds[i]).put("unchanged", TestResult.SUCCEEDED);
+			results.get(builds[i]).put("changed", TestResult.SUCCEEDED);
+		}
+		final TestAnalytics analytics = new TestAnalytics(20);
+		analytics.update(results, new RetentionPolicy(0, 0, null,
+				RetentionPolicy.DEFAULT_DATE_FORMAT));
+		return analytics.getStatistics();
+	}
+}
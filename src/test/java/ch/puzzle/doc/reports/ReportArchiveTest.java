@@ -0,0 +1,87 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ReportArchiveTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.RetentionPolicy#selectArchived(java.util.Collection, long)}
+	 * .
+	 */
+	@Test
+	public void shouldKeepNewestTaggedAndWeeklyBuilds() throws Exception {
+		// GIVEN
+		final long now = new SimpleDateFormat("dd.MM.yyyy").parse(
+				"31.12.2014").getTime();
+		final RetentionPolicy policy = new RetentionPolicy(2, 30,
+				"\\d\\.\\d\\.\\d", RetentionPolicy.DEFAULT_DATE_FORMAT);
+
+		// WHEN
+		final Set<String> archived = policy.selectArchived(Arrays.asList(
+				"30.12.2014", "01.12.2014", "28.11.2014", "27.11.2014",
+				"01.01.2014", "1.2.3", "nightly"), now);
+
+		// THEN
+		// 30.12. and 01.12. are the newest and recent, 28.11. the newest of
+		// its week, 1.2.3 a tagged release.
+		Assert.assertEquals(new HashSet<>(Arrays.asList("27.11.2014",
+				"nightly")), archived);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.TestReportParser#saveTestReport(java.util.Map, java.io.File, RetentionPolicy)}
+	 * .
+	 */
+	@Test
+	public void shouldMoveOldBuildsToArchive() throws Exception {
+		// GIVEN
+		final File report = this.folder.newFile("testresult.csv");
+		final RetentionPolicy policy = new RetentionPolicy(1, 0, null,
+				RetentionPolicy.DEFAULT_DATE_FORMAT);
+		final Map<String, Map<String, TestResult>> testReport = new HashMap<>();
+		for (final String build : new String[] { "01.01.2014", "02.01.2014",
+				"03.01.2014" }) {
+			testReport.put(build, new HashMap<String, TestResult>());
+			testReport.get(build).put("TC-1", TestResult.SUCCEEDED);
+		}
+		testReport.get("01.01.2014").put("TC-2", TestResult.FAILED);
+
+		// WHEN
+		TestReportParser.saveTestReport(testReport, report, policy);
+		testReport.put("04.01.2014", new HashMap<String, TestResult>());
+		testReport.get("04.01.2014").put("TC-1", TestResult.FAILED);
+		TestReportParser.saveTestReport(
+				TestReportParser.parseExistingTestReport(report), report,
+				policy);
+		TestReportParser.saveTestReport(testReport, report, policy);
+
+		// THEN
+		Assert.assertEquals(2, ReportArchive.segments(report).length);
+		Assert.assertEquals(new HashSet<>(Arrays.asList("04.01.2014")),
+				TestReportParser.parseExistingTestReport(report).keySet());
+		final Map<String, Map<String, TestResult>> history = ReportArchive
+				.readHistory(report).toMap();
+		Assert.assertEquals(testReport.keySet(), history.keySet());
+		Assert.assertEquals(TestResult.FAILED, history.get("01.01.2014")
+				.get("TC-2"));
+	}
+}
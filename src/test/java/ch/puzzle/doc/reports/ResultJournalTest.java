@@ -0,0 +1,78 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ResultJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.TestReportParser#parseExistingTestReport(java.io.File)}
+	 * .
+	 */
+	@Test
+	public void shouldApplyJournalOnTopOfReport() throws Exception {
+		// GIVEN
+		final File report = this.folder.newFile("testresult.csv");
+		final Map<String, Map<String, TestResult>> existing = new HashMap<>();
+		existing.put("1.0", new HashMap<String, TestResult>());
+		existing.get("1.0").put("TC-1", TestResult.FAILED);
+		TestReportParser.saveTestReport(existing, report);
+
+		final ResultJournal journal = new ResultJournal(report);
+		journal.append("1.0", "TC-1", TestResult.SUCCEEDED);
+		journal.append("1.1", "TC\t2", TestResult.FAILED);
+		// record of a killed test run
+		FileUtils.writeStringToFile(ResultJournal.journalFile(report),
+				"1.1\tTC-3\tO", true);
+
+		// WHEN
+		final Map<String, Map<String, TestResult>> testReport = TestReportParser
+				.parseExistingTestReport(report);
+
+		// THEN
+		Assert.assertEquals(TestResult.SUCCEEDED, testReport.get("1.0")
+				.get("TC-1"));
+		Assert.assertEquals(TestResult.FAILED, testReport.get("1.1")
+				.get("TC\t2"));
+		Assert.assertFalse(testReport.get("1.1").containsKey("TC-3"));
+	}
+
+	/**
+	 * Test method for {@link ch.puzzle.doc.reports.ResultJournal#compact()}.
+	 */
+	@Test
+	public void shouldWriteReportAndTruncateJournalWhenCompacting()
+			throws Exception {
+		// GIVEN
+		final File report = this.folder.newFile("testresult.csv");
+		final ResultJournal journal = new ResultJournal(report);
+		journal.append("1.0", "TC-1", TestResult.SUCCEEDED);
+		journal.append("1.0", "TC-2", TestResult.FAILED);
+
+		// WHEN
+		journal.compact();
+
+		// THEN
+		Assert.assertFalse(ResultJournal.journalFile(report).exists());
+		final Map<String, Map<String, TestResult>> testReport = TestReportParser
+				.parseExistingTestReport(report);
+		Assert.assertEquals(TestResult.SUCCEEDED, testReport.get("1.0")
+				.get("TC-1"));
+		Assert.assertEquals(TestResult.FAILED, testReport.get("1.0")
+				.get("TC-2"));
+	}
+}
@@ -0,0 +1,139 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ResultMatrixTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.ResultMatrix#set(java.lang.String, java.lang.String, ch.puzzle.doc.reports.TestResult)}
+	 * .
+	 */
+	@Test
+	public void shouldStoreResultsOfManyTestCases() {
+		// GIVEN
+		final ResultMatrix matrix = new ResultMatrix();
+
+		// WHEN
+		for (int i = 0; i < 1000; i++) {
+			matrix.set("1.0", "TC-" + i, TestResult.values()[i % 3]);
+		}
+		matrix.set("1.1", "TC-999", TestResult.FAILED);
+		matrix.set("1.0", "TC-33", TestResult.FAILED);
+
+		// THEN
+		Assert.assertEquals(TestResult.SUCCEEDED, matrix.get("1.0", "TC-0"));
+		Assert.assertEquals(TestResult.FAILED, matrix.get("1.0", "TC-1"));
+		Assert.assertEquals(TestResult.NOT_AVAILABLE, matrix.get("1.0", "TC-2"));
+		Assert.assertEquals(TestResult.FAILED, matrix.get("1.0", "TC-33"));
+		Assert.assertEquals(TestResult.FAILED, matrix.get("1.1", "TC-999"));
+		Assert.assertNull(matrix.get("1.1", "TC-0"));
+		Assert.assertNull(matrix.get("2.0", "TC-0"));
+		Assert.assertEquals(1000, matrix.getTestCases().size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.ResultMatrix#writeCsv(java.io.File)}.
+	 */
+	@Test
+	public void shouldWriteSameCsvAsTestReportParser() throws Exception {
+		// GIVEN
+		final Map<String, Map<String, TestResult>> testReport = new HashMap<>();
+		testReport.put("1.1", new HashMap<String, TestResult>());
+		testReport.get("1.1").put("TC-2", TestResult.FAILED);
+		testReport.get("1.1").put("TC-1", TestResult.SUCCEEDED);
+		testReport.put("1.0", new HashMap<String, TestResult>());
+		testReport.get("1.0").put("TC-1", TestResult.FAILED);
+		final File expected = this.folder.newFile("expected.csv");
+		TestReportParser.saveTestReport(testReport, expected);
+
+		// WHEN
+		final File actual = this.folder.newFile("actual.csv");
+		ResultMatrix.fromMap(testReport).writeCsv(actual);
+
+		// THEN
+		Assert.assertEquals(FileUtils.readFileToString(expected),
+				FileUtils.readFileToString(actual));
+		Assert.assertEquals(TestReportParser.parseExistingTestReport(expected),
+				ResultMatrix.readCsv(actual).toMap());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.ResultMatrix#write(java.io.File)}.
+	 */
+	@Test
+	public void shouldReadWhatWasWritten() throws Exception {
+		// GIVEN
+		final ResultMatrix matrix = new ResultMatrix();
+		for (int release = 0; release < 10; release++) {
+			for (int i = 0; i <= release * 7; i++) {
+				matrix.set("R-" + release, "TC-" + i,
+						(i + release) % 5 == 0 ? TestResult.FAILED
+								: TestResult.SUCCEEDED);
+			}
+		}
+		final File file = this.folder.newFile("testresult.bin");
+
+		// WHEN
+		matrix.write(file);
+		final ResultMatrix read = ResultMatrix.read(file);
+
+		// THEN
+		Assert.assertEquals(matrix.getReleases(), read.getReleases());
+		Assert.assertEquals(matrix.getTestCases(), read.getTestCases());
+		Assert.assertEquals(matrix.toMap(), read.toMap());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.ResultMatrix#removeReleases(java.util.Collection)}
+	 * .
+	 */
+	@Test
+	public void shouldMoveReleasesBetweenMatrices() {
+		// GIVEN
+		final ResultMatrix matrix = new ResultMatrix();
+		matrix.set("1.0", "TC-1", TestResult.FAILED);
+		matrix.set("1.1", "TC-1", TestResult.SUCCEEDED);
+		matrix.set("1.1", "TC-2", TestResult.FAILED);
+		matrix.set("1.2", "TC-2", TestResult.SUCCEEDED);
+
+		// WHEN
+		final ResultMatrix removed = matrix.removeReleases(Arrays.asList(
+				"1.0", "1.2"));
+
+		// THEN
+		Assert.assertEquals(Arrays.asList("1.1"), matrix.getReleases());
+		Assert.assertEquals(Arrays.asList("1.0", "1.2"), removed.getReleases());
+		Assert.assertEquals(TestResult.FAILED, removed.get("1.0", "TC-1"));
+		Assert.assertEquals(TestResult.SUCCEEDED, removed.get("1.2", "TC-2"));
+		Assert.assertEquals(TestResult.FAILED, matrix.get("1.1", "TC-2"));
+
+		// WHEN
+		final ResultMatrix newer = new ResultMatrix();
+		newer.set("1.0", "TC-3", TestResult.SUCCEEDED);
+		removed.putReleases(newer);
+
+		// THEN
+		Assert.assertNull(removed.get("1.0", "TC-1"));
+		Assert.assertEquals(TestResult.SUCCEEDED, removed.get("1.0", "TC-3"));
+		Assert.assertEquals(TestResult.SUCCEEDED, removed.get("1.2", "TC-2"));
+	}
+}
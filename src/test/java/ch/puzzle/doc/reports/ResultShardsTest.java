@@ -0,0 +1,122 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ResultShardsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.ResultShards#merge(java.io.File)}.
+	 */
+	@Test
+	public void shouldMergeShardsOfAllForksIntoReport() throws Exception {
+		// GIVEN
+		final File report = this.folder.newFile("testresult.csv");
+		final Map<String, Map<String, TestResult>> existing = new HashMap<>();
+		existing.put("1.0", new HashMap<String, TestResult>());
+		existing.get("1.0").put("TC-1", TestResult.FAILED);
+		existing.get("1.0").put("TC-9", TestResult.SUCCEEDED);
+		TestReportParser.saveTestReport(existing, report);
+
+		final ResultShards fork1 = new ResultShards(report, "1");
+		final ResultShards fork2 = new ResultShards(report, "2");
+		fork1.append("1.0", "TC-1", TestResult.SUCCEEDED);
+		fork1.append("1.1", "TC-2", TestResult.SUCCEEDED);
+		fork2.append("1.1", "TC-2", TestResult.FAILED);
+		fork2.append("1.1/nightly", "TC-3", TestResult.SUCCEEDED);
+
+		// WHEN
+		final int merged = ResultShards.merge(report);
+
+		// THEN
+		Assert.assertEquals(4, merged);
+		Assert.assertEquals(0, ResultShards.findShards(report).length);
+		final Map<String, Map<String, TestResult>> testReport = TestReportParser
+				.parseExistingTestReport(report);
+		Assert.assertEquals(TestResult.SUCCEEDED, testReport.get("1.0")
+				.get("TC-1"));
+		Assert.assertEquals(TestResult.SUCCEEDED, testReport.get("1.0")
+				.get("TC-9"));
+		Assert.assertEquals(TestResult.FAILED, testReport.get("1.1")
+				.get("TC-2"));
+		Assert.assertEquals(TestResult.SUCCEEDED, testReport
+				.get("1.1/nightly").get("TC-3"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.ResultShards#merge(java.io.File)}.
+	 */
+	@Test
+	public void shouldKeepResultsAppendedAfterShardWasClaimed()
+			throws Exception {
+		// GIVEN
+		final File report = this.folder.newFile("testresult.csv");
+		final ResultShards fork = new ResultShards(report, "1");
+		fork.append("1.0", "TC-1", TestResult.SUCCEEDED);
+		final File claimed = ResultJournal.claim(
+				ResultShards.shardFile(report, "1.0", "1"), ResultShards.SUFFIX);
+
+		// WHEN
+		fork.append("1.0", "TC-2", TestResult.FAILED);
+
+		// THEN
+		Assert.assertTrue(ResultJournal.isClaimed(claimed));
+		Assert.assertTrue(ResultShards.shardFile(report, "1.0", "1").isFile());
+
+		// WHEN
+		final int merged = ResultShards.merge(report);
+
+		// THEN
+		Assert.assertEquals(2, merged);
+		Assert.assertEquals(0, ResultShards.findShards(report).length);
+		final Map<String, Map<String, TestResult>> testReport = TestReportParser
+				.parseExistingTestReport(report);
+		Assert.assertEquals(TestResult.SUCCEEDED, testReport.get("1.0")
+				.get("TC-1"));
+		Assert.assertEquals(TestResult.FAILED, testReport.get("1.0")
+				.get("TC-2"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.ResultShards#combine(java.util.Map, java.util.Map)}
+	 * .
+	 */
+	@Test
+	public void shouldLetFailureWinRegardlessOfOrder() {
+		// GIVEN
+		final Map<String, Map<String, TestResult>> failed = new HashMap<>();
+		failed.put("1.0", new HashMap<String, TestResult>());
+		failed.get("1.0").put("TC-1", TestResult.FAILED);
+		final Map<String, Map<String, TestResult>> succeeded = new HashMap<>();
+		succeeded.put("1.0", new HashMap<String, TestResult>());
+		succeeded.get("1.0").put("TC-1", TestResult.SUCCEEDED);
+		succeeded.get("1.0").put("TC-2", TestResult.SUCCEEDED);
+
+		// WHEN
+		final Map<String, Map<String, TestResult>> first = new HashMap<>();
+		ResultShards.combine(first, failed);
+		ResultShards.combine(first, succeeded);
+		final Map<String, Map<String, TestResult>> second = new HashMap<>();
+		ResultShards.combine(second, succeeded);
+		ResultShards.combine(second, failed);
+
+		// THEN
+		Assert.assertEquals(TestResult.FAILED, first.get("1.0").get("TC-1"));
+		Assert.assertEquals(first, second);
+	}
+}
@@ -0,0 +1,119 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.puzzle.doc.reports.TestAnalytics.Statistics;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class TestAnalyticsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/** orders the builds by date. */
+	private final RetentionPolicy policy = new RetentionPolicy(0, 0, null,
+			RetentionPolicy.DEFAULT_DATE_FORMAT);
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.TestAnalytics#update(java.util.Map, RetentionPolicy)}
+	 * .
+	 */
+	@Test
+	public void shouldUpdateStatisticsIncrementally() throws Exception {
+		// GIVEN
+		final Map<String, Map<String, TestResult>> history = new HashMap<>();
+		result(history, "01.01.2014", "TC-1", TestResult.SUCCEEDED);
+		result(history, "02.01.2014", "TC-1", TestResult.FAILED);
+		result(history, "03.01.2014", "TC-1", TestResult.SUCCEEDED);
+		result(history, "01.01.2014", "TC-2", TestResult.SUCCEEDED);
+		result(history, "02.01.2014", "TC-2", TestResult.SUCCEEDED);
+		result(history, "03.01.2014", "TC-2", TestResult.NOT_AVAILABLE);
+		final TestAnalytics analytics = new TestAnalytics(3);
+		analytics.update(history, this.policy);
+		final File statsFile = this.folder.newFile("testresult.csv.stats");
+		analytics.write(statsFile);
+
+		// WHEN
+		final TestAnalytics incremental = new TestAnalytics(3);
+		incremental.read(statsFile);
+		final Map<String, Map<String, TestResult>> newResults = new HashMap<>();
+		result(newResults, "04.01.2014", "TC-1", TestResult.SUCCEEDED);
+		result(newResults, "04.01.2014", "TC-2", TestResult.SUCCEEDED);
+		incremental.update(newResults, this.policy);
+		// a second run of the same build and a result of an old build
+		newResults.clear();
+		result(newResults, "04.01.2014", "TC-1", TestResult.FAILED);
+		result(newResults, "04.01.2014", "TC-2", TestResult.FAILED);
+		result(newResults, "01.01.2013", "TC-2", TestResult.FAILED);
+		incremental.update(newResults, this.policy);
+
+		// THEN
+		final Statistics tc1 = incremental.getStatistics().get("TC-1");
+		Assert.assertEquals(3, tc1.getFlips());
+		Assert.assertEquals(2, tc1.getWindowFlips());
+		Assert.assertEquals(1, tc1.getStreak());
+		Assert.assertEquals("04.01.2014", tc1.getLastFailedBuild());
+		Assert.assertEquals(1 / 3.0, tc1.getPassRate(), 0.001);
+		Assert.assertTrue(tc1.isNewlyBroken());
+
+		final Statistics tc2 = incremental.getStatistics().get("TC-2");
+		Assert.assertEquals(1, tc2.getFlips());
+		Assert.assertTrue(tc2.isNewlyBroken());
+		Assert.assertEquals(2 / 3.0, tc2.getPassRate(), 0.001);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.TestAnalytics#writePage(java.io.File, int)}
+	 * .
+	 */
+	@Test
+	public void shouldPublishFindingsAsAptPage() throws Exception {
+		// GIVEN
+		final Map<String, Map<String, TestResult>> history = new HashMap<>();
+		result(history, "01.01.2014", "TC|1", TestResult.FAILED);
+		result(history, "02.01.2014", "TC|1", TestResult.SUCCEEDED);
+		result(history, "03.01.2014", "TC|1", TestResult.FAILED);
+		final TestAnalytics analytics = new TestAnalytics(20);
+		analytics.update(history, this.policy);
+		final File page = new File(this.folder.getRoot(), "apt/analytics.apt");
+
+		// WHEN
+		analytics.writePage(page, 2);
+
+		// THEN
+		final String apt = FileUtils.readFileToString(page);
+		Assert.assertTrue(apt.contains("  * TC\\|1: failed in 03.01.2014"));
+		Assert.assertTrue(apt.contains("| TC\\|1 | 33% | 2 | 2 | 1 NOK | 03.01.2014 |"));
+	}
+
+	/**
+	 * @param results
+	 *            the results, by build and test case.
+	 * @param build
+	 *            the build.
+	 * @param testCase
+	 *            the id of the test case.
+	 * @param result
+	 *            the result to add.
+	 */
+	private static void result(
+			final Map<String, Map<String, TestResult>> results,
+			final String build, final String testCase, final TestResult result) {
+		if (!results.containsKey(build)) {
+			results.put(build, new HashMap<String, TestResult>());
+		}
+		results.get(build).put(testCase, result);
+	}
+}
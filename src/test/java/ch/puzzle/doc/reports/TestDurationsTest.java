@@ -0,0 +1,96 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class TestDurationsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.TestDurations#percentile(java.util.List, int)}
+	 * .
+	 */
+	@Test
+	public void shouldUseNearestRankPercentile() {
+		// GIVEN
+		final List<Long> sorted = Arrays.asList(Long.valueOf(10),
+				Long.valueOf(20), Long.valueOf(30), Long.valueOf(40));
+
+		// WHEN / THEN
+		Assert.assertEquals(20, TestDurations.percentile(sorted, 50));
+		Assert.assertEquals(40, TestDurations.percentile(sorted, 95));
+		Assert.assertEquals(10, TestDurations.percentile(sorted, 1));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.TestDurations#compact(java.io.File, int, RetentionPolicy)}
+	 * .
+	 */
+	@Test
+	public void shouldSummarizeNewestBuildsOfAllForks() throws Exception {
+		// GIVEN
+		final File report = this.folder.newFile("testresult.csv");
+		final TestDurations main = new TestDurations(
+				TestDurations.journalFile(report, null));
+		final TestDurations fork = new TestDurations(
+				TestDurations.journalFile(report, "2"));
+		main.record("01.01.2014", "TC-1", millis(500));
+		main.record("02.01.2014", "TC-1", millis(100));
+		main.record("02.01.2014", "TC-2", millis(50));
+		fork.record("03.01.2014", "TC-1", millis(300));
+		fork.record("03.01.2014", "TC-1", millis(200));
+
+		// WHEN
+		TestDurations.compact(report, 2, new RetentionPolicy(0, 0, null,
+				RetentionPolicy.DEFAULT_DATE_FORMAT));
+
+		// THEN
+		Assert.assertArrayEquals(
+				new File[] { TestDurations.journalFile(report, null)
+						.getAbsoluteFile() },
+				TestDurations.findJournals(report));
+		final Map<String, Map<String, Long>> durations = new HashMap<>();
+		TestDurations.replay(TestDurations.journalFile(report, null),
+				durations);
+		Assert.assertEquals(2, durations.size());
+		Assert.assertFalse(durations.containsKey("01.01.2014"));
+
+		Assert.assertEquals(
+				"\"test case\",\"builds\",\"p50 ms\",\"p95 ms\",\"max ms\"\n"
+						+ "\"TC-1\",\"2\",\"100\",\"200\",\"200\"\n"
+						+ "\"TC-2\",\"1\",\"50\",\"50\",\"50\"\n",
+				FileUtils.readFileToString(new File(report.getPath()
+						+ TestDurations.SUMMARY_SUFFIX)));
+		Assert.assertEquals("\"build\",\"test cases\",\"total ms\"\n"
+				+ "\"03.01.2014\",\"1\",\"200\"\n"
+				+ "\"02.01.2014\",\"2\",\"150\"\n",
+				FileUtils.readFileToString(new File(report.getPath()
+						+ TestDurations.TOTALS_SUFFIX)));
+	}
+
+	/**
+	 * @param millis
+	 *            a duration in milliseconds.
+	 * @return the duration in nanoseconds.
+	 */
+	private static long millis(final long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+}
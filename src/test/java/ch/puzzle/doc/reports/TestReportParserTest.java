@@ -0,0 +1,85 @@
+package ch.puzzle.doc.reports;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class TestReportParserTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.TestReportParser#parseTestReport(java.io.File, ch.puzzle.doc.reports.TestReportRowHandler)}
+	 * .
+	 */
+	@Test
+	public void shouldReportMalformedRowsAndContinue() throws Exception {
+		// GIVEN
+		final File report = this.folder.newFile("testresult.csv");
+		FileUtils.writeStringToFile(report, "\"\",\"1.0\",\"1.1\"\n"
+				+ "\"TC-1\",\"OK\",\"NOK\"\n" //
+				+ "\"TC-2\",\"OK\"\n" //
+				+ "\"TC-3\",\"OK\",\"maybe\"\n" //
+				+ "\"TC-4\",\"n/a\",\"OK\"\n");
+		final List<String> rows = new ArrayList<>();
+		final List<String> diagnostics = new ArrayList<>();
+
+		// WHEN
+		TestReportParser.parseTestReport(report, new TestReportRowHandler() {
+			@Override
+			public void row(final String testCase, final TestResult[] results) {
+				rows.add(testCase + "=" + results[0] + "," + results[1]);
+			}
+
+			@Override
+			public void malformed(final int row, final String message) {
+				diagnostics.add(row + ": " + message);
+			}
+		});
+
+		// THEN
+		Assert.assertEquals(3, rows.size());
+		Assert.assertEquals("TC-1=SUCCEEDED,FAILED", rows.get(0));
+		Assert.assertEquals("TC-3=SUCCEEDED,null", rows.get(1));
+		Assert.assertEquals("TC-4=NOT_AVAILABLE,SUCCEEDED", rows.get(2));
+		Assert.assertEquals(2, diagnostics.size());
+		Assert.assertTrue(diagnostics.get(0).startsWith("3: test case TC-2"));
+		Assert.assertTrue(diagnostics.get(1).startsWith(
+				"4: test case TC-3, release 1.1"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doc.reports.TestReportParser#parseExistingTestReport(java.io.File)}
+	 * .
+	 */
+	@Test
+	public void shouldKeepValidRowsOfBrokenReport() throws Exception {
+		// GIVEN
+		final File report = this.folder.newFile("testresult.csv");
+		FileUtils.writeStringToFile(report, "\"\",\"1.0\"\n"
+				+ "\"TC-1\",\"OK\",\"NOK\"\n" //
+				+ "\"TC-2\",\"NOK\"\n");
+
+		// WHEN
+		final Map<String, Map<String, TestResult>> testReport = TestReportParser
+				.parseExistingTestReport(report);
+
+		// THEN
+		Assert.assertEquals(1, testReport.get("1.0").size());
+		Assert.assertEquals(TestResult.FAILED, testReport.get("1.0")
+				.get("TC-2"));
+	}
+}
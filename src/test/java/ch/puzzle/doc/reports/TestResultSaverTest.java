@@ -0,0 +1,121 @@
+package ch.puzzle.doc.reports;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class TestResultSaverTest {
+
+	/** the number of recording threads. */
+	private static final int THREADS = 16;
+
+	/** the number of results each thread records. */
+	private static final int RESULTS_PER_THREAD = 2000;
+
+	/** the number of builds the results are spread over. */
+	private static final int BUILDS = 4;
+
+	/**
+	 * Test method for {@link ch.puzzle.doc.reports.TestResultSaver#snapshot()}
+	 * .
+	 */
+	@Test
+	public void shouldKeepAllResultsRecordedFromManyThreads() throws Exception {
+		// GIVEN
+		final TestResultSaver saver = TestResultSaver.getInstance();
+		final String prefix = "stress-" + System.nanoTime() + "-";
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicBoolean recording = new AtomicBoolean(true);
+		final ExecutorService executor = Executors
+				.newFixedThreadPool(THREADS + 1);
+
+		// WHEN
+		final List<Future<Void>> writers = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			final int thread = t;
+			writers.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					start.await();
+					for (int i = 0; i < RESULTS_PER_THREAD; i++) {
+						final String build = prefix + (i % BUILDS);
+						final String testCase = "TC-" + thread + "-" + i;
+						if (i % 3 == 0) {
+							saver.failed(build, testCase);
+						} else {
+							saver.succeeded(build, testCase);
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		// takes snapshots while the results are recorded.
+		final Future<Integer> reader = executor.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				start.await();
+				int snapshots = 0;
+				while (recording.get()) {
+					saver.snapshot();
+					snapshots++;
+				}
+				return Integer.valueOf(snapshots);
+			}
+		});
+		start.countDown();
+		for (final Future<Void> writer : writers) {
+			writer.get(1, TimeUnit.MINUTES);
+		}
+		recording.set(false);
+		reader.get(1, TimeUnit.MINUTES);
+		executor.shutdown();
+
+		// THEN
+		final Map<String, Map<String, TestResult>> snapshot = saver.snapshot();
+		for (int b = 0; b < BUILDS; b++) {
+			Assert.assertEquals(THREADS * RESULTS_PER_THREAD / BUILDS, snapshot
+					.get(prefix + b).size());
+		}
+		Assert.assertEquals(TestResult.FAILED,
+				snapshot.get(prefix + "0").get("TC-7-0"));
+		Assert.assertEquals(TestResult.SUCCEEDED,
+				snapshot.get(prefix + "1").get("TC-7-1"));
+	}
+
+	/**
+	 * Test method for {@link ch.puzzle.doc.reports.TestResultSaver#snapshot()}
+	 * .
+	 */
+	@Test
+	public void shouldNotChangeSnapshotWhenRecordingMoreResults() {
+		// GIVEN
+		final TestResultSaver saver = TestResultSaver.getInstance();
+		final String build = "snapshot-" + System.nanoTime();
+		saver.succeeded(build, "TC-1");
+		final Map<String, Map<String, TestResult>> snapshot = saver.snapshot();
+
+		// WHEN
+		saver.failed(build, "TC-1");
+		saver.succeeded(build, "TC-2");
+
+		// THEN
+		Assert.assertEquals(1, snapshot.get(build).size());
+		Assert.assertEquals(TestResult.SUCCEEDED, snapshot.get(build).get("TC-1"));
+		Assert.assertEquals(TestResult.FAILED,
+				saver.snapshot().get(build).get("TC-1"));
+	}
+}
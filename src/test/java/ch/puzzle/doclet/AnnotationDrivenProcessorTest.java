@@ -0,0 +1,71 @@
+package ch.puzzle.doclet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class AnnotationDrivenProcessorTest {
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.AnnotationDrivenProcessor#parseBlockTags(java.lang.String, java.util.List, java.util.List)}
+	 * .
+	 */
+	@Test
+	public void shouldParseBlockTagsOfDocComment() {
+		// GIVEN
+		final String docComment = " Main description with {@link Object}.\n"
+				+ "\n" + " @name Login\n" + " @description first line\n"
+				+ "   second line\n" + "\n" + " @author someone\n";
+		final List<String> tagNames = new ArrayList<>();
+		final List<String> tagTexts = new ArrayList<>();
+
+		// WHEN
+		AnnotationDrivenProcessor.parseBlockTags(docComment, tagNames,
+				tagTexts);
+
+		// THEN
+		Assert.assertEquals(3, tagNames.size());
+		Assert.assertEquals("@name", tagNames.get(0));
+		Assert.assertEquals("Login", tagTexts.get(0));
+		Assert.assertEquals("@description", tagNames.get(1));
+		Assert.assertEquals("first line\n   second line", tagTexts.get(1));
+		Assert.assertEquals("@author", tagNames.get(2));
+		Assert.assertEquals("someone", tagTexts.get(2));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.AnnotationDrivenProcessor#toOptions(java.util.Map)}
+	 * .
+	 */
+	@Test
+	public void shouldConvertProcessorOptionsToDocletOptions() {
+		// GIVEN
+		final Map<String, String> processorOptions = new HashMap<>();
+		processorOptions.put(AnnotationDrivenProcessor.OPTION_OUTPUT,
+				"anywhere");
+		processorOptions.put(AnnotationDrivenProcessor.OPTION_ANNOTATIONS,
+				"class1=template1, class2=template2");
+
+		// WHEN
+		final String[][] options = AnnotationDrivenProcessor
+				.toOptions(processorOptions);
+
+		// THEN
+		Assert.assertEquals(3, options.length);
+		Assert.assertArrayEquals(new String[] { "-output", "anywhere" },
+				options[0]);
+		Assert.assertArrayEquals(new String[] { "-annotation", "class1",
+				"template1" }, options[1]);
+		Assert.assertArrayEquals(new String[] { "-annotation", "class2",
+				"template2" }, options[2]);
+	}
+}
@@ -0,0 +1,535 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.puzzle.doclet.exceptions.MissingCommandLineParameterException;
+import ch.puzzle.doclet.exceptions.UnsupportedCommandLineParameterException;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class DocumentationGeneratorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * reset static fields
+	 */
+	@After
+	public void tearDown() {
+		DocumentationGenerator.configuredAnnotations = new HashMap<>();
+		DocumentationGenerator.baseOutputDir = null;
+		DocumentationGenerator.resourcesDir = "src/site/resources/";
+		DocumentationGenerator.compiledTemplates.clear();
+		DocumentationGenerator.threads = 1;
+		DocumentationGenerator.testReport = null;
+		DocumentationGenerator.imageOptimizer = null;
+		DocumentationGenerator.resourceCatalog = null;
+		DocumentationGenerator.profileCount = 0;
+		DocumentationGenerator.profile = new RunProfile();
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.Template#render(java.util.Map, java.io.PrintWriter)}
+	 * .
+	 */
+	@Test
+	public void shouldRenderCompiledTemplateWithTableRegion() throws Exception {
+		// GIVEN
+		final File templateFile = this.folder.newFile("test.apt.template");
+		FileUtils.writeStringToFile(templateFile, "${id} - ${name}\n"
+				+ "~~{table}\n" + "| ${description} | ${missing} |\n"
+				+ "~~{/table}\n" + "${description}\n");
+
+		final Map<String, String> replacements = new HashMap<>();
+		replacements.put("id", "UC-1");
+		replacements.put("name", "Login");
+		replacements.put("description", "first line\n\n  second line");
+
+		// WHEN
+		final Template template = DocumentationGenerator
+				.getTemplate(templateFile.getPath());
+		final StringWriter output = new StringWriter();
+		try (final PrintWriter writer = new PrintWriter(output)) {
+			template.render(replacements, writer);
+		}
+
+		// THEN
+		final String nl = System.getProperty("line.separator");
+		Assert.assertEquals("UC-1 - Login" + nl + "~~{table}" + nl
+				+ "| first line second line |  |" + nl + "~~{/table}" + nl
+				+ "first line\n\n  second line" + nl, output.toString());
+		Assert.assertSame(template,
+				DocumentationGenerator.getTemplate(templateFile.getPath()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#renderElements(java.util.List)}
+	 * .
+	 */
+	@Test
+	public void shouldWriteSameOutputWithMultipleThreads() throws Exception {
+		// GIVEN
+		final File templateFile = this.folder.newFile("test.apt.template");
+		FileUtils.writeStringToFile(templateFile, "${id}\n~~{table}\n"
+				+ "| ${description} |\n~~{/table}\n");
+		DocumentationGenerator.configuredAnnotations.put("ch.Annotation",
+				templateFile.getPath());
+
+		final File sequential = this.folder.newFolder("sequential");
+		final File parallel = this.folder.newFolder("parallel");
+		final List<DocumentedElement> sequentialElements = new ArrayList<>();
+		final List<DocumentedElement> parallelElements = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			final Map<String, String> replacements = new HashMap<>();
+			replacements.put("id", "TC-" + i);
+			replacements.put("description", "line\n\n  " + i);
+			sequentialElements.add(new DocumentedElement("ch.Annotation",
+					sequential.getPath(), replacements, new String[0],
+					new String[0]));
+			parallelElements.add(new DocumentedElement("ch.Annotation",
+					parallel.getPath(), replacements, new String[0],
+					new String[0]));
+		}
+
+		// WHEN
+		DocumentationGenerator.renderElements(sequentialElements);
+		DocumentationGenerator.threads = 4;
+		DocumentationGenerator.renderElements(parallelElements);
+
+		// THEN
+		for (int i = 0; i < 50; i++) {
+			Assert.assertEquals(FileUtils.readFileToString(new File(
+					sequential, "TC-" + i + ".apt")), FileUtils
+					.readFileToString(new File(parallel, "TC-" + i + ".apt")));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#removeDuplicates(java.util.List)}
+	 * .
+	 */
+	@Test
+	public void shouldKeepLastElementForDuplicateIds() {
+		// GIVEN
+		final Map<String, String> first = new HashMap<>();
+		first.put("id", "TC-1");
+		final Map<String, String> other = new HashMap<>();
+		other.put("id", "TC-2");
+		final Map<String, String> last = new HashMap<>();
+		last.put("id", "TC-1");
+
+		final List<DocumentedElement> elements = new ArrayList<>();
+		elements.add(new DocumentedElement("a", "out", first, new String[0],
+				new String[0]));
+		elements.add(new DocumentedElement("b", "out", other, new String[0],
+				new String[0]));
+		elements.add(new DocumentedElement("c", "out", last, new String[0],
+				new String[0]));
+
+		// WHEN
+		final List<DocumentedElement> result = DocumentationGenerator
+				.removeDuplicates(elements);
+
+		// THEN
+		Assert.assertEquals(2, result.size());
+		Assert.assertEquals("b", result.get(0).getQualifiedAnnotationName());
+		Assert.assertEquals("c", result.get(1).getQualifiedAnnotationName());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void shouldProcessScreencastLine() throws Exception {
+		// GIVEN
+		final String line = "anything before placeholder ~~{screencast:screencasts/${id}} anything after placeholder";
+
+		final HashMap<String, String> replacements = new HashMap<>();
+		replacements.put("id", "demo");
+
+		// WHEN
+		final String output = DocumentationGenerator.processLine(line, false,
+				replacements);
+
+		// THEN
+		Assert.assertEquals(
+				"%{snippet|verbatim=false|file=src/site/resources/generated/snippets/screencast_snippet_demo.txt}",
+				output.trim());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#processScreencast(java.lang.String, java.util.Map)}
+	 * .
+	 */
+	@Test
+	public void shouldProcessScreencastsAndReplaceLineForTagWithParameters() {
+		// GIVEN
+		final String line = "anything before placeholder ~~{screencast:screencasts/${id}} anything after placeholder";
+
+		final HashMap<String, String> replacements = new HashMap<>();
+		replacements.put("id", "demo");
+
+		// WHEN
+		final String outputLine = DocumentationGenerator.processScreencast(
+				line, replacements);
+
+		// THEN
+		Assert.assertEquals(
+				"%{snippet|verbatim=false|file=src/site/resources/generated/snippets/screencast_snippet_demo.txt}",
+				outputLine.trim());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#processScreencast(java.lang.String, java.util.Map)}
+	 * .
+	 */
+	@Test
+	public void shouldPrintNAifNoScreencastWithGivenIdentifierCouldBeFound() {
+		// GIVEN
+		final String line = "~~{screencast:screencasts/${id}}";
+
+		final HashMap<String, String> replacements = new HashMap<>();
+		replacements.put("id", "nothing");
+
+		// WHEN
+		final String outputLine = DocumentationGenerator.processScreencast(
+				line, replacements);
+
+		// THEN
+		Assert.assertEquals("n/a", outputLine.trim());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#processImages(java.lang.String, java.util.Map)}
+	 * .
+	 */
+	@Test
+	public void shouldProcessImagesAndReplaceLineForTagWithoutParameters() {
+		// GIVEN
+		final String line = "anything before placeholder ~~{images:/images/test} anything after placeholder";
+
+		// WHEN
+		final String outputLine = DocumentationGenerator.processImages(line,
+				new HashMap<String, String>());
+
+		// THEN
+		Assert.assertEquals("[/images/test/duke.png]", outputLine.trim());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#processImages(java.lang.String, java.util.Map)}
+	 * .
+	 */
+	@Test
+	public void shouldPrintNAifNoScreenshotsCouldBeFoundInDirectory() {
+		// GIVEN
+		final String line = "~~{images:/images/${param}}";
+
+		final HashMap<String, String> replacements = new HashMap<>();
+		replacements.put("param", "empty");
+
+		// WHEN
+		final String outputLine = DocumentationGenerator.processImages(line,
+				replacements);
+
+		// THEN
+		Assert.assertEquals("n/a", outputLine.trim());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#processImages(java.lang.String, java.util.Map)}
+	 * .
+	 */
+	@Test
+	public void shouldProcessImagesReplaceTagsInPath() {
+		// GIVEN
+		final String line = "anything before placeholder ~~{images:/images/${param}} anything after placeholder";
+
+		// WHEN
+		final Map<String, String> replacements = new HashMap<>();
+		replacements.put("param", "test");
+
+		final String outputLine = DocumentationGenerator.processImages(line,
+				replacements);
+
+		// THEN
+		Assert.assertTrue(outputLine.contains("duke.png"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#processImages(java.lang.String, java.util.Map)}
+	 * .
+	 */
+	@Test
+	public void shouldOnlyProcessImages() {
+		// GIVEN
+		// directory contains a 'not_an_image.txt' file which should not be
+		// processed.
+		final String line = "anything before placeholder ~~{images:/images/test} anything after placeholder";
+
+		// WHEN
+		final String outputLine = DocumentationGenerator.processImages(line,
+				new HashMap<String, String>());
+
+		// THEN
+		Assert.assertTrue(outputLine.contains("duke.png"));
+		Assert.assertFalse(outputLine.contains("not_an_image.txt"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldContainOptionLength2ForOutput() {
+		// GIVEN
+
+		// WHEN
+		final int optionLength = DocumentationGenerator.optionLength("-output");
+
+		// THEN
+		Assert.assertEquals(2, optionLength);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldContainOptionLength3ForAnnotations() {
+		// GIVEN
+
+		// WHEN
+		final int optionLength = DocumentationGenerator
+				.optionLength("-annotation");
+
+		// THEN
+		Assert.assertEquals(3, optionLength);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldContainOptionLength2ForResourcesDir() {
+		// GIVEN
+
+		// WHEN
+		final int optionLength = DocumentationGenerator
+				.optionLength("-siteResources");
+
+		// THEN
+		Assert.assertEquals(2, optionLength);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldContainOptionLength2ForThreads() {
+		// GIVEN
+
+		// WHEN
+		final int optionLength = DocumentationGenerator
+				.optionLength("-threads");
+
+		// THEN
+		Assert.assertEquals(2, optionLength);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldContainOptionLength0ForDefault() {
+		// GIVEN
+
+		// WHEN
+		final int optionLength = DocumentationGenerator
+				.optionLength("-anythingElse");
+
+		// THEN
+		Assert.assertEquals(0, optionLength);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test(expected = UnsupportedCommandLineParameterException.class)
+	public void shouldThrowExceptionIfTooManyArgumentsAreProvided()
+			throws Exception {
+		// GIVEN
+		final String[][] providedCommandLineParameters = { { "-annotation",
+				"to", "many", "parameters" } };
+
+		// WHEN
+		DocumentationGenerator.processOptions(providedCommandLineParameters);
+
+		// THEN
+		Assert.fail("should have thrown an UnsupportedCommandLineParameterException.");
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test(expected = UnsupportedCommandLineParameterException.class)
+	public void shouldThrowExceptionIfTooFewArgumentsAreProvided()
+			throws Exception {
+		// GIVEN
+		final String[][] providedCommandLineParameters = { { "-annotation" } };
+
+		// WHEN
+		DocumentationGenerator.processOptions(providedCommandLineParameters);
+
+		// THEN
+		Assert.fail("should have thrown an UnsupportedCommandLineParameterException.");
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldProcessOutputParameter() throws Exception {
+		// GIVEN
+		final String[][] providedCommandLineParameters = {
+				{ "-output", "anywhere" },
+				{ "-annotation", "class1", "template1" } };
+
+		// WHEN
+		DocumentationGenerator.processOptions(providedCommandLineParameters);
+
+		// THEN
+		Assert.assertEquals("anywhere", DocumentationGenerator.baseOutputDir);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldProcessResourcesDirParameter() throws Exception {
+		// GIVEN
+		final String[][] providedCommandLineParameters = {
+				{ "-output", "anywhere" },
+				{ "-annotation", "class1", "template1" },
+				{ "-siteResources", "anywhere/else" } };
+
+		// WHEN
+		DocumentationGenerator.processOptions(providedCommandLineParameters);
+
+		// THEN
+		Assert.assertEquals("anywhere/else",
+				DocumentationGenerator.resourcesDir);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldTakeDefaultMavenResourcesDirIfNoneProvided()
+			throws Exception {
+		// GIVEN
+		final String[][] providedCommandLineParameters = {
+				{ "-output", "anywhere" },
+				{ "-annotation", "class1", "template1" } };
+
+		// WHEN
+		DocumentationGenerator.processOptions(providedCommandLineParameters);
+
+		// THEN
+		Assert.assertEquals("src/site/resources/",
+				DocumentationGenerator.resourcesDir);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldProcessAnnotationParameter() throws Exception {
+		// GIVEN
+		final String[][] providedCommandLineParameters = {
+				{ "-annotation", "class1", "template1" },
+				{ "-annotation", "class2", "template2" },
+				{ "-output", "anywhere" } };
+
+		// WHEN
+		DocumentationGenerator.processOptions(providedCommandLineParameters);
+
+		// THEN
+		Assert.assertEquals(2,
+				DocumentationGenerator.configuredAnnotations.size());
+		Assert.assertTrue(DocumentationGenerator.configuredAnnotations
+				.containsKey("class1"));
+		Assert.assertTrue(DocumentationGenerator.configuredAnnotations
+				.containsKey("class2"));
+		Assert.assertEquals("template1",
+				DocumentationGenerator.configuredAnnotations.get("class1"));
+		Assert.assertEquals("template2",
+				DocumentationGenerator.configuredAnnotations.get("class2"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationGenerator#optionLength(java.lang.String)}
+	 * .
+	 */
+	@Test(expected = MissingCommandLineParameterException.class)
+	public void shouldThrowExceptionIfParameterIsMissing() throws Exception {
+		// GIVEN
+		final String[][] providedCommandLineParameters1 = { { "-output",
+				"anywhere" } };
+		final String[][] providedCommandLineParameters2 = { { "-annotation",
+				"any", "any" } };
+
+		// WHEN
+		DocumentationGenerator.processOptions(providedCommandLineParameters1);
+		DocumentationGenerator.processOptions(providedCommandLineParameters2);
+
+		// THEN
+		Assert.fail("should have thrown a MissingParameterException.");
+	}
+
+}
@@ -0,0 +1,128 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class DocumentationModelTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationModel#read(java.io.File)}.
+	 */
+	@Test
+	public void shouldReadWrittenElements() throws Exception {
+		// GIVEN
+		final Map<String, String> replacements = new HashMap<>();
+		replacements.put("id", "UC-1");
+		replacements.put("description", "first line\n\n  second line äöü");
+		replacements.put("empty", null);
+
+		final List<DocumentedElement> elements = new ArrayList<>();
+		elements.add(new DocumentedElement("ch.puzzle.annotations.UseCase",
+				"out/ch/puzzle", replacements, new String[] { "@author",
+						"@description" }, new String[] { "someone",
+						"first line\n\n second line äöü" }));
+
+		final File file = new File(this.folder.getRoot(),
+				DocumentationModel.FILE_NAME);
+
+		// WHEN
+		DocumentationModel.write(file, elements);
+		final List<DocumentedElement> result = DocumentationModel.read(file);
+
+		// THEN
+		Assert.assertEquals(1, result.size());
+		final DocumentedElement element = result.get(0);
+		Assert.assertEquals("ch.puzzle.annotations.UseCase",
+				element.getQualifiedAnnotationName());
+		Assert.assertEquals("out/ch/puzzle", element.getDestinationFolder());
+		Assert.assertEquals(replacements, element.getReplacements());
+		Assert.assertArrayEquals(new String[] { "@author", "@description" },
+				element.getTagNames());
+		Assert.assertArrayEquals(new String[] { "someone",
+				"first line\n\n second line äöü" }, element.getTagTexts());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.DocumentationModel#update(java.io.File, java.util.List)}
+	 * .
+	 */
+	@Test
+	public void shouldKeepElementsNotInIncrementalRun() throws Exception {
+		// GIVEN
+		final File file = new File(this.folder.getRoot(),
+				DocumentationModel.FILE_NAME);
+		final List<DocumentedElement> snapshot = new ArrayList<>();
+		snapshot.add(testCase("TC-1", "Login.class"));
+		snapshot.add(testCase("TC-2", "Search.class"));
+		DocumentationModel.write(file, snapshot);
+
+		final List<DocumentedElement> changed = new ArrayList<>();
+		changed.add(testCase("TC-2", "Checkout.class"));
+		changed.add(testCase("TC-3", "Login.class"));
+
+		// WHEN
+		final List<DocumentedElement> model = DocumentationModel.update(file,
+				changed);
+
+		// THEN
+		Assert.assertEquals(3, model.size());
+		Assert.assertEquals("Login.class",
+				model.get(0).getReplacements().get("useCase"));
+		Assert.assertEquals("Checkout.class",
+				model.get(1).getReplacements().get("useCase"));
+		Assert.assertEquals("TC-3", model.get(2).getId());
+		Assert.assertEquals(3, DocumentationModel.read(file).size());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.ModelRenderer#toOptions(java.lang.String[])}.
+	 */
+	@Test
+	public void shouldGroupCommandLineArguments() throws Exception {
+		// GIVEN
+		final String[] args = { "-output", "anywhere", "-annotation",
+				"class1", "template1", "-threads", "4" };
+
+		// WHEN
+		final String[][] options = ModelRenderer.toOptions(args);
+
+		// THEN
+		Assert.assertEquals(3, options.length);
+		Assert.assertArrayEquals(new String[] { "-annotation", "class1",
+				"template1" }, options[1]);
+		Assert.assertArrayEquals(new String[] { "-threads", "4" }, options[2]);
+	}
+
+	/**
+	 * @param id
+	 *            the id of the test case.
+	 * @param useCase
+	 *            the use case of the test case.
+	 * @return the element of the test case.
+	 */
+	private static DocumentedElement testCase(final String id,
+			final String useCase) {
+		final Map<String, String> replacements = new HashMap<>();
+		replacements.put("id", id);
+		replacements.put("useCase", useCase);
+		return new DocumentedElement("ch.puzzle.annotations.TestCase", "out",
+				replacements, new String[0], new String[0]);
+	}
+}
@@ -0,0 +1,162 @@
+package ch.puzzle.doclet;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ImageOptimizerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.ImageOptimizer#optimize(java.lang.String, java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldWriteOptimizedCopiesAndSkipOptimizedImages()
+			throws Exception {
+		// GIVEN
+		final File resources = this.folder.newFolder("resources");
+		final File output = this.folder.newFolder("output");
+		final File image = new File(resources, "screenshots/TC-1/shot.png");
+		final byte[] original = withComment(png(new BufferedImage(40, 30,
+				BufferedImage.TYPE_INT_RGB)), 2000);
+		FileUtils.writeByteArrayToFile(image, original);
+		final ImageOptimizer optimizer = ImageOptimizer.parse("lossless");
+
+		// WHEN
+		optimizer.optimize(resources.getPath(), output.getPath());
+
+		// THEN
+		final File copy = new File(resources, ImageOptimizer.DIRECTORY
+				+ "/screenshots/TC-1/shot.png");
+		Assert.assertArrayEquals(original,
+				FileUtils.readFileToByteArray(image));
+		Assert.assertEquals(copy, ImageOptimizer.copyOf(resources, image));
+		Assert.assertEquals(1, optimizer.getOptimized());
+		Assert.assertEquals(0, optimizer.getUnchanged());
+		Assert.assertTrue(optimizer.getSavedBytes() >= 2000);
+		Assert.assertEquals(original.length - optimizer.getSavedBytes(),
+				copy.length());
+		Assert.assertEquals(40, ImageIO.read(copy).getWidth());
+
+		// WHEN
+		optimizer.optimize(resources.getPath(), output.getPath());
+
+		// THEN
+		Assert.assertEquals(0, optimizer.getOptimized());
+		Assert.assertEquals(1, optimizer.getUnchanged());
+		Assert.assertEquals(0, optimizer.getSavedBytes());
+		Assert.assertTrue(new File(output, ImageOptimizer.FILE_NAME).isFile());
+
+		// WHEN
+		FileUtils.forceDelete(image);
+		optimizer.optimize(resources.getPath(), output.getPath());
+
+		// THEN
+		Assert.assertFalse(copy.exists());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.ImageOptimizer#optimize(java.lang.String, java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldConvertCopyToJpegIfSmaller() throws Exception {
+		// GIVEN
+		final File resources = this.folder.newFolder("resources");
+		final BufferedImage noise = new BufferedImage(64, 64,
+				BufferedImage.TYPE_INT_RGB);
+		final Random random = new Random(42);
+		for (int x = 0; x < 64; x++) {
+			for (int y = 0; y < 64; y++) {
+				noise.setRGB(x, y, random.nextInt(0xffffff));
+			}
+		}
+		final byte[] original = png(noise);
+		final File image = new File(resources, "shot.png");
+		FileUtils.writeByteArrayToFile(image, original);
+		final File existingJpeg = new File(resources, "shot.jpg");
+		FileUtils.writeStringToFile(existingJpeg, "not touched");
+		final ImageOptimizer optimizer = ImageOptimizer.parse("0.5");
+
+		// WHEN
+		optimizer.optimize(resources.getPath(),
+				this.folder.newFolder("output").getPath());
+
+		// THEN
+		final File copy = new File(resources, ImageOptimizer.DIRECTORY
+				+ "/shot.jpg");
+		Assert.assertArrayEquals(original,
+				FileUtils.readFileToByteArray(image));
+		Assert.assertEquals("not touched",
+				FileUtils.readFileToString(existingJpeg));
+		Assert.assertEquals(copy, ImageOptimizer.copyOf(resources, image));
+		Assert.assertEquals(64, ImageIO.read(copy).getWidth());
+		Assert.assertTrue(optimizer.getSavedBytes() > 0);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.ImageOptimizer#parse(java.lang.String)}.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectInvalidQuality() {
+		ImageOptimizer.parse("1.5");
+	}
+
+	/**
+	 * @param image
+	 *            the image.
+	 * @return the image as png.
+	 */
+	private static byte[] png(final BufferedImage image) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param png
+	 *            a png.
+	 * @param length
+	 *            the length of the comment.
+	 * @return the png with a text chunk of the given length after the header.
+	 */
+	private static byte[] withComment(final byte[] png, final int length) {
+		final byte[] text = new byte[length];
+		Arrays.fill(text, (byte) 'x');
+		System.arraycopy("Comment\0".getBytes(StandardCharsets.US_ASCII), 0,
+				text, 0, 8);
+		final byte[] type = "tEXt".getBytes(StandardCharsets.US_ASCII);
+		final CRC32 crc = new CRC32();
+		crc.update(type);
+		crc.update(text);
+		// signature (8) and header chunk (25)
+		final int headerEnd = 33;
+		final ByteBuffer buffer = ByteBuffer.allocate(png.length + 12 + length);
+		buffer.put(png, 0, headerEnd);
+		buffer.putInt(length).put(type).put(text).putInt((int) crc.getValue());
+		buffer.put(png, headerEnd, png.length - headerEnd);
+		return buffer.array();
+	}
+}
@@ -0,0 +1,144 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ManifestTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * reset static fields
+	 */
+	@After
+	public void tearDown() {
+		DocumentationGenerator.resourcesDir = "src/site/resources/";
+		DocumentationGenerator.resourceCatalog = null;
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.Manifest#isUpToDate(java.lang.String, java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldOnlyRegenerateChangedFiles() throws Exception {
+		// GIVEN
+		final String outputDir = this.folder.getRoot().getPath();
+		final File generated = this.folder.newFile("TC-1.apt");
+
+		final Manifest firstRun = Manifest.load(outputDir);
+		Assert.assertFalse(firstRun.isUpToDate(generated.getPath(), "hash1"));
+		firstRun.save();
+
+		// WHEN
+		final Manifest secondRun = Manifest.load(outputDir);
+
+		// THEN
+		Assert.assertTrue(secondRun.isUpToDate(generated.getPath(), "hash1"));
+		Assert.assertFalse(Manifest.load(outputDir).isUpToDate(
+				generated.getPath(), "hash2"));
+	}
+
+	/**
+	 * Test method for {@link ch.puzzle.doclet.Manifest#deleteRemoved()}.
+	 */
+	@Test
+	public void shouldDeleteFilesOfRemovedElements() throws Exception {
+		// GIVEN
+		final String outputDir = this.folder.getRoot().getPath();
+		final File kept = this.folder.newFile("TC-1.apt");
+		final File removed = this.folder.newFile("TC-2.apt");
+
+		final Manifest firstRun = Manifest.load(outputDir);
+		firstRun.isUpToDate(kept.getPath(), "hash1");
+		firstRun.isUpToDate(removed.getPath(), "hash2");
+		firstRun.save();
+
+		// WHEN
+		final Manifest secondRun = Manifest.load(outputDir);
+		secondRun.isUpToDate(kept.getPath(), "hash1");
+		final List<String> deleted = secondRun.deleteRemoved();
+
+		// THEN
+		Assert.assertEquals(1, deleted.size());
+		Assert.assertTrue(kept.exists());
+		Assert.assertFalse(removed.exists());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.Manifest#hash(ch.puzzle.doclet.DocumentedElement, ch.puzzle.doclet.Template)}
+	 * .
+	 */
+	@Test
+	public void shouldChangeHashIfReplacementsChange() {
+		// GIVEN
+		final Map<String, String> replacements = new HashMap<>();
+		replacements.put("id", "TC-1");
+		final DocumentedElement element = new DocumentedElement("a", "out",
+				replacements, new String[] { "@author" },
+				new String[] { "someone" });
+		final String hash = Manifest.hash(element, null);
+
+		// WHEN
+		replacements.put("name", "changed");
+
+		// THEN
+		Assert.assertEquals(40, hash.length());
+		Assert.assertFalse(hash.equals(Manifest.hash(element, null)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.Manifest#hash(ch.puzzle.doclet.DocumentedElement, ch.puzzle.doclet.Template)}
+	 * .
+	 */
+	@Test
+	public void shouldChangeHashIfScreencastSnippetChanges() throws Exception {
+		// GIVEN
+		final File resources = this.folder.newFolder("resources");
+		final File otherResources = this.folder.newFolder("other");
+		new File(resources, "screencasts").mkdirs();
+		new File(resources, "screencasts/TC-1.mp4").createNewFile();
+		new File(otherResources, "screencasts").mkdirs();
+		new File(otherResources, "screencasts/TC-1.mp4").createNewFile();
+		final File templateFile = this.folder.newFile("testcase.apt.template");
+		FileUtils.writeStringToFile(templateFile, "~~{screencast:${id}}\n");
+		final Template template = Template.compile(templateFile.getPath());
+
+		final Map<String, String> replacements = new HashMap<>();
+		replacements.put("id", "TC-1");
+		final DocumentedElement element = new DocumentedElement("a", "out",
+				replacements, new String[0], new String[0]);
+
+		DocumentationGenerator.resourcesDir = resources.getPath() + "/";
+		final File snippet = new File(
+				DocumentationGenerator.screencastSnippet("TC-1"));
+		FileUtils.writeStringToFile(snippet, "<video/>");
+		final String hash = Manifest.hash(element, template);
+
+		// WHEN
+		snippet.delete();
+		final String withoutSnippet = Manifest.hash(element, template);
+		DocumentationGenerator.resourcesDir = otherResources.getPath() + "/";
+		final String otherResourcesDir = Manifest.hash(element, template);
+
+		// THEN
+		Assert.assertFalse(hash.equals(withoutSnippet));
+		Assert.assertFalse(withoutSnippet.equals(otherResourcesDir));
+	}
+}
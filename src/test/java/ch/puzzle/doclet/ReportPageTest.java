@@ -0,0 +1,89 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.puzzle.annotations.TestCase;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ReportPageTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.ReportPage#write(java.io.File, java.util.List, java.io.File)}
+	 * .
+	 */
+	@Test
+	public void shouldWriteReportInChunksWithUseCases() throws Exception {
+		// GIVEN
+		final StringBuilder csv = new StringBuilder("\"\",\"1.0\",\"1.1\"\n");
+		for (int i = 0; i < 300; i++) {
+			csv.append(String.format("\"TC-%03d\",\"OK\",\"%s\"\n",
+					Integer.valueOf(i), i % 2 == 0 ? "NOK" : "n/a"));
+		}
+		final File report = this.folder.newFile("testresult.csv");
+		FileUtils.writeStringToFile(report, csv.toString());
+
+		final List<DocumentedElement> elements = new ArrayList<>();
+		elements.add(testCase("TC-001", "ch.puzzle.example.Login.class"));
+		elements.add(testCase("TC-002", "ch.puzzle.example.Search.class"));
+		elements.add(testCase("TC-003", "ch.puzzle.example.Login.class"));
+
+		final File directory = this.folder.newFolder("testreport");
+		final File stale = new File(directory, "rows-5.json");
+		stale.createNewFile();
+
+		// WHEN
+		final int rows = ReportPage.write(report, elements, directory);
+
+		// THEN
+		Assert.assertEquals(300, rows);
+		final String meta = FileUtils.readFileToString(new File(directory,
+				"meta.json"));
+		Assert.assertTrue(meta.startsWith("{\"chunkRows\":256,\"rows\":300,"
+				+ "\"releases\":[\"1.0\",\"1.1\"],"
+				+ "\"useCases\":[\"ch.puzzle.example.Login\","
+				+ "\"ch.puzzle.example.Search\"],"
+				+ "\"rowUseCase\":[-1,0,1,0,-1,"));
+		Assert.assertTrue(FileUtils.readFileToString(
+				new File(directory, "rows-0.json")).startsWith(
+				"{\"testCases\":[\"TC-000\",\"TC-001\","));
+		final String lastChunk = FileUtils.readFileToString(new File(directory,
+				"rows-1.json"));
+		Assert.assertTrue(lastChunk.startsWith("{\"testCases\":[\"TC-256\","));
+		Assert.assertTrue(lastChunk.contains("\"TC-299\"],\"results\":[\"ON\",\"O.\","));
+		Assert.assertTrue(lastChunk.endsWith(",\"ON\",\"O.\"]}\n"));
+		Assert.assertFalse(stale.exists());
+		Assert.assertTrue(new File(directory, "index.html").isFile());
+	}
+
+	/**
+	 * @param id
+	 *            the id of the test case.
+	 * @param useCase
+	 *            the use case as written in the annotation.
+	 * @return the documented test case.
+	 */
+	private static DocumentedElement testCase(final String id,
+			final String useCase) {
+		final Map<String, String> values = new LinkedHashMap<>();
+		values.put("useCase", useCase);
+		values.put("id", "\"" + id + "\"");
+		return DocumentationGenerator.createElement(TestCase.class.getName(),
+				"out", new String[0], new String[0], values);
+	}
+}
@@ -0,0 +1,72 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ResourceCatalogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.ResourceCatalog#list(java.io.File)}.
+	 */
+	@Test
+	public void shouldListSortedEntriesWithMediaType() throws Exception {
+		// GIVEN
+		final File imagesDir = this.folder.newFolder("images", "TC-1");
+		new File(imagesDir, "b.png").createNewFile();
+		new File(imagesDir, "a.jpg").createNewFile();
+		new File(imagesDir, "notes.txt").createNewFile();
+		final String resourcesDir = this.folder.getRoot().getPath() + "/";
+
+		// WHEN
+		final ResourceCatalog catalog = ResourceCatalog.scan(resourcesDir);
+		final List<ResourceCatalog.Entry> entries = catalog.list(new File(
+				resourcesDir + "images/TC-1"));
+
+		// THEN
+		Assert.assertTrue(catalog.isFor(resourcesDir));
+		Assert.assertEquals(3, entries.size());
+		Assert.assertEquals("a.jpg", entries.get(0).getName());
+		Assert.assertEquals("image", entries.get(0).getMediaType());
+		Assert.assertEquals("b.png", entries.get(1).getName());
+		Assert.assertEquals("notes.txt", entries.get(2).getName());
+		Assert.assertFalse("image".equals(entries.get(2).getMediaType()));
+		Assert.assertNull(catalog.list(new File(resourcesDir + "images/TC-2")));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.ResourceCatalog#exists(java.io.File)}.
+	 */
+	@Test
+	public void shouldFindFilesOfTheResourcesDirectory() throws Exception {
+		// GIVEN
+		this.folder.newFolder("screencasts");
+		this.folder.newFile("screencasts/demo.mp4");
+		final String resourcesDir = this.folder.getRoot().getPath() + "/";
+
+		// WHEN
+		final ResourceCatalog catalog = ResourceCatalog.scan(resourcesDir);
+
+		// THEN
+		Assert.assertTrue(catalog.exists(new File(resourcesDir
+				+ "screencasts/demo.mp4")));
+		Assert.assertTrue(catalog.exists(new File(resourcesDir
+				+ "screencasts/./demo.mp4")));
+		Assert.assertFalse(catalog.exists(new File(resourcesDir
+				+ "screencasts/demo.webm")));
+		Assert.assertFalse(ResourceCatalog.scan(resourcesDir + "missing/")
+				.exists(new File(resourcesDir + "screencasts/demo.mp4")));
+	}
+}
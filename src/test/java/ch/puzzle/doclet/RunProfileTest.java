@@ -0,0 +1,83 @@
+package ch.puzzle.doclet;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class RunProfileTest {
+
+	/**
+	 * Test method for {@link ch.puzzle.doclet.RunProfile#toJson()}.
+	 */
+	@Test
+	public void shouldReportPhasesTemplatesAndElements() {
+		// GIVEN
+		final RunProfile profile = new RunProfile();
+		profile.record(RunProfile.RENDERING, System.nanoTime());
+		profile.record(RunProfile.RENDERING, System.nanoTime());
+		profile.recordElement("testcase.apt.template", "out/\"TC-1\".apt",
+				System.nanoTime());
+		profile.recordFile(42);
+
+		// WHEN
+		final String json = profile.toJson();
+
+		// THEN
+		Assert.assertTrue(json.contains("\"filesWritten\": 1"));
+		Assert.assertTrue(json.contains("\"bytesWritten\": 42"));
+		Assert.assertTrue(json.contains("\"rendering\": {\"count\": 2"));
+		Assert.assertTrue(json
+				.contains("\"testcase.apt.template\": {\"count\": 1"));
+		Assert.assertTrue(json.contains("{\"file\": \"out/\\\"TC-1\\\".apt\""));
+	}
+
+	/**
+	 * Test method for {@link ch.puzzle.doclet.RunProfile#summary(int)}.
+	 */
+	@Test
+	public void shouldPrintOnlyTheSlowestElements() {
+		// GIVEN
+		final RunProfile profile = new RunProfile();
+		for (int i = 0; i < 5; i++) {
+			profile.recordElement("page.apt.template", "P-" + i + ".apt",
+					System.nanoTime() - i * 1000000L);
+		}
+
+		// WHEN
+		final List<String> summary = profile.summary(2);
+
+		// THEN
+		// total, one template, two elements
+		Assert.assertEquals(4, summary.size());
+		Assert.assertTrue(summary.get(2).contains("P-4.apt"));
+		Assert.assertTrue(summary.get(3).contains("P-3.apt"));
+	}
+
+	/**
+	 * Test method for {@link ch.puzzle.doclet.RunProfile#start()}.
+	 */
+	@Test
+	public void shouldCountTotalTimeFromStart() throws Exception {
+		// GIVEN
+		final RunProfile profile = new RunProfile();
+		Thread.sleep(500);
+
+		// WHEN
+		profile.start();
+		final String json = profile.toJson();
+
+		// THEN
+		final Matcher total = Pattern.compile("\"totalNanos\": (\\d+)")
+				.matcher(json);
+		Assert.assertTrue(total.find());
+		Assert.assertTrue(Long.parseLong(total.group(1)) < TimeUnit.MILLISECONDS
+				.toNanos(500));
+	}
+}
@@ -0,0 +1,106 @@
+package ch.puzzle.doclet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class SourceLexerTest {
+
+	/** source with a documented type, a documented method and some noise. */
+	private static final String SOURCE = "package ch.example;\n"
+			+ "\n"
+			+ "import ch.puzzle.annotations.*;\n"
+			+ "import ch.other.Screen;\n"
+			+ "\n"
+			+ "/**\n"
+			+ " * Login page.\n"
+			+ " *\n"
+			+ " * @name Login\n"
+			+ " * @description first line\n"
+			+ " *   second line\n"
+			+ " */\n"
+			+ "@Screen(id = \"UC-1\", tags = { \"a\", \"b\" })\n"
+			+ "@SuppressWarnings(\"unused\")\n"
+			+ "public class Login {\n"
+			+ "\n"
+			+ "    // @Screen(id = \"commented\")\n"
+			+ "    private String text = \"@Screen(id = \\\"literal\\\")\";\n"
+			+ "\n"
+			+ "    /**\n"
+			+ "     * @name submit\n"
+			+ "     */\n"
+			+ "    @TestCase(useCase = Login.class, id = \"TC-1\")\n"
+			+ "    public void submit() {\n"
+			+ "    }\n"
+			+ "}\n";
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.SourceLexer#scan(java.util.Map, java.lang.String)}
+	 * .
+	 */
+	@Test
+	public void shouldFindConfiguredAnnotationsWithDocComments() {
+		// GIVEN
+		final Map<String, String> configuredAnnotations = new HashMap<>();
+		configuredAnnotations.put("ch.other.Screen", "screen.apt.template");
+		configuredAnnotations.put("ch.puzzle.annotations.TestCase",
+				"testcase.apt.template");
+
+		// WHEN
+		final List<DocumentedElement> elements = new SourceLexer(SOURCE)
+				.scan(configuredAnnotations, "out/");
+
+		// THEN
+		Assert.assertEquals(2, elements.size());
+
+		final DocumentedElement type = elements.get(0);
+		Assert.assertEquals("ch.other.Screen",
+				type.getQualifiedAnnotationName());
+		Assert.assertEquals("out/ch/example", type.getDestinationFolder());
+		Assert.assertEquals("UC-1", type.getId());
+		Assert.assertEquals("{ a, b }", type.getReplacements().get("tags"));
+		Assert.assertEquals("Login", type.getReplacements().get("name"));
+		Assert.assertEquals("first line\n   second line", type
+				.getReplacements().get("description"));
+
+		final DocumentedElement method = elements.get(1);
+		Assert.assertEquals("ch.puzzle.annotations.TestCase",
+				method.getQualifiedAnnotationName());
+		Assert.assertEquals("TC-1", method.getId());
+		Assert.assertEquals("Login.class",
+				method.getReplacements().get("useCase"));
+		Assert.assertEquals("submit", method.getReplacements().get("name"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.SourceLexer#hasUnresolvedAnnotations()}.
+	 */
+	@Test
+	public void shouldReportAnnotationsThatCannotBeResolved() {
+		// GIVEN
+		final Map<String, String> configuredAnnotations = new HashMap<>();
+		configuredAnnotations.put("ch.other.Screen", "screen.apt.template");
+		final SourceLexer resolved = new SourceLexer(SOURCE);
+		final SourceLexer unresolved = new SourceLexer("package ch.example;\n"
+				+ "\n" + "@Screens.Screen(id = \"UC-2\")\n"
+				+ "public class Logout {\n" + "}\n");
+
+		// WHEN
+		resolved.scan(configuredAnnotations, "out/");
+		final List<DocumentedElement> elements = unresolved.scan(
+				configuredAnnotations, "out/");
+
+		// THEN
+		Assert.assertFalse(resolved.hasUnresolvedAnnotations());
+		Assert.assertTrue(elements.isEmpty());
+		Assert.assertTrue(unresolved.hasUnresolvedAnnotations());
+	}
+}
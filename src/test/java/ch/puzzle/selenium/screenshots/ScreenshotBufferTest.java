@@ -0,0 +1,86 @@
+package ch.puzzle.selenium.screenshots;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.puzzle.selenium.screenshots.ScreenshotDeduplicator.Mode;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ScreenshotBufferTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotBuffer#flush(ch.puzzle.selenium.screenshots.ScreenshotDeduplicator)}
+	 * .
+	 */
+	@Test
+	public void shouldWriteTheLastScreenshotsOfAFailedTest() throws Exception {
+		// GIVEN
+		final ScreenshotWriter writer = new ScreenshotWriter(1, 4);
+		final ScreenshotDeduplicator deduplicator = new ScreenshotDeduplicator(
+				writer, Mode.KEEP, 0);
+		final ScreenshotBuffer buffer = new ScreenshotBuffer(3, true);
+		for (int i = 1; i <= 5; i++) {
+			buffer.add(new byte[] { (byte) i }, null, this.file(i));
+		}
+
+		// WHEN
+		final int written = buffer.flush(deduplicator);
+		writer.drain();
+
+		// THEN
+		Assert.assertTrue(buffer.isEnabled());
+		Assert.assertEquals(3, written);
+		Assert.assertEquals(0, buffer.size());
+		Assert.assertFalse(this.file(1).exists());
+		Assert.assertFalse(this.file(2).exists());
+		for (int i = 3; i <= 5; i++) {
+			Assert.assertArrayEquals(new byte[] { (byte) i },
+					FileUtils.readFileToByteArray(this.file(i)));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotBuffer#clear()}.
+	 */
+	@Test
+	public void shouldDropTheScreenshotsOfAPassedTest() throws Exception {
+		// GIVEN
+		final ScreenshotWriter writer = new ScreenshotWriter(1, 4);
+		final ScreenshotBuffer buffer = new ScreenshotBuffer(3, false);
+		buffer.add(new byte[] { 1 }, null, this.file(1));
+		buffer.add(new byte[] { 2 }, null, this.file(2));
+
+		// WHEN
+		buffer.clear();
+		final int written = buffer.flush(new ScreenshotDeduplicator(writer,
+				Mode.KEEP, 0));
+		writer.drain();
+
+		// THEN
+		Assert.assertEquals(0, written);
+		Assert.assertEquals(0, writer.getWritten());
+		Assert.assertFalse(this.file(1).exists());
+		Assert.assertFalse(new ScreenshotBuffer(0, false).isEnabled());
+	}
+
+	/**
+	 * @param index
+	 *            the index of the screenshot.
+	 * @return the file of the screenshot.
+	 */
+	private File file(final int index) {
+		return new File(this.folder.getRoot(), "shot-" + index + ".png");
+	}
+}
@@ -0,0 +1,196 @@
+package ch.puzzle.selenium.screenshots;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import ch.puzzle.selenium.screenshots.ScreenshotCapture.Mode;
+import ch.puzzle.selenium.screenshots.ScreenshotCapture.Region;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ScreenshotCaptureTest {
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotCapture#region(org.openqa.selenium.WebDriver, org.openqa.selenium.WebElement)}
+	 * .
+	 */
+	@Test
+	public void shouldPadTheRegionOfTheElement() {
+		// GIVEN
+		final WebElement element = mock(WebElement.class);
+		when(element.getLocation()).thenReturn(new Point(100, 50));
+		when(element.getSize()).thenReturn(new Dimension(80, 20));
+
+		// WHEN
+		final Region region = new ScreenshotCapture(Mode.ELEMENT, 10).region(
+				mock(WebDriver.class), element);
+		final Region page = new ScreenshotCapture(Mode.PAGE, 10).region(
+				mock(WebDriver.class), element);
+
+		// THEN
+		Assert.assertEquals(new Rectangle(90, 40, 100, 40), region.area);
+		Assert.assertNull(region.viewport);
+		Assert.assertNull(page);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotCapture#region(org.openqa.selenium.WebDriver, org.openqa.selenium.WebElement)}
+	 * .
+	 */
+	@Test
+	public void shouldCaptureThePageIfTheElementIsGone() {
+		// GIVEN
+		final WebElement element = mock(WebElement.class);
+		when(element.getLocation()).thenThrow(
+				new StaleElementReferenceException("gone"));
+
+		// WHEN
+		final Region region = new ScreenshotCapture(Mode.ELEMENT, 10).region(
+				mock(WebDriver.class), element);
+
+		// THEN
+		Assert.assertNull(region);
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotCapture#crop(byte[], java.awt.Rectangle)}
+	 * .
+	 */
+	@Test
+	public void shouldCropToTheImage() throws Exception {
+		// GIVEN
+		final byte[] png = png(200, 100, 150, 90);
+
+		// WHEN
+		final BufferedImage cropped = ImageIO.read(new ByteArrayInputStream(
+				ScreenshotCapture.crop(png, area(140, 80, 100, 100))));
+
+		// THEN
+		Assert.assertEquals(60, cropped.getWidth());
+		Assert.assertEquals(20, cropped.getHeight());
+		Assert.assertEquals(0xff0000, cropped.getRGB(10, 10) & 0xffffff);
+		Assert.assertSame(png, ScreenshotCapture.crop(png, null));
+		Assert.assertSame(png,
+				ScreenshotCapture.crop(png, area(-5, -5, 300, 300)));
+		Assert.assertSame(png,
+				ScreenshotCapture.crop(png, area(300, 300, 10, 10)));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotCapture#crop(byte[], ch.puzzle.selenium.screenshots.ScreenshotCapture.Region)}
+	 * .
+	 */
+	@Test
+	public void shouldMoveTheRegionIntoTheScrolledViewport() throws Exception {
+		// GIVEN
+		final WebElement element = mock(WebElement.class);
+		when(element.getLocation()).thenReturn(new Point(140, 580));
+		when(element.getSize()).thenReturn(new Dimension(20, 20));
+		// scrolled down by 500 pixels, two device pixels per page pixel
+		final WebDriver driver = mock(WebDriver.class,
+				withSettings().extraInterfaces(JavascriptExecutor.class));
+		when(((JavascriptExecutor) driver).executeScript(
+				anyString())).thenReturn(
+				Arrays.<Object> asList(Long.valueOf(0), Long.valueOf(500),
+						Long.valueOf(200), Long.valueOf(100), Double.valueOf(2)));
+		// the driver captures the viewport only
+		final byte[] png = png(400, 200, 300, 180);
+
+		// WHEN
+		final Region elementRegion = new ScreenshotCapture(Mode.ELEMENT, 0)
+				.region(driver, element);
+		final Region viewport = new ScreenshotCapture(Mode.VIEWPORT, 0)
+				.region(driver, element);
+		final BufferedImage cropped = ImageIO.read(new ByteArrayInputStream(
+				ScreenshotCapture.crop(png, elementRegion)));
+
+		// THEN
+		Assert.assertEquals(40, cropped.getWidth());
+		Assert.assertEquals(40, cropped.getHeight());
+		Assert.assertEquals(0xff0000, cropped.getRGB(20, 20) & 0xffffff);
+		Assert.assertSame(png, ScreenshotCapture.crop(png, viewport));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotCapture#crop(byte[], ch.puzzle.selenium.screenshots.ScreenshotCapture.Region)}
+	 * .
+	 */
+	@Test
+	public void shouldCropTheScrolledViewportFromThePage() throws Exception {
+		// GIVEN
+		final byte[] png = png(200, 1000, 150, 590);
+		final Region viewport = new Region(null,
+				new Rectangle(0, 500, 200, 100), 1);
+
+		// WHEN
+		final BufferedImage cropped = ImageIO.read(new ByteArrayInputStream(
+				ScreenshotCapture.crop(png, viewport)));
+
+		// THEN
+		Assert.assertEquals(200, cropped.getWidth());
+		Assert.assertEquals(100, cropped.getHeight());
+		Assert.assertEquals(0xff0000, cropped.getRGB(150, 90) & 0xffffff);
+	}
+
+	/**
+	 * @param x
+	 *            the x coordinate in page pixels.
+	 * @param y
+	 *            the y coordinate in page pixels.
+	 * @param width
+	 *            the width in page pixels.
+	 * @param height
+	 *            the height in page pixels.
+	 * @return the region of an unknown viewport.
+	 */
+	private static Region area(final int x, final int y, final int width,
+			final int height) {
+		return new Region(new Rectangle(x, y, width, height), null, 1);
+	}
+
+	/**
+	 * @param width
+	 *            the width of the screenshot.
+	 * @param height
+	 *            the height of the screenshot.
+	 * @param redX
+	 *            the x coordinate of the red pixel.
+	 * @param redY
+	 *            the y coordinate of the red pixel.
+	 * @return a black screenshot with a red pixel.
+	 */
+	private static byte[] png(final int width, final int height,
+			final int redX, final int redY) throws Exception {
+		final BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		image.setRGB(redX, redY, 0xff0000);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
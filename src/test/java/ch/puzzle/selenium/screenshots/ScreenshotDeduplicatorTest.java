@@ -0,0 +1,132 @@
+package ch.puzzle.selenium.screenshots;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ch.puzzle.selenium.screenshots.ScreenshotDeduplicator.Mode;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ScreenshotDeduplicatorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotDeduplicator#capture(byte[], java.io.File)}
+	 * .
+	 */
+	@Test
+	public void shouldSkipIdenticalScreenshots() throws Exception {
+		// GIVEN
+		final ScreenshotWriter writer = new ScreenshotWriter(1, 4);
+		final ScreenshotDeduplicator deduplicator = new ScreenshotDeduplicator(
+				writer, Mode.SKIP, 0);
+		deduplicator.start("TC-1");
+
+		// WHEN
+		deduplicator.capture(new byte[] { 1 }, this.file("1.png"));
+		deduplicator.capture(new byte[] { 1 }, this.file("2.png"));
+		deduplicator.capture(new byte[] { 2 }, this.file("3.png"));
+		deduplicator.capture(new byte[] { 1 }, this.file("4.png"));
+		deduplicator.start("TC-2");
+		deduplicator.capture(new byte[] { 1 }, this.file("5.png"));
+		writer.drain();
+
+		// THEN
+		Assert.assertTrue(this.file("1.png").exists());
+		Assert.assertFalse(this.file("2.png").exists());
+		Assert.assertTrue(this.file("3.png").exists());
+		Assert.assertTrue(this.file("4.png").exists());
+		Assert.assertTrue(this.file("5.png").exists());
+		Assert.assertEquals(1, deduplicator.getSuppressed("TC-1"));
+		Assert.assertEquals(0, deduplicator.getSuppressed("TC-2"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotDeduplicator#capture(byte[], java.io.File)}
+	 * .
+	 */
+	@Test
+	public void shouldLinkIdenticalScreenshots() throws Exception {
+		// GIVEN
+		final ScreenshotWriter writer = new ScreenshotWriter(2, 4);
+		final ScreenshotDeduplicator deduplicator = new ScreenshotDeduplicator(
+				writer, Mode.LINK, 0);
+		deduplicator.start("TC-1");
+
+		// WHEN
+		deduplicator.capture(new byte[] { 1, 2 }, this.file("1.png"));
+		deduplicator.capture(new byte[] { 1, 2 }, this.file("2.png"));
+		writer.drain();
+
+		// THEN
+		Assert.assertArrayEquals(new byte[] { 1, 2 },
+				FileUtils.readFileToByteArray(this.file("2.png")));
+		Assert.assertEquals(1, deduplicator.getSuppressed("TC-1"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotDeduplicator#capture(byte[], java.io.File)}
+	 * .
+	 */
+	@Test
+	public void shouldSkipScreenshotsBelowThreshold() throws Exception {
+		// GIVEN
+		final ScreenshotWriter writer = new ScreenshotWriter(1, 4);
+		final ScreenshotDeduplicator deduplicator = new ScreenshotDeduplicator(
+				writer, Mode.SKIP, 0.01);
+		deduplicator.start("TC-1");
+		final BufferedImage image = new BufferedImage(20, 20,
+				BufferedImage.TYPE_INT_RGB);
+
+		// WHEN
+		deduplicator.capture(png(image), this.file("1.png"));
+		image.setRGB(3, 3, 0xff0000);
+		deduplicator.capture(png(image), this.file("2.png"));
+		for (int x = 0; x < 20; x++) {
+			image.setRGB(x, 5, 0x00ff00);
+		}
+		deduplicator.capture(png(image), this.file("3.png"));
+		writer.drain();
+
+		// THEN
+		Assert.assertTrue(this.file("1.png").exists());
+		Assert.assertFalse(this.file("2.png").exists());
+		Assert.assertTrue(this.file("3.png").exists());
+		Assert.assertEquals(1, deduplicator.getSuppressed("TC-1"));
+	}
+
+	/**
+	 * @param name
+	 *            the name of the screenshot.
+	 * @return the file of the screenshot.
+	 */
+	private File file(final String name) {
+		return new File(this.folder.getRoot(), name);
+	}
+
+	/**
+	 * @param image
+	 *            the image.
+	 * @return the image as png.
+	 */
+	private static byte[] png(final BufferedImage image) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,71 @@
+package ch.puzzle.selenium.screenshots;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class ScreenshotWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotWriter#drain()}.
+	 */
+	@Test
+	public void shouldWriteAllScreenshotsBeforeDrainReturns() throws Exception {
+		// GIVEN
+		final ScreenshotWriter writer = new ScreenshotWriter(1, 1);
+		final File directory = new File(this.folder.getRoot(), "TC-1");
+
+		// WHEN
+		for (int i = 0; i < 50; i++) {
+			writer.submit(new byte[] { (byte) i, 1, 2, 3 }, new File(directory,
+					"shot-" + i + ".png"));
+		}
+		writer.drain();
+
+		// THEN
+		for (int i = 0; i < 50; i++) {
+			Assert.assertArrayEquals(new byte[] { (byte) i, 1, 2, 3 },
+					FileUtils.readFileToByteArray(new File(directory, "shot-"
+							+ i + ".png")));
+		}
+		Assert.assertEquals(50, writer.getWritten());
+		Assert.assertEquals(0, writer.getFailed());
+		Assert.assertEquals(0, writer.getQueueDepth());
+		Assert.assertTrue(writer.getMaxQueueDepth() <= 1);
+		Assert.assertTrue(writer.getMaxWriteNanos() >= writer
+				.getAverageWriteNanos());
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.selenium.screenshots.ScreenshotWriter#submit(byte[], java.io.File)}
+	 * .
+	 */
+	@Test
+	public void shouldCountFailedScreenshots() throws Exception {
+		// GIVEN
+		final ScreenshotWriter writer = new ScreenshotWriter(2, 4);
+		final File notADirectory = this.folder.newFile("file");
+
+		// WHEN
+		writer.submit(new byte[] { 1 }, new File(notADirectory, "shot.png"));
+		writer.submit(new byte[] { 2 }, new File(this.folder.getRoot(),
+				"shot.png"));
+		writer.drain();
+
+		// THEN
+		Assert.assertEquals(1, writer.getWritten());
+		Assert.assertEquals(1, writer.getFailed());
+	}
+}
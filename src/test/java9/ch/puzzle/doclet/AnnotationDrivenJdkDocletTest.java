@@ -0,0 +1,85 @@
+package ch.puzzle.doclet;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.tools.DocumentationTool;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Brigitte Hulliger, <hulliger@puzzle.ch>
+ */
+public class AnnotationDrivenJdkDocletTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * reset static fields
+	 */
+	@After
+	public void tearDown() {
+		DocumentationGenerator.configuredAnnotations = new HashMap<>();
+		DocumentationGenerator.baseOutputDir = null;
+		DocumentationGenerator.resourcesDir = "src/site/resources/";
+		DocumentationGenerator.compiledTemplates.clear();
+		DocumentationGenerator.resourceCatalog = null;
+		DocumentationGenerator.profile = new RunProfile();
+	}
+
+	/**
+	 * Test method for
+	 * {@link ch.puzzle.doclet.AnnotationDrivenJdkDoclet#run(jdk.javadoc.doclet.DocletEnvironment)}
+	 * .
+	 */
+	@Test
+	public void shouldGenerateFilesOfAnnotatedElements() throws Exception {
+		// GIVEN
+		final File source = new File(this.folder.getRoot(),
+				"src/example/Login.java");
+		FileUtils.writeStringToFile(source, "package example;\n\n"
+				+ "/**\n * @id UC-1\n * @name Login\n */\n"
+				+ "@ch.puzzle.annotations.UseCase\n"
+				+ "public class Login {\n}\n", "UTF-8");
+		final File template = this.folder.newFile("usecase.apt.template");
+		FileUtils.writeStringToFile(template, "${id}: ${name}\n", "UTF-8");
+		final File output = this.folder.newFolder("output");
+		final File resources = this.folder.newFolder("resources");
+
+		final DocumentationTool javadoc = ToolProvider
+				.getSystemDocumentationTool();
+		final StandardJavaFileManager fileManager = javadoc
+				.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+		final StringWriter log = new StringWriter();
+
+		// WHEN
+		final boolean success = javadoc.getTask(
+				log,
+				fileManager,
+				null,
+				AnnotationDrivenJdkDoclet.class,
+				Arrays.asList("-classpath", System.getProperty("java.class.path"),
+						"-output", output.getPath() + "/", "-annotation",
+						"ch.puzzle.annotations.UseCase", template.getPath(),
+						"-siteResources", resources.getPath() + "/"),
+				fileManager.getJavaFileObjects(source)).call();
+
+		// THEN
+		Assert.assertTrue(log.toString(), success);
+		Assert.assertEquals("UC-1: Login\n", FileUtils.readFileToString(
+				new File(output, "example/UC-1.apt"), "UTF-8"));
+		Assert.assertTrue(new File(output, DocumentationModel.FILE_NAME)
+				.isFile());
+	}
+}